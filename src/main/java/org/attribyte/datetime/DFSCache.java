@@ -18,17 +18,30 @@ package org.attribyte.datetime;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import org.joda.time.DateTimeZone;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
+import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Caching layer for {@link DateFormatSet} instances by time zone and locale.
+ * <p>
+ * Each time zone and locale is interned to a small integer id the first time it is seen.
+ * Sets are stored in a table indexed by these ids that is replaced (copy-on-write) when
+ * a new set is added, so lookups for cached sets are lock-free and do not allocate.
+ * All zone/locale pairs expected at runtime may be built at startup with {@code preload}.
+ * </p>
  * @deprecated This class is built on Joda-Time, which is in maintenance mode.
+ * A {@code java.time} equivalent with the same model is {@link org.attribyte.time.DFSCache}.
  * Use {@link java.time.format.DateTimeFormatter} from the {@code java.time} API instead.
  * {@code java.time} formatters are immutable, thread-safe, and can be shared directly
  * without a caching layer. Use {@link java.time.format.DateTimeFormatter#withZone(java.time.ZoneId)}
@@ -62,10 +75,10 @@ public class DFSCache {
       public Key withTimeZone(final DateTimeZone dtz, final Locale locale) {
          DateTimeZone checkZone = dtz != null ? dtz : this.timeZone;
          Locale checkLocale = locale != null ? locale : this.locale;
-         if(checkZone.equals(timeZone) && checkLocale.equals(locale)) {
+         if(checkZone.equals(timeZone) && checkLocale.equals(this.locale)) {
             return this;
          }
-         return new Key(dtz, locale);
+         return new Key(checkZone, checkLocale);
       }
 
       /**
@@ -78,7 +91,7 @@ public class DFSCache {
          if(checkZone.equals(timeZone)) {
             return this;
          }
-         return new Key(dtz, locale);
+         return new Key(checkZone, locale);
       }
 
       /**
@@ -88,10 +101,10 @@ public class DFSCache {
        */
       public Key withLocale(final Locale locale) {
          Locale checkLocale = locale != null ? locale : this.locale;
-         if(checkLocale.equals(locale)) {
+         if(checkLocale.equals(this.locale)) {
             return this;
          }
-         return new Key(timeZone, locale);
+         return new Key(timeZone, checkLocale);
       }
 
       @Override
@@ -133,15 +146,7 @@ public class DFSCache {
     */
    public DFSCache(final DateFormatSet defaultSet) {
       this.defaultSet = defaultSet;
-      this.defaultKey = new Key(defaultSet.timeZone, defaultSet.locale);
-      this.dfsCache = CacheBuilder.newBuilder()
-              .concurrencyLevel(4)
-              .build(new CacheLoader<Key, DateFormatSet>() {
-                 @Override
-                 public DateFormatSet load(final Key key) {
-                    return defaultSet.withTimeZone(key.timeZone, key.locale);
-                 }
-              });
+      load(defaultSet.timeZone, defaultSet.locale);
    }
 
    /**
@@ -149,13 +154,66 @@ public class DFSCache {
     */
    public static final DFSCache DEFAULT = new DFSCache(DateFormatSet.DEFAULT);
 
+   /**
+    * Builds sets for every combination of time zones and locales.
+    * @param timeZones The time zones.
+    * @param locales The locales.
+    * @return The number of sets built.
+    */
+   public int preload(final Collection<DateTimeZone> timeZones, final Collection<Locale> locales) {
+      int count = 0;
+      for(DateTimeZone dtz : timeZones) {
+         for(Locale locale : locales) {
+            if(cached(dtz, locale) == null) {
+               load(dtz, locale);
+               count++;
+            }
+         }
+      }
+      return count;
+   }
+
+   /**
+    * Builds sets for every combination of time zones and locales in configuration.
+    * <ul>
+    *    <li>{@code timeZones} - A comma or space-separated list of time zone ids.</li>
+    *    <li>{@code locales} - A comma or space-separated list of IETF BCP 47 language tags.</li>
+    * </ul>
+    * <p>
+    * If either property is unspecified, the time zone or locale of the default set is used.
+    * </p>
+    * @param props The properties.
+    * @return The number of sets built.
+    * @throws IllegalArgumentException if a time zone id is not recognized.
+    */
+   public int preload(final Properties props) throws IllegalArgumentException {
+
+      List<DateTimeZone> timeZones = new ArrayList<>();
+      for(String id : LIST_SPLITTER.split(Strings.nullToEmpty(props.getProperty("timeZones")))) {
+         timeZones.add(DateTimeZone.forID(id));
+      }
+      if(timeZones.isEmpty()) {
+         timeZones.add(defaultSet.timeZone);
+      }
+
+      List<Locale> locales = new ArrayList<>();
+      for(String tag : LIST_SPLITTER.split(Strings.nullToEmpty(props.getProperty("locales")))) {
+         locales.add(Locale.forLanguageTag(tag));
+      }
+      if(locales.isEmpty()) {
+         locales.add(defaultSet.locale);
+      }
+
+      return preload(timeZones, locales);
+   }
+
    /**
     * Gets a new set with a pre-built key.
     * @param key The key.
     * @return The date format set.
     */
    public DateFormatSet forKey(final Key key) {
-      return dfsCache.getUnchecked(key);
+      return withTimeZone(key.timeZone, key.locale);
    }
 
    /**
@@ -165,7 +223,10 @@ public class DFSCache {
     * @return The date format set with time zone and locale changed.
     */
    public DateFormatSet withTimeZone(final DateTimeZone dtz, final Locale locale) {
-      return dfsCache.getUnchecked(defaultKey.withTimeZone(dtz, locale));
+      DateTimeZone checkZone = dtz != null ? dtz : defaultSet.timeZone;
+      Locale checkLocale = locale != null ? locale : defaultSet.locale;
+      DateFormatSet formatSet = cached(checkZone, checkLocale);
+      return formatSet != null ? formatSet : load(checkZone, checkLocale);
    }
 
    /**
@@ -184,7 +245,7 @@ public class DFSCache {
     * @return The date format set with time zone changed.
     */
    public DateFormatSet withTimeZone(final DateTimeZone dtz) {
-      return dfsCache.getUnchecked(defaultKey.withTimeZone(dtz));
+      return withTimeZone(dtz, null);
    }
 
    /**
@@ -202,7 +263,7 @@ public class DFSCache {
     * @return The date format set with locale changed.
     */
    public DateFormatSet withLocale(final Locale locale) {
-      return dfsCache.getUnchecked(defaultKey.withLocale(locale));
+      return withTimeZone((DateTimeZone)null, locale);
    }
 
    /**
@@ -239,19 +300,76 @@ public class DFSCache {
       return date.formatSet == formatSet ? date : new FormattedDate(date.getTime(), formatSet);
    }
 
+   /**
+    * Gets a cached set without locking or allocation.
+    * @param dtz The time zone.
+    * @param locale The locale.
+    * @return The set or {@code null} if not cached.
+    */
+   private DateFormatSet cached(final DateTimeZone dtz, final Locale locale) {
+      Integer zoneId = zoneIds.get(dtz);
+      Integer localeId = localeIds.get(locale);
+      if(zoneId == null || localeId == null) {
+         return null;
+      }
+      DateFormatSet[][] sets = this.sets;
+      if(zoneId >= sets.length) {
+         return null;
+      }
+      DateFormatSet[] localeSets = sets[zoneId];
+      return localeSets != null && localeId < localeSets.length ? localeSets[localeId] : null;
+   }
+
+   /**
+    * Builds and caches a set, assigning ids to the time zone and locale if required.
+    * @param dtz The time zone.
+    * @param locale The locale.
+    * @return The set.
+    */
+   private synchronized DateFormatSet load(final DateTimeZone dtz, final Locale locale) {
+
+      DateFormatSet formatSet = cached(dtz, locale);
+      if(formatSet != null) {
+         return formatSet;
+      }
+
+      formatSet = defaultSet.withTimeZone(dtz, locale);
+
+      final int zoneId = zoneIds.computeIfAbsent(dtz, k -> zoneIds.size());
+      final int localeId = localeIds.computeIfAbsent(locale, k -> localeIds.size());
+
+      DateFormatSet[][] currSets = this.sets;
+      DateFormatSet[][] newSets = Arrays.copyOf(currSets, Math.max(currSets.length, zoneId + 1));
+      DateFormatSet[] currLocaleSets = newSets[zoneId] != null ? newSets[zoneId] : new DateFormatSet[0];
+      DateFormatSet[] newLocaleSets = Arrays.copyOf(currLocaleSets, Math.max(currLocaleSets.length, localeId + 1));
+      newLocaleSets[localeId] = formatSet;
+      newSets[zoneId] = newLocaleSets;
+      this.sets = newSets;
+      return formatSet;
+   }
+
+   /**
+    * Splits lists separated by comma or space.
+    */
+   private static final Splitter LIST_SPLITTER = Splitter.onPattern("[,\\s]+").omitEmptyStrings().trimResults();
+
    /**
     * The default date format set.
     */
    public final DateFormatSet defaultSet;
 
    /**
-    * The default key.
+    * Time zone vs id.
     */
-   private final Key defaultKey;
+   private final ConcurrentMap<DateTimeZone, Integer> zoneIds = new ConcurrentHashMap<>();
 
    /**
-    * The cache.
+    * Locale vs id.
     */
-   private final LoadingCache<Key, DateFormatSet> dfsCache;
+   private final ConcurrentMap<Locale, Integer> localeIds = new ConcurrentHashMap<>();
 
+   /**
+    * Sets indexed by time zone id, then locale id.
+    */
+   private volatile DateFormatSet[][] sets = new DateFormatSet[0][];
 }
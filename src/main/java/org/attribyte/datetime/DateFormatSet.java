@@ -23,21 +23,27 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.stream.LongStream;
 
 /**
  * A collection of named date/time formatters built on Joda-Time.
  * @deprecated This class is built on Joda-Time, which is in maintenance mode.
+ * A {@code java.time} equivalent with the same model is {@link org.attribyte.time.DateFormatSet}.
  * Use {@link java.time.format.DateTimeFormatter} from the {@code java.time} API instead.
  * Standard formatters are available via {@link java.time.format.DateTimeFormatter#ofLocalizedDate(java.time.format.FormatStyle)},
  * {@link java.time.format.DateTimeFormatter#ofLocalizedTime(java.time.format.FormatStyle)}, and
@@ -130,8 +136,76 @@ public class DateFormatSet {
        * A set of aliases (alternative names).
        */
       public final ImmutableSet<String> aliases;
+
+      /**
+       * Gets the finest field printed, determined on first use.
+       * @return The resolution in milliseconds: a day (date-only), a second, or one.
+       */
+      long resolution() {
+         long resolution = resolutionMillis;
+         if(resolution == 0L) {
+            resolution = DateFormatSet.resolution(formatter);
+            resolutionMillis = resolution;
+         }
+         return resolution;
+      }
+
+      /**
+       * The resolution, or zero if not yet determined.
+       */
+      private volatile long resolutionMillis;
+   }
+
+   /**
+    * Determines the finest field a formatter prints by printing probe times.
+    * <p>
+    * If times throughout a (non-transition) local day print the same, the formatter is date-only.
+    * If times within a second print the same, it prints seconds. Otherwise, it prints milliseconds.
+    * </p>
+    * @param formatter The formatter.
+    * @return The resolution in milliseconds: a day, a second, or one.
+    */
+   static long resolution(final DateTimeFormatter formatter) {
+      final DateTimeZone zone = formatter.getZone() != null ? formatter.getZone() : DateTimeZone.getDefault();
+      long resolution = ONE_DAY_MILLIS;
+      for(LocalDate day : PROBE_DAYS) {
+         final long start = day.toDateTimeAtStartOfDay(zone).getMillis();
+         final String startStr = formatter.print(start);
+         for(long offset : MILLIS_PROBE_OFFSETS) {
+            if(!formatter.print(start + offset).equals(startStr)) {
+               return 1L;
+            }
+         }
+         if(resolution == ONE_DAY_MILLIS) {
+            for(long offset : DAY_PROBE_OFFSETS) {
+               if(!formatter.print(start + offset).equals(startStr)) {
+                  resolution = 1000L;
+                  break;
+               }
+            }
+         }
+      }
+      return resolution;
    }
 
+   /**
+    * Local days used to probe formatters, in and out of daylight saving time.
+    */
+   private static final ImmutableList<LocalDate> PROBE_DAYS =
+           ImmutableList.of(new LocalDate(2018, 1, 15), new LocalDate(2018, 7, 16));
+
+   /**
+    * Offsets within the first second of a day.
+    */
+   private static final long[] MILLIS_PROBE_OFFSETS = {1L, 10L, 100L, 999L};
+
+   /**
+    * Offsets, at least one second, within a day.
+    */
+   private static final long[] DAY_PROBE_OFFSETS = {
+           1000L, 59000L, 60000L, 3540000L, 3600000L, 12L * 3600000L, 13L * 3600000L, 23L * 3600000L + 3599000L
+   };
+
    /**
     * Creates a set with the default formatters.
     */
@@ -176,15 +250,20 @@ public class DateFormatSet {
    /**
     * Creates a list that contains custom formatters and default formatters
     * that do not conflict.
+    * <p>
+    * Patterns are compiled with {@link FormatRegistry#compile(String)}, so each
+    * distinct pattern is parsed once.
+    * </p>
     * @param props The properties.
     * @return The list of formatters.
+    * @throws IllegalArgumentException on invalid pattern.
     */
-   private static List<NamedFormatter> fromProperties(Properties props) {
+   private static List<NamedFormatter> fromProperties(Properties props) throws IllegalArgumentException {
 
       List<NamedFormatter> formatters = Lists.newArrayList();
       for(String name : props.stringPropertyNames()) {
          String pattern = props.getProperty(name);
-         DateTimeFormatter formatter = DateTimeFormat.forPattern(pattern);
+         DateTimeFormatter formatter = FormatRegistry.compile(pattern);
          formatters.add(new NamedFormatter(name, formatter, ImmutableSet.of()));
       }
 
@@ -241,10 +320,10 @@ public class DateFormatSet {
    public DateFormatSet withTimeZone(final DateTimeZone dtz, final Locale locale) {
       DateTimeZone checkZone = dtz != null ? dtz : DateTimeZone.getDefault();
       Locale checkLocale = locale != null ? locale : Locale.getDefault();
-      if(checkZone.equals(timeZone) && checkLocale.equals(locale)) {
+      if(checkZone.equals(timeZone) && checkLocale.equals(this.locale)) {
          return this;
       }
-      return new DateFormatSet(uniqueFormatters, dtz, locale);
+      return new DateFormatSet(uniqueFormatters, checkZone, checkLocale);
    }
 
    /**
@@ -286,10 +365,10 @@ public class DateFormatSet {
     */
    public DateFormatSet withLocale(final Locale locale) {
       Locale checkLocale = locale != null ? locale : Locale.getDefault();
-      if(checkLocale.equals(locale)) {
+      if(checkLocale.equals(this.locale)) {
          return this;
       }
-      return new DateFormatSet(uniqueFormatters, timeZone, locale);
+      return new DateFormatSet(uniqueFormatters, timeZone, checkLocale);
    }
 
    /**
@@ -311,6 +390,161 @@ public class DateFormatSet {
       return formatter(format.name);
    }
 
+   /**
+    * Formats an array of timestamps, separated by a delimiter.
+    * <p>
+    * When consecutive timestamps fall in the same second (or the same local day, for
+    * date-only formatters) and the formatter does not print milliseconds, the previously
+    * formatted value is appended again without recomputing calendar fields.
+    * </p>
+    * @param timestamps The timestamps.
+    * @param format The format.
+    * @param delimiter The delimiter appended between formatted values.
+    * @param out The output.
+    * @throws IOException on write error.
+    * @throws IllegalArgumentException if this set has no formatter for the format.
+    */
+   public void formatAll(final long[] timestamps, final Format format,
+                         final CharSequence delimiter, final Appendable out) throws IOException {
+      formatAll(timestamps, 0, timestamps.length, format, delimiter, out);
+   }
+
+   /**
+    * Formats a range of an array of timestamps, separated by a delimiter.
+    * @param timestamps The timestamps.
+    * @param offset The offset of the first timestamp.
+    * @param length The number of timestamps.
+    * @param format The format.
+    * @param delimiter The delimiter appended between formatted values.
+    * @param out The output.
+    * @throws IOException on write error.
+    * @throws IllegalArgumentException if this set has no formatter for the format.
+    */
+   public void formatAll(final long[] timestamps, final int offset, final int length, final Format format,
+                         final CharSequence delimiter, final Appendable out) throws IOException {
+      BulkPrinter printer = new BulkPrinter(format);
+      for(int i = offset; i < offset + length; i++) {
+         if(i > offset) {
+            out.append(delimiter);
+         }
+         printer.print(timestamps[i], out);
+      }
+   }
+
+   /**
+    * Formats a stream of timestamps, separated by a delimiter.
+    * @param timestamps The timestamps.
+    * @param format The format.
+    * @param delimiter The delimiter appended between formatted values.
+    * @param out The output.
+    * @throws IOException on write error.
+    * @throws IllegalArgumentException if this set has no formatter for the format.
+    */
+   public void formatAll(final LongStream timestamps, final Format format,
+                         final CharSequence delimiter, final Appendable out) throws IOException {
+      BulkPrinter printer = new BulkPrinter(format);
+      PrimitiveIterator.OfLong iter = timestamps.iterator();
+      boolean first = true;
+      while(iter.hasNext()) {
+         if(!first) {
+            out.append(delimiter);
+         } else {
+            first = false;
+         }
+         printer.print(iter.nextLong(), out);
+      }
+   }
+
+   /**
+    * Formats an array of timestamps to a string, separated by a delimiter.
+    * @param timestamps The timestamps.
+    * @param format The format.
+    * @param delimiter The delimiter appended between formatted values.
+    * @return The formatted string.
+    * @throws IllegalArgumentException if this set has no formatter for the format.
+    */
+   public String formatAll(final long[] timestamps, final Format format, final CharSequence delimiter) {
+      StringBuilder buf = new StringBuilder(timestamps.length * 24);
+      try {
+         formatAll(timestamps, format, delimiter, buf);
+      } catch(IOException ioe) {
+         throw new UncheckedIOException(ioe); //Not thrown by StringBuilder
+      }
+      return buf.toString();
+   }
+
+   /**
+    * Gets the resolution of the formatter for a format: the finest field it prints.
+    * @param format The format.
+    * @return The resolution in milliseconds: a day (date-only), a second, or one.
+    */
+   long resolution(final Format format) {
+      NamedFormatter formatter = formatters.get(format.name);
+      return formatter != null ? formatter.resolution() : 1L;
+   }
+
+   /**
+    * Gets the local day (for date-only formatters), epoch second or timestamp
+    * that determines the formatted value for a timestamp.
+    * @param timestamp The timestamp.
+    * @param format The format.
+    * @return The day, second or timestamp.
+    */
+   long bucket(final long timestamp, final Format format) {
+      final long resolution = resolution(format);
+      return resolution == ONE_DAY_MILLIS ?
+              Math.floorDiv(timestamp + timeZone.getOffset(timestamp), ONE_DAY_MILLIS) :
+              Math.floorDiv(timestamp, resolution);
+   }
+
+   private static final long ONE_DAY_MILLIS = 24L * 3600L * 1000L;
+
+   /**
+    * Prints a sequence of timestamps with one format, reusing the previous value
+    * when consecutive timestamps share a day or second.
+    */
+   private final class BulkPrinter {
+
+      BulkPrinter(final Format format) {
+         this.format = format;
+         switch(format) {
+            case AGO:
+            case DAYS_AGO:
+               this.formatter = null;
+               break;
+            default:
+               this.formatter = formatter(format);
+               if(this.formatter == null) {
+                  throw new IllegalArgumentException(String.format("No formatter for '%s'", format.name));
+               }
+         }
+      }
+
+      void print(final long timestamp, final Appendable out) throws IOException {
+         switch(format) {
+            case AGO:
+               out.append(RelativeTime.DEFAULT.ago(timestamp));
+               return;
+            case DAYS_AGO:
+               out.append(RelativeTime.DEFAULT.daysAgo(timestamp, timeZone));
+               return;
+         }
+
+         final long bucket = bucket(timestamp, format);
+         if(lastBucket != bucket || buf.length() == 0) {
+            buf.setLength(0);
+            formatter.printTo(buf, timestamp);
+            lastBucket = bucket;
+         }
+         out.append(buf);
+      }
+
+      private final Format format;
+      private final DateTimeFormatter formatter;
+      private final StringBuilder buf = new StringBuilder(32);
+      private long lastBucket;
+   }
+
    /**
     * An immutable list of the default formatters.
     */
@@ -378,5 +612,5 @@ public class DateFormatSet {
    /**
     * A list of the unique formatters.
     */
-   private final ImmutableList<NamedFormatter> uniqueFormatters;
+   final ImmutableList<NamedFormatter> uniqueFormatters;
 }
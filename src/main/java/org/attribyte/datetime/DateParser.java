@@ -0,0 +1,670 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.datetime;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.joda.time.Chronology;
+import org.joda.time.DateTimeZone;
+import org.joda.time.MutableDateTime;
+import org.joda.time.chrono.ISOChronology;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses dates in any format registered with a {@link DateFormatSet}, without throwing exceptions.
+ * <p>
+ * ISO-8601 and RFC-1123 dates are parsed directly from the input characters, without allocation.
+ * Other input is matched against formatters from the set, chosen from a table indexed
+ * by the kind of first character (digit, letter, other) and the input length. Only formatters
+ * that fully determine a date (for example, not time-only or day-of-week formats) are
+ * registered in the table. Any formatter may be used by name.
+ * </p>
+ * <p>
+ * Input without a time zone or offset is interpreted in the time zone of the set.
+ * </p>
+ * @deprecated This class is part of the Joda-Time based datetime package.
+ * Use {@link java.time.format.DateTimeFormatter} from the {@code java.time} API instead.
+ */
+@Deprecated
+public class DateParser {
+
+   /**
+    * The value returned when input could not be parsed ({@code Long.MIN_VALUE}).
+    */
+   public static final long INVALID = Long.MIN_VALUE;
+
+   private static final long ONE_DAY_MILLIS = 24L * 3600L * 1000L;
+   private static final int INVALID_OFFSET = Integer.MIN_VALUE;
+   private static final int MAX_DISPATCH_LENGTH = 64;
+   private static final int DIGIT = 0;
+   private static final int LETTER = 1;
+   private static final int OTHER = 2;
+   private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+   private static final String[] MONTHS = {
+           "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"
+   };
+
+   /**
+    * The default parser created with {@code DateFormatSet.DEFAULT}.
+    */
+   public static final DateParser DEFAULT = new DateParser(DateFormatSet.DEFAULT);
+
+   /**
+    * Creates a parser.
+    * @param formatSet The format set.
+    */
+   public DateParser(final DateFormatSet formatSet) {
+      this.formatSet = formatSet;
+      this.timeZone = formatSet.timeZone;
+      this.chronology = ISOChronology.getInstance(timeZone);
+      this.defaultInstant = timeZone.convertLocalToUTC(epochDay(2000, 1, 1) * ONE_DAY_MILLIS, false);
+      this.isoParser = ISODateTimeFormat.dateTimeParser().withZone(timeZone);
+      this.parsers = Sets.newIdentityHashSet();
+      this.dispatch = buildDispatch(formatSet);
+   }
+
+   /**
+    * Parses a date.
+    * @param text The text, with optional leading and trailing whitespace.
+    * @return The timestamp or {@link #INVALID} if the text is not a recognized date.
+    */
+   public long parse(final CharSequence text) {
+
+      if(text == null) {
+         return INVALID;
+      }
+
+      int start = 0;
+      int end = text.length();
+      while(start < end && Character.isWhitespace(text.charAt(start))) start++;
+      while(end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+      if(start == end) {
+         return INVALID;
+      }
+
+      long millis = parseISO(text, start, end);
+      if(millis != INVALID) {
+         return millis;
+      }
+
+      millis = parseRFC1123(text, start, end);
+      if(millis != INVALID) {
+         return millis;
+      }
+
+      final int charClass = charClass(text.charAt(start));
+      final int length = end - start;
+      final DateTimeFormatter[] candidates = length < MAX_DISPATCH_LENGTH ? dispatch[charClass][length] : null;
+      final String str = text.subSequence(start, end).toString();
+      if(candidates != null) {
+         for(DateTimeFormatter formatter : candidates) {
+            millis = parse(formatter, str);
+            if(millis != INVALID) {
+               return millis;
+            }
+         }
+      }
+
+      return charClass != LETTER ? parse(isoParser, str) : INVALID;
+   }
+
+   /**
+    * Parses a date with a named formatter.
+    * @param text The text.
+    * @param formatName The formatter name or alias.
+    * @return The timestamp or {@link #INVALID} if the text does not match the format,
+    * or the name is not a formatter in the set.
+    */
+   public long parse(final CharSequence text, final String formatName) {
+      DateTimeFormatter formatter = formatSet.formatter(formatName);
+      return formatter != null && text != null && parsers.contains(formatter) ?
+              parse(formatter, text.toString().trim()) : INVALID;
+   }
+
+   /**
+    * Parses a date with a format.
+    * @param text The text.
+    * @param format The format.
+    * @return The timestamp or {@link #INVALID} if the text does not match the format.
+    */
+   public long parse(final CharSequence text, final Format format) {
+      return parse(text, format.name);
+   }
+
+   /**
+    * Parses the entire string with a formatter.
+    * @param formatter The formatter.
+    * @param str The string.
+    * @return The timestamp or {@link #INVALID}.
+    */
+   private long parse(final DateTimeFormatter formatter, final String str) {
+      MutableDateTime instant = new MutableDateTime(defaultInstant, chronology);
+      try {
+         return formatter.parseInto(instant, str, 0) == str.length() ? instant.getMillis() : INVALID;
+      } catch(IllegalArgumentException iae) {
+         return INVALID; //Field value out of range
+      }
+   }
+
+   /**
+    * Parses ISO-8601 dates like {@code 2018-04-01}, {@code 2018-04-01T13:04},
+    * {@code 2018-04-01T13:04:05.123Z}, and {@code 2018-04-01 13:04:05-04:00}.
+    * @param text The text.
+    * @param start The start index.
+    * @param end The end index (exclusive).
+    * @return The timestamp or {@link #INVALID}.
+    */
+   private long parseISO(final CharSequence text, final int start, final int end) {
+
+      if(end - start < 10 || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') {
+         return INVALID;
+      }
+
+      final int year = digits(text, start, 4);
+      final int month = digits(text, start + 5, 2);
+      final int day = digits(text, start + 8, 2);
+      if(!isValidDate(year, month, day)) {
+         return INVALID;
+      }
+
+      final long epochDay = epochDay(year, month, day);
+      int pos = start + 10;
+      if(pos == end) {
+         return timeZone.convertLocalToUTC(epochDay * ONE_DAY_MILLIS, false);
+      }
+
+      char sep = text.charAt(pos);
+      if(sep != 'T' && sep != 't' && sep != ' ') {
+         return INVALID;
+      }
+      pos++;
+
+      if(end - pos < 5 || text.charAt(pos + 2) != ':') {
+         return INVALID;
+      }
+      final int hour = digits(text, pos, 2);
+      final int minute = digits(text, pos + 3, 2);
+      if(hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+         return INVALID;
+      }
+      pos += 5;
+
+      int second = 0;
+      int millis = 0;
+      if(pos < end && text.charAt(pos) == ':') {
+         if(pos + 3 > end) {
+            return INVALID;
+         }
+         second = digits(text, pos + 1, 2);
+         if(second < 0 || second > 59) {
+            return INVALID;
+         }
+         pos += 3;
+         if(pos < end && (text.charAt(pos) == '.' || text.charAt(pos) == ',')) {
+            pos++;
+            int fractionDigits = 0;
+            while(pos < end && isDigit(text.charAt(pos))) {
+               if(fractionDigits < 3) {
+                  millis = millis * 10 + (text.charAt(pos) - '0');
+               }
+               fractionDigits++;
+               pos++;
+            }
+            if(fractionDigits == 0) {
+               return INVALID;
+            }
+            for(int i = fractionDigits; i < 3; i++) {
+               millis *= 10;
+            }
+         }
+      }
+
+      final long localMillis = epochDay * ONE_DAY_MILLIS + hour * 3600000L + minute * 60000L + second * 1000L + millis;
+
+      if(pos == end) {
+         return timeZone.convertLocalToUTC(localMillis, false);
+      }
+
+      final int offsetMillis = parseOffset(text, pos, end);
+      return offsetMillis != INVALID_OFFSET ? localMillis - offsetMillis : INVALID;
+   }
+
+   /**
+    * Parses RFC-1123 dates like {@code Sun, 06 Nov 1994 08:49:37 GMT}.
+    * <p>
+    * The day name is optional, the day may be one or two digits, seconds are optional
+    * and the zone may be {@code GMT}, {@code UT}, {@code UTC}, {@code Z}, a US zone
+    * abbreviation or a numeric offset like {@code -0500}.
+    * </p>
+    * @param text The text.
+    * @param start The start index.
+    * @param end The end index (exclusive).
+    * @return The timestamp or {@link #INVALID}.
+    */
+   private long parseRFC1123(final CharSequence text, final int start, final int end) {
+
+      int pos = start;
+      if(end - pos < 18) {
+         return INVALID;
+      }
+
+      if(isLetter(text.charAt(pos))) {
+         if(!isLetter(text.charAt(pos + 1)) || !isLetter(text.charAt(pos + 2)) || text.charAt(pos + 3) != ',') {
+            return INVALID;
+         }
+         pos += 4;
+         while(pos < end && text.charAt(pos) == ' ') pos++;
+      }
+
+      int day;
+      if(pos + 2 <= end && isDigit(text.charAt(pos)) && pos + 1 < end && isDigit(text.charAt(pos + 1))) {
+         day = digits(text, pos, 2);
+         pos += 2;
+      } else if(pos < end && isDigit(text.charAt(pos))) {
+         day = text.charAt(pos) - '0';
+         pos += 1;
+      } else {
+         return INVALID;
+      }
+
+      if(end - pos < 15 || text.charAt(pos) != ' ' || text.charAt(pos + 4) != ' ') {
+         return INVALID;
+      }
+
+      final int month = month(text, pos + 1);
+      pos += 5;
+      final int year = digits(text, pos, 4);
+      if(!isValidDate(year, month, day) || text.charAt(pos + 4) != ' ') {
+         return INVALID;
+      }
+      pos += 5;
+
+      if(end - pos < 5 || text.charAt(pos + 2) != ':') {
+         return INVALID;
+      }
+      final int hour = digits(text, pos, 2);
+      final int minute = digits(text, pos + 3, 2);
+      if(hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+         return INVALID;
+      }
+      pos += 5;
+
+      int second = 0;
+      if(pos < end && text.charAt(pos) == ':') {
+         second = pos + 3 <= end ? digits(text, pos + 1, 2) : -1;
+         if(second < 0 || second > 59) {
+            return INVALID;
+         }
+         pos += 3;
+      }
+
+      if(pos >= end || text.charAt(pos) != ' ') {
+         return INVALID;
+      }
+      pos++;
+
+      final int offsetMillis = parseRFCZone(text, pos, end);
+      if(offsetMillis == INVALID_OFFSET) {
+         return INVALID;
+      }
+
+      return epochDay(year, month, day) * ONE_DAY_MILLIS +
+              hour * 3600000L + minute * 60000L + second * 1000L - offsetMillis;
+   }
+
+   /**
+    * Parses an ISO-8601 offset: {@code Z}, {@code +hh:mm}, {@code +hhmm} or {@code +hh}.
+    * @param text The text.
+    * @param pos The start position.
+    * @param end The end index (exclusive).
+    * @return The offset in milliseconds or {@code INVALID_OFFSET}.
+    */
+   private static int parseOffset(final CharSequence text, final int pos, final int end) {
+
+      final char c = text.charAt(pos);
+      if(c == 'Z' || c == 'z') {
+         return pos + 1 == end ? 0 : INVALID_OFFSET;
+      }
+
+      if(c != '+' && c != '-') {
+         return INVALID_OFFSET;
+      }
+
+      final int sign = c == '-' ? -1 : 1;
+      final int remaining = end - pos - 1;
+      final int hours;
+      final int minutes;
+      switch(remaining) {
+         case 2:
+            hours = digits(text, pos + 1, 2);
+            minutes = 0;
+            break;
+         case 4:
+            hours = digits(text, pos + 1, 2);
+            minutes = digits(text, pos + 3, 2);
+            break;
+         case 5:
+            if(text.charAt(pos + 3) != ':') {
+               return INVALID_OFFSET;
+            }
+            hours = digits(text, pos + 1, 2);
+            minutes = digits(text, pos + 4, 2);
+            break;
+         default:
+            return INVALID_OFFSET;
+      }
+
+      if(hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+         return INVALID_OFFSET;
+      }
+
+      return sign * (hours * 3600000 + minutes * 60000);
+   }
+
+   /**
+    * Parses an RFC-822/1123 zone.
+    * @param text The text.
+    * @param pos The start position.
+    * @param end The end index (exclusive).
+    * @return The offset in milliseconds or {@code INVALID_OFFSET}.
+    */
+   private static int parseRFCZone(final CharSequence text, final int pos, final int end) {
+
+      final int length = end - pos;
+      final char c = text.charAt(pos);
+
+      if(c == '+' || c == '-') {
+         return length == 5 ? parseOffset(text, pos, end) : INVALID_OFFSET;
+      }
+
+      switch(length) {
+         case 1:
+            return c == 'Z' ? 0 : INVALID_OFFSET;
+         case 2:
+            return c == 'U' && text.charAt(pos + 1) == 'T' ? 0 : INVALID_OFFSET;
+         case 3:
+            final char c1 = text.charAt(pos + 1);
+            final char c2 = text.charAt(pos + 2);
+            if(c == 'G' && c1 == 'M' && c2 == 'T') return 0;
+            if(c == 'U' && c1 == 'T' && c2 == 'C') return 0;
+            if(c2 != 'T') return INVALID_OFFSET;
+            final int standardHours;
+            switch(c) {
+               case 'E': standardHours = -5; break;
+               case 'C': standardHours = -6; break;
+               case 'M': standardHours = -7; break;
+               case 'P': standardHours = -8; break;
+               default: return INVALID_OFFSET;
+            }
+            switch(c1) {
+               case 'S': return standardHours * 3600000;
+               case 'D': return (standardHours + 1) * 3600000;
+               default: return INVALID_OFFSET;
+            }
+         default:
+            return INVALID_OFFSET;
+      }
+   }
+
+   /**
+    * Gets the month number for a case-insensitive three-letter English month abbreviation.
+    * @param text The text.
+    * @param pos The position of the first character.
+    * @return The month (1-12) or {@code -1}.
+    */
+   private static int month(final CharSequence text, final int pos) {
+      final char c0 = Character.toLowerCase(text.charAt(pos));
+      final char c1 = Character.toLowerCase(text.charAt(pos + 1));
+      final char c2 = Character.toLowerCase(text.charAt(pos + 2));
+      for(int i = 0; i < MONTHS.length; i++) {
+         String month = MONTHS[i];
+         if(month.charAt(0) == c0 && month.charAt(1) == c1 && month.charAt(2) == c2) {
+            return i + 1;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Parses a fixed number of decimal digits.
+    * @param text The text.
+    * @param pos The start position.
+    * @param count The number of digits.
+    * @return The value or {@code -1} if any character is not a digit.
+    */
+   private static int digits(final CharSequence text, final int pos, final int count) {
+      int value = 0;
+      for(int i = pos; i < pos + count; i++) {
+         char c = text.charAt(i);
+         if(!isDigit(c)) {
+            return -1;
+         }
+         value = value * 10 + (c - '0');
+      }
+      return value;
+   }
+
+   private static boolean isDigit(final char c) {
+      return c >= '0' && c <= '9';
+   }
+
+   private static boolean isLetter(final char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+   }
+
+   /**
+    * Determine if year, month and day are a valid ISO date.
+    * @param year The year.
+    * @param month The month (1-12).
+    * @param day The day of month.
+    * @return Is the date valid?
+    */
+   private static boolean isValidDate(final int year, final int month, final int day) {
+      if(year < 0 || month < 1 || month > 12 || day < 1) {
+         return false;
+      }
+      if(month == 2 && day == 29) {
+         return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+      }
+      return day <= DAYS_IN_MONTH[month - 1];
+   }
+
+   /**
+    * Gets the number of days since 1970-01-01 for an ISO date.
+    * @param year The year.
+    * @param month The month (1-12).
+    * @param day The day of month.
+    * @return The day number.
+    */
+   private static long epochDay(final int year, final int month, final int day) {
+      final long y = month <= 2 ? year - 1 : year;
+      final long era = Math.floorDiv(y, 400L);
+      final long yearOfEra = y - era * 400L;
+      final long dayOfYear = (153L * ((month + 9) % 12) + 2L) / 5L + day - 1L;
+      final long dayOfEra = yearOfEra * 365L + yearOfEra / 4L - yearOfEra / 100L + dayOfYear;
+      return era * 146097L + dayOfEra - 719468L;
+   }
+
+   /**
+    * Gets the dispatch class for the first character of input.
+    * @param c The character.
+    * @return The class.
+    */
+   private static int charClass(final char c) {
+      if(isDigit(c)) {
+         return DIGIT;
+      } else if(Character.isLetter(c)) {
+         return LETTER;
+      } else {
+         return OTHER;
+      }
+   }
+
+   /**
+    * Builds the dispatch table by printing sample dates with each formatter in the set.
+    * @param formatSet The format set.
+    * @return The table, indexed by first character class, then length.
+    */
+   private DateTimeFormatter[][][] buildDispatch(final DateFormatSet formatSet) {
+
+      final long[] samples = sampleTimes(formatSet.timeZone);
+
+      @SuppressWarnings({"unchecked", "rawtypes"})
+      List<DateTimeFormatter>[][] lists = new List[3][MAX_DISPATCH_LENGTH];
+
+      for(DateFormatSet.NamedFormatter namedFormatter : formatSet.uniqueFormatters) {
+         DateTimeFormatter formatter = formatSet.formatter(namedFormatter.name);
+         if(formatter == null || !canParse(formatter, samples[0])) {
+            continue;
+         }
+         parsers.add(formatter);
+         if(!isDateParser(formatter, samples)) {
+            continue;
+         }
+         for(long sample : samples) {
+            String str = formatter.print(sample);
+            if(str.isEmpty() || str.length() >= MAX_DISPATCH_LENGTH) {
+               continue;
+            }
+            int charClass = charClass(str.charAt(0));
+            List<DateTimeFormatter> list = lists[charClass][str.length()];
+            if(list == null) {
+               list = Lists.newArrayListWithExpectedSize(2);
+               lists[charClass][str.length()] = list;
+            }
+            if(!list.contains(formatter)) {
+               list.add(formatter);
+            }
+         }
+      }
+
+      DateTimeFormatter[][][] table = new DateTimeFormatter[3][MAX_DISPATCH_LENGTH][];
+      for(int i = 0; i < lists.length; i++) {
+         for(int j = 0; j < lists[i].length; j++) {
+            if(lists[i][j] != null) {
+               table[i][j] = lists[i][j].toArray(new DateTimeFormatter[0]);
+            }
+         }
+      }
+      return table;
+   }
+
+   /**
+    * Determine if a formatter can parse its own output.
+    * <p>
+    * Some formatters report they are parsers, but fail with an exception for all input
+    * (for example, styles that include a time zone name).
+    * </p>
+    * @param formatter The formatter.
+    * @param sample A sample timestamp.
+    * @return Can the formatter parse?
+    */
+   private boolean canParse(final DateTimeFormatter formatter, final long sample) {
+      if(!formatter.isParser()) {
+         return false;
+      }
+      try {
+         parse(formatter, formatter.print(sample));
+         return true;
+      } catch(RuntimeException re) {
+         return false;
+      }
+   }
+
+   /**
+    * Determine if a formatter recovers the local day for every sample.
+    * @param formatter The formatter.
+    * @param samples The sample timestamps.
+    * @return Does the formatter fully determine a date?
+    */
+   private boolean isDateParser(final DateTimeFormatter formatter, final long[] samples) {
+      for(long sample : samples) {
+         long parsed = parse(formatter, formatter.print(sample));
+         if(parsed == INVALID || localDay(parsed) != localDay(sample)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private long localDay(final long timestamp) {
+      return Math.floorDiv(timestamp + timeZone.getOffset(timestamp), ONE_DAY_MILLIS);
+   }
+
+   /**
+    * Creates sample times that cover variable-length fields (single/double digit days and hours,
+    * month and day names).
+    * @param timeZone The time zone.
+    * @return The sample timestamps.
+    */
+   private static long[] sampleTimes(final DateTimeZone timeZone) {
+      final int[] years = {2001, 2024};
+      final int[] days = {1, 7, 22};
+      final int[] hours = {0, 9, 13, 21};
+      long[] samples = new long[years.length * 12 * days.length * hours.length];
+      int index = 0;
+      for(int year : years) {
+         for(int month = 1; month <= 12; month++) {
+            for(int day : days) {
+               for(int hour : hours) {
+                  long local = epochDay(year, month, day) * ONE_DAY_MILLIS + hour * 3600000L + 34 * 60000L + 56000L;
+                  samples[index++] = timeZone.convertLocalToUTC(local, false);
+               }
+            }
+         }
+      }
+      return samples;
+   }
+
+   /**
+    * The format set.
+    */
+   private final DateFormatSet formatSet;
+
+   /**
+    * The time zone for input without zone or offset.
+    */
+   private final DateTimeZone timeZone;
+
+   /**
+    * The chronology used by formatter fallbacks.
+    */
+   private final Chronology chronology;
+
+   /**
+    * Midnight, January 1, 2000 in the time zone. Supplies values for fields not present in parsed input.
+    */
+   private final long defaultInstant;
+
+   /**
+    * The general ISO parser used when no registered formatter matches.
+    */
+   private final DateTimeFormatter isoParser;
+
+   /**
+    * The formatters in the set that can parse.
+    */
+   private final Set<DateTimeFormatter> parsers;
+
+   /**
+    * Formatters by first character class and length.
+    */
+   private final DateTimeFormatter[][][] dispatch;
+}
@@ -18,6 +18,7 @@ package org.attribyte.datetime;
 /**
  * An enumeration of all available formats.
  * @deprecated This enum is part of the Joda-Time based datetime package.
+ * A {@code java.time} equivalent with the same model is {@link org.attribyte.time.Format}.
  * Use {@link java.time.format.DateTimeFormatter} and {@link java.time.format.FormatStyle}
  * from the {@code java.time} API instead.
  */
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.datetime;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * A bounded cache of formatted strings keyed by truncated timestamp, format set and format.
+ * <p>
+ * The key granularity is determined by the finest field the set's formatter actually prints,
+ * including custom patterns. Date-only formatters are keyed by the local day in the format set's time zone,
+ * and formatters that print time, but not milliseconds, are keyed by second.
+ * Formatters that print milliseconds, and relative formats ({@link Format#AGO}, {@link Format#DAYS_AGO}),
+ * are never cached.
+ * </p>
+ * <p>
+ * Format sets are compared by identity, so sets should be obtained from a {@link DFSCache}.
+ * </p>
+ * @deprecated This class is part of the Joda-Time based datetime package.
+ * Use {@link java.time.format.DateTimeFormatter} from the {@code java.time} API instead.
+ */
+@Deprecated
+public class FormatCache {
+
+   /**
+    * A cache key.
+    */
+   private static final class Key {
+
+      Key(final long bucket, final DateFormatSet formatSet, final Format format) {
+         this.bucket = bucket;
+         this.formatSet = formatSet;
+         this.format = format;
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if(this == o) return true;
+         if(o == null || getClass() != o.getClass()) return false;
+         final Key key = (Key)o;
+         return bucket == key.bucket && formatSet == key.formatSet && format == key.format;
+      }
+
+      @Override
+      public int hashCode() {
+         int h = Long.hashCode(bucket);
+         h = 31 * h + System.identityHashCode(formatSet);
+         h = 31 * h + format.ordinal();
+         return h;
+      }
+
+      @Override
+      public String toString() {
+         return MoreObjects.toStringHelper(this)
+                 .add("bucket", bucket)
+                 .add("formatSet", formatSet)
+                 .add("format", format)
+                 .toString();
+      }
+
+      /**
+       * The local day or epoch second.
+       */
+      final long bucket;
+
+      /**
+       * The format set.
+       */
+      final DateFormatSet formatSet;
+
+      /**
+       * The format.
+       */
+      final Format format;
+   }
+
+   /**
+    * The default maximum number of cached strings.
+    */
+   public static final int DEFAULT_MAX_SIZE = 8192;
+
+   /**
+    * The default cache.
+    */
+   public static final FormatCache DEFAULT = new FormatCache(DEFAULT_MAX_SIZE);
+
+   /**
+    * Creates a cache.
+    * @param maxSize The maximum number of cached strings.
+    */
+   public FormatCache(final int maxSize) {
+      this.cache = CacheBuilder.newBuilder()
+              .maximumSize(maxSize)
+              .recordStats()
+              .build();
+   }
+
+   /**
+    * Formats a timestamp, returning a cached string if available.
+    * @param timestamp The timestamp.
+    * @param formatSet The format set.
+    * @param format The format.
+    * @return The formatted string.
+    */
+   public String format(final long timestamp, final DateFormatSet formatSet, final Format format) {
+
+      switch(format) {
+         case AGO:
+            return RelativeTime.DEFAULT.ago(timestamp);
+         case DAYS_AGO:
+            return RelativeTime.DEFAULT.daysAgo(timestamp, formatSet.timeZone);
+      }
+
+      if(formatSet.resolution(format) < 1000L) {
+         return formatSet.formatter(format).print(timestamp);
+      }
+
+      final Key key = new Key(formatSet.bucket(timestamp, format), formatSet, format);
+      String formatted = cache.getIfPresent(key);
+      if(formatted == null) {
+         formatted = formatSet.formatter(format).print(timestamp);
+         cache.put(key, formatted);
+      }
+      return formatted;
+   }
+
+   /**
+    * Gets the cache statistics, including hit rate.
+    * @return The statistics.
+    */
+   public CacheStats stats() {
+      return cache.stats();
+   }
+
+   /**
+    * Gets the approximate number of cached strings.
+    * @return The size.
+    */
+   public long size() {
+      return cache.size();
+   }
+
+   /**
+    * Removes all cached strings.
+    */
+   public void clear() {
+      cache.invalidateAll();
+   }
+
+   /**
+    * The cache.
+    */
+   private final Cache<Key, String> cache;
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.datetime;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A registry of date format sets configured from properties that may be replaced at runtime.
+ * <p>
+ * Each distinct pattern is compiled once and shared by every time zone and locale variant,
+ * and by every configuration that uses it. Variants are built on first use and cached.
+ * When new properties are loaded, the current configuration is replaced atomically.
+ * Variants for the new configuration are built as they are requested, not all at once.
+ * </p>
+ * @deprecated This class is part of the Joda-Time based datetime package.
+ * Use {@link java.time.format.DateTimeFormatter} from the {@code java.time} API instead.
+ */
+@Deprecated
+public class FormatRegistry {
+
+   /**
+    * The maximum number of compiled patterns retained.
+    */
+   public static final int MAX_COMPILED_PATTERNS = 1024;
+
+   /**
+    * Creates a registry.
+    * @param props The properties. Names are formatter names and values are patterns.
+    * @param dtz The default time zone. If {@code null}, the system default.
+    * @param locale The default locale. If {@code null}, the system default.
+    * @throws IllegalArgumentException on invalid pattern or duplicate name.
+    */
+   public FormatRegistry(final Properties props, final DateTimeZone dtz, final Locale locale) throws IllegalArgumentException {
+      this.timeZone = dtz != null ? dtz : DateTimeZone.getDefault();
+      this.locale = locale != null ? locale : Locale.getDefault();
+      this.cache = build(props);
+   }
+
+   /**
+    * Replaces the configuration.
+    * <p>
+    * The new configuration is fully validated before it replaces the current one.
+    * If validation fails, the current configuration is unchanged.
+    * </p>
+    * @param props The new properties.
+    * @throws IllegalArgumentException on invalid pattern or duplicate name.
+    */
+   public void reload(final Properties props) throws IllegalArgumentException {
+      DFSCache newCache = build(props);
+      this.cache = newCache;
+      generation.incrementAndGet();
+   }
+
+   /**
+    * Gets the number of times the configuration has been replaced.
+    * @return The generation.
+    */
+   public long generation() {
+      return generation.get();
+   }
+
+   /**
+    * Gets the set for the default time zone and locale.
+    * @return The date format set.
+    */
+   public DateFormatSet defaultSet() {
+      return cache.defaultSet;
+   }
+
+   /**
+    * Gets the set with time zone and locale changed from the default.
+    * @param dtz The time zone.
+    * @param locale The locale.
+    * @return The date format set.
+    */
+   public DateFormatSet withTimeZone(final DateTimeZone dtz, final Locale locale) {
+      return cache.withTimeZone(dtz, locale);
+   }
+
+   /**
+    * Gets the set with Java time zone and locale changed from the default.
+    * @param tz The time zone.
+    * @param locale The locale.
+    * @return The date format set.
+    */
+   public DateFormatSet withTimeZone(final TimeZone tz, final Locale locale) {
+      return cache.withTimeZone(tz, locale);
+   }
+
+   /**
+    * Gets the set with time zone changed from the default.
+    * @param dtz The time zone.
+    * @return The date format set.
+    */
+   public DateFormatSet withTimeZone(final DateTimeZone dtz) {
+      return cache.withTimeZone(dtz);
+   }
+
+   /**
+    * Gets the set with locale changed from the default.
+    * @param locale The locale.
+    * @return The date format set.
+    */
+   public DateFormatSet withLocale(final Locale locale) {
+      return cache.withLocale(locale);
+   }
+
+   /**
+    * Gets the cache for the current configuration.
+    * @return The cache.
+    */
+   public DFSCache cache() {
+      return cache;
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this)
+              .add("timeZone", timeZone)
+              .add("locale", locale)
+              .add("generation", generation.get())
+              .toString();
+   }
+
+   /**
+    * Compiles a pattern, or returns a previously compiled formatter for the same pattern.
+    * <p>
+    * At most {@value #MAX_COMPILED_PATTERNS} compiled patterns are retained.
+    * </p>
+    * @param pattern The pattern.
+    * @return The formatter.
+    * @throws IllegalArgumentException on invalid pattern.
+    */
+   public static DateTimeFormatter compile(final String pattern) throws IllegalArgumentException {
+      DateTimeFormatter formatter = compiledPatterns.getIfPresent(pattern);
+      if(formatter == null) {
+         formatter = DateTimeFormat.forPattern(pattern);
+         compiledPatterns.put(pattern, formatter);
+      }
+      return formatter;
+   }
+
+   /**
+    * Builds a cache with a default set for properties.
+    * @param props The properties.
+    * @return The cache.
+    */
+   private DFSCache build(final Properties props) {
+      return new DFSCache(new DateFormatSet(props, timeZone, locale));
+   }
+
+   /**
+    * The default time zone.
+    */
+   public final DateTimeZone timeZone;
+
+   /**
+    * The default locale.
+    */
+   public final Locale locale;
+
+   /**
+    * The cache for the current configuration.
+    */
+   private volatile DFSCache cache;
+
+   /**
+    * The number of times the configuration has been replaced.
+    */
+   private final AtomicLong generation = new AtomicLong();
+
+   /**
+    * Compiled formatters vs pattern.
+    */
+   private static final Cache<String, DateTimeFormatter> compiledPatterns =
+           CacheBuilder.newBuilder().maximumSize(MAX_COMPILED_PATTERNS).build();
+}
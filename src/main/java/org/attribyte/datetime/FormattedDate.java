@@ -16,7 +16,6 @@
 package org.attribyte.datetime;
 
 import com.google.common.base.Strings;
-import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormatter;
 
@@ -27,6 +26,7 @@ import java.util.TimeZone;
 /**
  * A {@code java.util.Date} with various built-in formatting options.
  * @deprecated This class is built on Joda-Time, which is in maintenance mode.
+ * A {@code java.time} equivalent with the same model is {@link org.attribyte.time.FormattedDate}.
  * Use {@link java.time.ZonedDateTime} or {@link java.time.Instant} with
  * {@link java.time.format.DateTimeFormatter} from the {@code java.time} API instead.
  * For example:
@@ -138,6 +138,9 @@ public class FormattedDate extends Date {
 
    /**
     * Formats using the enumerated format type.
+    * <p>
+    * Formatted strings are cached in {@link FormatCache#DEFAULT}.
+    * </p>
     * @param fmt The format type.
     * @return The formatted date-time.
     */
@@ -145,7 +148,7 @@ public class FormattedDate extends Date {
       switch(fmt) {
          case AGO: return getAgo();
          case DAYS_AGO: return getDaysAgo();
-         default: return formatSet.formatter(fmt).print(getTime());
+         default: return FormatCache.DEFAULT.format(getTime(), formatSet, fmt);
       }
    }
 
@@ -154,7 +157,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getShortTime() {
-      return formatSet.formatter(Format.SHORT_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.SHORT_TIME);
    }
 
    /**
@@ -162,7 +165,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getMedTime() {
-      return formatSet.formatter(Format.MED_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.MED_TIME);
    }
 
    /**
@@ -170,7 +173,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getLongTime() {
-      return formatSet.formatter(Format.LONG_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.LONG_TIME);
    }
 
    /**
@@ -178,7 +181,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getFullTime() {
-      return formatSet.formatter(Format.FULL_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.FULL_TIME);
    }
 
    /**
@@ -186,7 +189,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getShortDate() {
-      return formatSet.formatter(Format.SHORT_DATE).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.SHORT_DATE);
    }
 
    /**
@@ -194,7 +197,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getMedDate() {
-      return formatSet.formatter(Format.MED_DATE).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.MED_DATE);
    }
 
    /**
@@ -202,7 +205,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getLongDate() {
-      return formatSet.formatter(Format.LONG_DATE).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.LONG_DATE);
    }
 
    /**
@@ -210,7 +213,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getFullDate() {
-      return formatSet.formatter(Format.FULL_DATE).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.FULL_DATE);
    }
 
    /**
@@ -218,7 +221,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getShortDateTime() {
-      return formatSet.formatter(Format.SHORT_DATE_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.SHORT_DATE_TIME);
    }
 
    /**
@@ -226,7 +229,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getMedDateTime() {
-      return formatSet.formatter(Format.MED_DATE_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.MED_DATE_TIME);
    }
 
    /**
@@ -234,7 +237,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getLongDateTime() {
-      return formatSet.formatter(Format.LONG_DATE_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.LONG_DATE_TIME);
    }
 
    /**
@@ -242,7 +245,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getFullDateTime() {
-      return formatSet.formatter(Format.FULL_DATE_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.FULL_DATE_TIME);
    }
 
    /**
@@ -250,7 +253,7 @@ public class FormattedDate extends Date {
     * @return The formatted time.
     */
    public String getIsoDateTime() {
-      return formatSet.formatter(Format.ISO_DATE_TIME).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.ISO_DATE_TIME);
    }
 
    /**
@@ -258,7 +261,7 @@ public class FormattedDate extends Date {
     * @return The day of week name.
     */
    public String getDayOfWeekName() {
-      return formatSet.formatter(Format.DAY_OF_WEEK).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.DAY_OF_WEEK);
    }
 
    /**
@@ -266,21 +269,21 @@ public class FormattedDate extends Date {
     * @return The day of week name.
     */
    public String getMonthDay() {
-      return formatSet.formatter(Format.MONTH_DAY).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.MONTH_DAY);
    }
 
    /**
     * Gets the YYYY,MM,DD
     */
    public String getYMDCSV() {
-      return formatSet.formatter(Format.YMD_CSV).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.YMD_CSV);
    }
 
    /**
     * Gets the YYYYMMDD
     */
    public String getYMD() {
-      return formatSet.formatter(Format.YMD).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.YMD);
    }
 
    /**
@@ -288,7 +291,7 @@ public class FormattedDate extends Date {
     * @return the YYYY string.
     */
    public String getYYYY() {
-      return formatSet.formatter(Format.YEAR).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.YEAR);
    }
 
    /**
@@ -296,40 +299,16 @@ public class FormattedDate extends Date {
     * @return The format.
     */
    public String getTimeDateMonth() {
-      return formatSet.formatter(Format.TIME_DAY_MONTH).print(getTime());
+      return FormatCache.DEFAULT.format(getTime(), formatSet, Format.TIME_DAY_MONTH);
    }
 
 
-   private static final long ONE_DAY_MINUTES = 60L * 24L;
-
    /**
     * Formats using words like "14 Minutes Ago"
     * @return The ago string.
     */
    public String getAgo() {
-      long currTime = System.currentTimeMillis();
-      long timeAgoMillis = currTime - getTime();
-      long timeAgoMinutes = timeAgoMillis / 60000L;
-
-      if(timeAgoMinutes <= 1L) {
-         return "1 Minute Ago";
-      } else if(timeAgoMinutes < 60L) {
-         return Long.toString(timeAgoMinutes) + " Minutes Ago";
-      } else if(timeAgoMinutes < ONE_DAY_MINUTES) {
-         long hoursAgo = timeAgoMinutes / 60L;
-         if(hoursAgo == 1L) {
-            return "1 Hour Ago";
-         } else {
-            return Long.toString(hoursAgo)+" Hours Ago";
-         }
-      } else {
-         long daysAgo = timeAgoMinutes / ONE_DAY_MINUTES;
-         if(daysAgo == 1L) {
-            return "Yesterday";
-         } else {
-            return Long.toString(daysAgo)+" Days Ago";
-         }
-      }
+      return RelativeTime.DEFAULT.ago(getTime());
    }
 
    /**
@@ -337,24 +316,7 @@ public class FormattedDate extends Date {
     * @return The days ago string.
     */
    public String getDaysAgo() {
-
-      DateTime midnightToday = new DateTime(System.currentTimeMillis(), formatSet.timeZone).withTimeAtStartOfDay();
-      DateTime midnightYesterday = midnightToday.minusDays(1);
-
-      if(getTime() >= midnightToday.getMillis()) {
-         return "Today";
-      } else if(getTime() >= midnightYesterday.getMillis()) {
-         return "Yesterday";
-      } else {
-         long timeAgoMillis = System.currentTimeMillis() - getTime();
-         long timeAgoMinutes = timeAgoMillis / 60000L;
-         long daysAgo = timeAgoMinutes / ONE_DAY_MINUTES;
-         if(daysAgo == 1L) {
-            return "Yesterday";
-         } else {
-            return Long.toString(daysAgo)+" Days Ago";
-         }
-      }
+      return RelativeTime.DEFAULT.daysAgo(getTime(), formatSet.timeZone);
    }
 
    /**
@@ -362,9 +324,7 @@ public class FormattedDate extends Date {
     * @return Is the date in this year?
     */
    public boolean isThisYear() {
-      DateTime currTime = new DateTime().withTimeAtStartOfDay();
-      DateTime checkTime = new DateTime(getTime()).withTimeAtStartOfDay();
-      return currTime.year().get() == checkTime.year().get();
+      return RelativeTime.DEFAULT.isThisYear(getTime(), DateTimeZone.getDefault());
    }
 
    /**
@@ -372,10 +332,7 @@ public class FormattedDate extends Date {
     * @return Is the date today?
     */
    public boolean isToday() {
-      DateTime currTime = new DateTime(formatSet.timeZone).withTimeAtStartOfDay();
-      DateTime checkTime = new DateTime(getTime(), formatSet.timeZone).withTimeAtStartOfDay();
-      return (currTime.year().get() == checkTime.year().get() &&
-              currTime.dayOfYear().get() == checkTime.dayOfYear().get());
+      return RelativeTime.DEFAULT.isToday(getTime(), formatSet.timeZone);
    }
 
    /**
@@ -383,10 +340,7 @@ public class FormattedDate extends Date {
     * @return Is the date from the previous day?
     */
    public boolean isYesterday() {
-      DateTime currTime = new DateTime(formatSet.timeZone).withTimeAtStartOfDay().minusDays(1);
-      DateTime checkTime = new DateTime(getTime(), formatSet.timeZone).withTimeAtStartOfDay();
-      return (currTime.year().get() == checkTime.year().get() &&
-              currTime.dayOfYear().get() == checkTime.dayOfYear().get());
+      return RelativeTime.DEFAULT.isYesterday(getTime(), formatSet.timeZone);
    }
 
    /**
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.sql;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.attribyte.api.DatastoreException;
+import org.attribyte.api.Logger;
+import org.attribyte.api.NOOPLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes rows with a single statement in batches, committing each batch once.
+ * <p>
+ * Rows are submitted asynchronously and queued. A writer thread collects queued rows into a batch
+ * until the maximum batch size is reached or the linger time since the first row has elapsed,
+ * then executes the batch with {@code addBatch}/{@code executeBatch} in a single transaction.
+ * The future for each row completes with its update count when the batch commits, or exceptionally
+ * with a {@link DatastoreException} if the batch fails. A failed batch is rolled back, so
+ * no row in it was written.
+ * </p>
+ */
+public class BatchWriter implements AutoCloseable {
+
+   /**
+    * A submitted row.
+    */
+   private static final class Row {
+
+      Row(final Object[] params) {
+         this.params = params;
+      }
+
+      /**
+       * The statement parameters.
+       */
+      final Object[] params;
+
+      /**
+       * Completed when the row is written.
+       */
+      final CompletableFuture<Integer> future = new CompletableFuture<>();
+   }
+
+   /**
+    * Creates a batch writer and starts its writer thread.
+    * @param name The writer name.
+    * @param supplier Supplies connections.
+    * @param sql The SQL executed for each row, with a parameter for each value.
+    * @param maxBatchSize The maximum number of rows in a batch.
+    * @param maxLinger The maximum time a row waits for others to join its batch.
+    * @param maxLingerUnits The linger time units.
+    * @param maxQueueSize The maximum number of rows waiting to be written.
+    * @param logger A logger. May be {@code null}.
+    */
+   public BatchWriter(final String name, final ConnectionSupplier supplier, final String sql,
+                      final int maxBatchSize, final long maxLinger, final TimeUnit maxLingerUnits,
+                      final int maxQueueSize, final Logger logger) {
+      this.name = name;
+      this.supplier = supplier;
+      this.sql = sql;
+      this.maxBatchSize = maxBatchSize;
+      this.maxLingerNanos = maxLingerUnits.toNanos(maxLinger);
+      this.queue = new LinkedBlockingQueue<>(maxQueueSize);
+      this.logger = logger != null ? logger : new NOOPLogger();
+      this.writer = Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder().setNameFormat("batch-writer-" + name + "-%d").setDaemon(true).build()
+      );
+      writer.execute(this::writeLoop);
+   }
+
+   /**
+    * Submits a row to be written.
+    * @param params The statement parameters, in order.
+    * @return A future that completes with the update count for the row when its batch commits,
+    * or exceptionally with a {@code DatastoreException} if the batch fails, the queue is full
+    * or the writer is closed.
+    */
+   public CompletableFuture<Integer> submit(final Object... params) {
+      Row row = new Row(params);
+      if(closed) {
+         row.future.completeExceptionally(new DatastoreException(String.format("The writer, '%s' is closed", name)));
+      } else if(!queue.offer(row)) {
+         rejectedCount.incrementAndGet();
+         row.future.completeExceptionally(new DatastoreException(String.format("The queue for writer, '%s' is full", name)));
+      } else if(finished && queue.remove(row)) {
+         row.future.completeExceptionally(new DatastoreException(String.format("The writer, '%s' is closed", name)));
+      }
+      return row.future;
+   }
+
+   /**
+    * Stops accepting rows, writes those queued and waits for the writer to finish.
+    * @param timeout The maximum time to wait.
+    * @param timeoutUnits The timeout units.
+    * @return Did the writer finish before the timeout?
+    * @throws InterruptedException if interrupted while waiting.
+    */
+   public boolean shutdown(final long timeout, final TimeUnit timeoutUnits) throws InterruptedException {
+      closed = true;
+      writer.shutdown();
+      return writer.awaitTermination(timeout, timeoutUnits);
+   }
+
+   /**
+    * Stops accepting rows, writes those queued and waits up to 30 seconds for the writer to finish.
+    */
+   @Override
+   public void close() {
+      try {
+         if(!shutdown(30L, TimeUnit.SECONDS)) {
+            logger.warn(String.format("Timeout waiting for writer, '%s' to finish", name));
+         }
+      } catch(InterruptedException ie) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Gets the number of rows waiting to be written.
+    * @return The number of rows.
+    */
+   public int getQueueSize() {
+      return queue.size();
+   }
+
+   /**
+    * Gets the number of batches committed.
+    * @return The number of batches.
+    */
+   public long getBatchCount() {
+      return batchCount.get();
+   }
+
+   /**
+    * Gets the number of rows committed.
+    * @return The number of rows.
+    */
+   public long getRowCount() {
+      return rowCount.get();
+   }
+
+   /**
+    * Gets the number of batches that failed.
+    * @return The number of batches.
+    */
+   public long getFailedBatchCount() {
+      return failedBatchCount.get();
+   }
+
+   /**
+    * Gets the number of rows rejected because the queue was full.
+    * @return The number of rows.
+    */
+   public long getRejectedCount() {
+      return rejectedCount.get();
+   }
+
+   /**
+    * Collects and writes batches until closed and the queue is empty.
+    */
+   private void writeLoop() {
+      final List<Row> batch = Lists.newArrayListWithCapacity(maxBatchSize);
+      try {
+         while(!closed || !queue.isEmpty()) {
+            Row first = queue.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            if(first == null) {
+               continue;
+            }
+            batch.add(first);
+            final long deadlineNanos = System.nanoTime() + maxLingerNanos;
+            while(batch.size() < maxBatchSize) {
+               queue.drainTo(batch, maxBatchSize - batch.size());
+               long remainingNanos = deadlineNanos - System.nanoTime();
+               if(batch.size() >= maxBatchSize || remainingNanos <= 0L || closed) {
+                  break;
+               }
+               Row next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+               if(next == null) {
+                  break;
+               }
+               batch.add(next);
+            }
+            write(batch);
+            batch.clear();
+         }
+
+         //Rows offered concurrently with close are written here, or removed by the submitter.
+         finished = true;
+         while(queue.drainTo(batch, maxBatchSize) > 0) {
+            write(batch);
+            batch.clear();
+         }
+      } catch(InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         fail(batch, new DatastoreException(String.format("The writer, '%s' was interrupted", name), ie));
+         List<Row> remaining = Lists.newArrayList();
+         queue.drainTo(remaining);
+         fail(remaining, new DatastoreException(String.format("The writer, '%s' was interrupted", name), ie));
+      }
+   }
+
+   /**
+    * Writes a batch in a single transaction.
+    * @param batch The rows.
+    */
+   private void write(final List<Row> batch) {
+      boolean committed = false;
+      try(Connection conn = supplier.getConnection()) {
+         final boolean autoCommit = conn.getAutoCommit();
+         if(autoCommit) {
+            conn.setAutoCommit(false);
+         }
+         try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for(Row row : batch) {
+               for(int i = 0; i < row.params.length; i++) {
+                  stmt.setObject(i + 1, row.params[i]);
+               }
+               stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            conn.commit();
+            committed = true;
+            batchCount.incrementAndGet();
+            rowCount.addAndGet(batch.size());
+            for(int i = 0; i < batch.size(); i++) {
+               batch.get(i).future.complete(i < counts.length ? counts[i] : Statement.SUCCESS_NO_INFO);
+            }
+         } catch(SQLException | RuntimeException e) {
+            if(!committed) {
+               try {
+                  conn.rollback();
+               } catch(SQLException re) {
+                  e.addSuppressed(re);
+               }
+            }
+            throw e;
+         } finally {
+            if(autoCommit) {
+               restoreAutoCommit(conn);
+            }
+         }
+      } catch(SQLException | RuntimeException e) {
+         if(committed) {
+            //The rows are written and their futures complete. Only releasing the connection failed.
+            logger.warn(String.format("Unable to release connection after batch of %d rows for writer, '%s'", batch.size(), name), e);
+            return;
+         }
+         failedBatchCount.incrementAndGet();
+         logger.error(String.format("Batch of %d rows failed for writer, '%s'", batch.size(), name), e);
+         fail(batch, new DatastoreException(String.format("Batch of %d rows failed for writer, '%s'", batch.size(), name), e));
+      }
+   }
+
+   /**
+    * Restores auto-commit on a connection, logging any error.
+    * @param conn The connection.
+    */
+   private void restoreAutoCommit(final Connection conn) {
+      try {
+         conn.setAutoCommit(true);
+      } catch(SQLException se) {
+         logger.warn(String.format("Unable to restore auto-commit for writer, '%s'", name), se);
+      }
+   }
+
+   /**
+    * Completes the futures for rows exceptionally.
+    * @param rows The rows.
+    * @param e The exception.
+    */
+   private static void fail(final List<Row> rows, final DatastoreException e) {
+      for(Row row : rows) {
+         row.future.completeExceptionally(e);
+      }
+   }
+
+   /**
+    * The maximum time the writer waits for a row before checking for close.
+    */
+   private static final long CLOSE_CHECK_MILLIS = 100L;
+
+   /**
+    * The writer name.
+    */
+   private final String name;
+
+   /**
+    * Supplies connections.
+    */
+   private final ConnectionSupplier supplier;
+
+   /**
+    * The SQL.
+    */
+   private final String sql;
+
+   /**
+    * The maximum number of rows in a batch.
+    */
+   private final int maxBatchSize;
+
+   /**
+    * The maximum time a row waits for others to join its batch.
+    */
+   private final long maxLingerNanos;
+
+   /**
+    * Rows waiting to be written.
+    */
+   private final BlockingQueue<Row> queue;
+
+   /**
+    * The logger.
+    */
+   private final Logger logger;
+
+   /**
+    * Runs the write loop.
+    */
+   private final ExecutorService writer;
+
+   /**
+    * Is the writer closed to new rows?
+    */
+   private volatile boolean closed;
+
+   /**
+    * Has the write loop finished?
+    */
+   private volatile boolean finished;
+
+   private final AtomicLong batchCount = new AtomicLong();
+   private final AtomicLong rowCount = new AtomicLong();
+   private final AtomicLong failedBatchCount = new AtomicLong();
+   private final AtomicLong rejectedCount = new AtomicLong();
+}
@@ -0,0 +1,995 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.sql;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.attribyte.api.InitializationException;
+import org.attribyte.api.Logger;
+import org.attribyte.api.NOOPLogger;
+import org.attribyte.util.ConfigSnapshot;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A JDBC connection pool.
+ * <p>
+ * Connections are borrowed without locking. A thread first tries the connection it used last,
+ * then scans the shared list of connections for a free one. If none is free and the pool is not full,
+ * a new connection is created. Otherwise, the thread waits for a connection to be handed off
+ * directly by a thread that closes one.
+ * </p>
+ * <p>
+ * A background task closes connections that exceed their maximum lifetime, validates idle connections
+ * at the keepalive interval, keeps the minimum number of idle connections open and logs connections
+ * that have been borrowed for longer than the leak detection threshold.
+ * </p>
+ * <p>
+ * Connections returned by {@link #getConnection()} must be closed to return them to the pool.
+ * On return, statements opened with the connection are closed, open transactions are rolled back
+ * and changed connection properties are restored. Statements, result sets and metadata obtained from
+ * a borrowed connection return the borrowed connection, never the pooled connection, from {@code getConnection}.
+ * </p>
+ * <h3>Properties</h3>
+ * <dl>
+ *    <dt>url</dt><dd>The JDBC URL. Required unless a connection factory is supplied.</dd>
+ *    <dt>user</dt><dd>The database user.</dd>
+ *    <dt>password</dt><dd>The database password.</dd>
+ *    <dt>driver</dt><dd>A driver class to load before connecting.</dd>
+ *    <dt>minIdle</dt><dd>The minimum number of idle connections. Default {@code 0}.</dd>
+ *    <dt>maxSize</dt><dd>The maximum number of connections. Default {@code 10}.</dd>
+ *    <dt>acquireTimeout</dt><dd>The maximum time to wait for a connection. Default {@code 30s}.</dd>
+ *    <dt>maxLifetime</dt><dd>The maximum time a connection is kept open. Default {@code 30m}.</dd>
+ *    <dt>keepaliveInterval</dt><dd>The interval between validation of idle connections. Default {@code 2m}.</dd>
+ *    <dt>validateAfterIdle</dt><dd>Borrowed connections idle for longer are validated first. Default {@code 1s}.</dd>
+ *    <dt>validationTimeout</dt><dd>The maximum time for validation. Default {@code 5s}.</dd>
+ *    <dt>testSQL</dt><dd>SQL used for validation. If unspecified, {@code Connection.isValid} is used.</dd>
+ *    <dt>leakDetectionThreshold</dt><dd>Log borrowed connections not returned in this time. Default {@code 0s} (disabled).</dd>
+ *    <dt>housekeepingInterval</dt><dd>The interval between background maintenance. Default {@code 15s}.</dd>
+ * </dl>
+ * <p>
+ * Times are specified with units, as for {@link org.attribyte.util.InitUtil#millisFromTime(String)}.
+ * </p>
+ */
+public class ConnectionPool implements ConnectionSupplier, AutoCloseable {
+
+   /**
+    * A pooled connection.
+    */
+   private static final class Entry {
+
+      Entry(final Connection connection, final long createTime) {
+         this.connection = connection;
+         this.createTime = createTime;
+         this.lastAccessTime = createTime;
+         this.lastValidatedTime = createTime;
+      }
+
+      /**
+       * Attempts to change the state.
+       * @param expect The expected state.
+       * @param update The new state.
+       * @return Was the state changed?
+       */
+      boolean transition(final int expect, final int update) {
+         return state.compareAndSet(expect, update);
+      }
+
+      /**
+       * The connection.
+       */
+      final Connection connection;
+
+      /**
+       * The time the connection was created.
+       */
+      final long createTime;
+
+      /**
+       * The state.
+       */
+      final AtomicInteger state = new AtomicInteger(STATE_IN_USE);
+
+      /**
+       * The time the connection was last borrowed or returned.
+       */
+      volatile long lastAccessTime;
+
+      /**
+       * The time the connection was last validated.
+       */
+      volatile long lastValidatedTime;
+
+      /**
+       * The time the connection was borrowed.
+       */
+      volatile long borrowTime;
+
+      /**
+       * The stack trace of the borrower, if leak detection is enabled.
+       */
+      volatile Throwable borrowTrace;
+
+      /**
+       * Has a leak been reported for the current borrow?
+       */
+      volatile boolean leakReported;
+
+      /**
+       * Should the connection be closed when returned?
+       */
+      volatile boolean evict;
+   }
+
+   /**
+    * Handles calls to a borrowed connection.
+    */
+   private final class Handle implements InvocationHandler {
+
+      Handle(final Entry entry) {
+         this.entry = entry;
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+         switch(method.getName()) {
+            case "close":
+               if(!closed) {
+                  closed = true;
+                  release(entry, this);
+               }
+               return null;
+            case "isClosed":
+               return closed || entry.connection.isClosed();
+            case "equals":
+               return proxy == args[0];
+            case "hashCode":
+               return System.identityHashCode(proxy);
+            case "toString":
+               return "Pooled " + entry.connection;
+            case "setAutoCommit":
+               autoCommitChanged = true;
+               break;
+            case "setReadOnly":
+               readOnlyChanged = true;
+               break;
+            case "setTransactionIsolation":
+               isolationChanged = true;
+               break;
+            case "setCatalog":
+               catalogChanged = true;
+               break;
+            case "setSchema":
+               schemaChanged = true;
+               break;
+         }
+
+         if(closed) {
+            throw new SQLException("The connection is closed");
+         }
+
+         Object result = delegate(entry.connection, method, args);
+         Class<?> type = method.getReturnType();
+         if(result != null && (Statement.class.isAssignableFrom(type) || type == DatabaseMetaData.class)) {
+            return wrap(proxy, result, type, proxy);
+         }
+         return result;
+      }
+
+      /**
+       * Invokes a method on a statement, result set, metadata or the connection,
+       * marking the connection for eviction on fatal errors.
+       * @param target The target.
+       * @param method The method.
+       * @param args The arguments.
+       * @return The result.
+       * @throws Throwable on invocation error.
+       */
+      Object delegate(final Object target, final Method method, final Object[] args) throws Throwable {
+         try {
+            return method.invoke(target, args);
+         } catch(InvocationTargetException ite) {
+            if(ite.getCause() instanceof SQLException && isFatal((SQLException)ite.getCause())) {
+               entry.evict = true;
+            }
+            throw ite.getCause();
+         }
+      }
+
+      /**
+       * Creates a proxy for a statement, result set or metadata created through this handle.
+       * Statements are recorded so they may be closed when the connection is returned.
+       * @param connProxy The connection returned to the borrower.
+       * @param target The object to proxy.
+       * @param type The interface implemented by the proxy.
+       * @param parent The proxy for the object that created the target.
+       * @return The proxy.
+       */
+      Object wrap(final Object connProxy, final Object target, final Class<?> type, final Object parent) {
+         if(target instanceof Statement) {
+            statements.add((Statement)target);
+         }
+         return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] {type},
+                 new ChildHandle(this, connProxy, target, parent));
+      }
+
+      /**
+       * Closes all statements created through this handle that are still open.
+       */
+      void closeStatements() {
+         for(Statement stmt : statements) {
+            try {
+               stmt.close();
+            } catch(SQLException se) {
+               logger.warn(String.format("Error closing statement for pool, '%s'", name), se);
+            }
+         }
+         statements.clear();
+      }
+
+      /**
+       * The pooled connection.
+       */
+      final Entry entry;
+
+      /**
+       * Statements created through this handle and not yet closed.
+       */
+      final Set<Statement> statements = Sets.newConcurrentHashSet();
+
+      /**
+       * Was the handle closed?
+       */
+      volatile boolean closed;
+
+      boolean autoCommitChanged;
+      boolean readOnlyChanged;
+      boolean isolationChanged;
+      boolean catalogChanged;
+      boolean schemaChanged;
+   }
+
+   /**
+    * Handles calls to a statement, result set or metadata created through a borrowed connection.
+    * <p>
+    * {@code getConnection} returns the borrowed connection, not the pooled connection,
+    * and {@code getStatement} returns the statement proxy.
+    * </p>
+    */
+   private static final class ChildHandle implements InvocationHandler {
+
+      ChildHandle(final Handle handle, final Object connProxy, final Object target, final Object parent) {
+         this.handle = handle;
+         this.connProxy = connProxy;
+         this.target = target;
+         this.parent = parent;
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+         switch(method.getName()) {
+            case "getConnection":
+               if(args == null) {
+                  return connProxy;
+               }
+               break;
+            case "getStatement":
+               if(args == null && target instanceof ResultSet) {
+                  return parent instanceof Statement ? parent : null;
+               }
+               break;
+            case "close":
+               if(target instanceof Statement) {
+                  handle.statements.remove(target);
+               }
+               break;
+            case "equals":
+               return proxy == args[0];
+            case "hashCode":
+               return System.identityHashCode(proxy);
+         }
+
+         Object result = handle.delegate(target, method, args);
+         if(result != null && method.getReturnType() == ResultSet.class) {
+            return handle.wrap(connProxy, result, ResultSet.class, proxy);
+         }
+         return result;
+      }
+
+      /**
+       * The handle for the borrowed connection.
+       */
+      private final Handle handle;
+
+      /**
+       * The borrowed connection.
+       */
+      private final Object connProxy;
+
+      /**
+       * The statement, result set or metadata.
+       */
+      private final Object target;
+
+      /**
+       * The proxy for the object that created the target.
+       */
+      private final Object parent;
+   }
+
+   /**
+    * Creates a pool that connects with {@code DriverManager} using the 'url', 'user', 'password'
+    * and 'driver' properties.
+    * @param name The pool name.
+    * @param config The configuration.
+    * @param logger A logger. May be {@code null}.
+    * @throws InitializationException on invalid configuration or if the minimum number of connections could not be opened.
+    */
+   public ConnectionPool(final String name, final ConfigSnapshot config,
+                         final Logger logger) throws InitializationException {
+      this(name, driverManagerFactory(config), config, logger);
+   }
+
+   /**
+    * Creates a pool.
+    * @param name The pool name.
+    * @param connectionFactory Supplies new (unpooled) connections.
+    * @param config The configuration.
+    * @param logger A logger. May be {@code null}.
+    * @throws InitializationException on invalid configuration or if the minimum number of connections could not be opened.
+    */
+   public ConnectionPool(final String name, final ConnectionSupplier connectionFactory,
+                         final ConfigSnapshot config, final Logger logger) throws InitializationException {
+      this.name = name;
+      this.connectionFactory = connectionFactory;
+      this.logger = logger != null ? logger : new NOOPLogger();
+      this.minIdle = config.getIntProperty("minIdle", 0);
+      this.maxSize = config.getIntProperty("maxSize", 10);
+      this.acquireTimeoutMillis = config.getMillis("acquireTimeout", 30000L);
+      this.maxLifetimeMillis = config.getMillis("maxLifetime", TimeUnit.MINUTES.toMillis(30));
+      this.keepaliveIntervalMillis = config.getMillis("keepaliveInterval", TimeUnit.MINUTES.toMillis(2));
+      this.validateAfterIdleMillis = config.getMillis("validateAfterIdle", 1000L);
+      this.validationTimeoutSeconds = (int)Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(config.getMillis("validationTimeout", 5000L)));
+      this.leakDetectionThresholdMillis = config.getMillis("leakDetectionThreshold", 0L);
+      this.testSQL = Strings.emptyToNull(config.getProperty("testSQL"));
+      final long housekeepingIntervalMillis = config.getMillis("housekeepingInterval", 15000L);
+
+      if(maxSize < 1) {
+         throw new InitializationException(String.format("The '%smaxSize' must be > 0", config.prefix()));
+      }
+      if(minIdle < 0 || minIdle > maxSize) {
+         throw new InitializationException(String.format("The '%sminIdle' must be >= 0 and <= maxSize", config.prefix()));
+      }
+      if(housekeepingIntervalMillis < 1L) {
+         throw new InitializationException(String.format("The '%shousekeepingInterval' must be > 0", config.prefix()));
+      }
+
+      try {
+         fillIdle();
+      } catch(SQLException | RuntimeException e) {
+         for(Entry entry : entries) {
+            remove(entry);
+         }
+         throw new InitializationException(String.format("Unable to open connections for pool, '%s'", name), e);
+      }
+
+      this.housekeeper = Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder().setNameFormat("connection-pool-" + name + "-%d").setDaemon(true).build()
+      );
+      housekeeper.scheduleWithFixedDelay(this::housekeeping, housekeepingIntervalMillis, housekeepingIntervalMillis, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Creates a pool from properties with a prefix.
+    * @param name The pool name.
+    * @param prefix The property prefix, e.g. 'db.'.
+    * @param props The properties.
+    * @param logger A logger. May be {@code null}.
+    * @return The pool.
+    * @throws InitializationException on invalid configuration or if the minimum number of connections could not be opened.
+    */
+   public static ConnectionPool fromProperties(final String name, final String prefix,
+                                               final Properties props, final Logger logger) throws InitializationException {
+      return new ConnectionPool(name, ConfigSnapshot.create(prefix, props), logger);
+   }
+
+   /**
+    * Gets a connection, waiting up to the acquire timeout if none are available.
+    * @return The connection. Must be closed to return it to the pool.
+    * @throws SQLException if the pool is closed, a connection could not be created,
+    * or a {@code SQLTransientConnectionException} if the acquire timeout was reached.
+    */
+   @Override
+   public Connection getConnection() throws SQLException {
+
+      if(closed) {
+         throw new SQLException(String.format("The pool, '%s' is closed", name));
+      }
+
+      final long startNanos = System.nanoTime();
+      final long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+      Entry lastUsed = this.lastUsed.get();
+      if(lastUsed != null && lastUsed.transition(STATE_FREE, STATE_IN_USE)) {
+         Connection conn = borrowed(lastUsed);
+         if(conn != null) {
+            return conn;
+         }
+      }
+
+      boolean waiting = false;
+      try {
+         while(true) {
+
+            for(Entry entry : entries) {
+               if(entry.transition(STATE_FREE, STATE_IN_USE)) {
+                  Connection conn = borrowed(entry);
+                  if(conn != null) {
+                     return conn;
+                  }
+               }
+            }
+
+            Entry created = tryCreate();
+            if(created != null) {
+               Connection conn = borrowed(created);
+               if(conn != null) {
+                  return conn;
+               }
+            }
+
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if(remainingNanos <= 0L || closed) {
+               timeoutCount.incrementAndGet();
+               throw new SQLTransientConnectionException(
+                       String.format("Timeout waiting for a connection from pool, '%s' (active: %d, idle: %d, waiting: %d)",
+                               name, getActiveCount(), getIdleCount(), waiters.get())
+               );
+            }
+
+            if(!waiting) {
+               waiting = true;
+               waiters.incrementAndGet();
+               continue; //Rescan for entries freed before this thread was counted as waiting.
+            }
+
+            Entry handedOff = handoff.poll(Math.min(remainingNanos, MAX_HANDOFF_WAIT_NANOS), TimeUnit.NANOSECONDS);
+            if(handedOff != null && handedOff.transition(STATE_FREE, STATE_IN_USE)) {
+               Connection conn = borrowed(handedOff);
+               if(conn != null) {
+                  return conn;
+               }
+            }
+         }
+      } catch(InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         throw new SQLException(String.format("Interrupted while waiting for a connection from pool, '%s'", name), ie);
+      } finally {
+         if(waiting) {
+            waiters.decrementAndGet();
+         }
+      }
+   }
+
+   /**
+    * Prepares a connection that was just marked in-use for return to a caller,
+    * validating it if it has been idle.
+    * @param entry The entry.
+    * @return The connection or {@code null} if the connection was invalid and has been removed.
+    */
+   private Connection borrowed(final Entry entry) {
+      final long currTime = System.currentTimeMillis();
+      if(currTime - entry.createTime > maxLifetimeMillis || entry.evict) {
+         remove(entry);
+         return null;
+      }
+
+      if(currTime - entry.lastAccessTime > validateAfterIdleMillis && !isValid(entry)) {
+         remove(entry);
+         return null;
+      }
+
+      entry.lastAccessTime = currTime;
+      entry.borrowTime = currTime;
+      entry.leakReported = false;
+      if(leakDetectionThresholdMillis > 0L) {
+         entry.borrowTrace = new Throwable("Connection borrowed here");
+      }
+      lastUsed.set(entry);
+      return (Connection)Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), PROXY_INTERFACES, new Handle(entry));
+   }
+
+   /**
+    * Returns a connection to the pool.
+    * @param entry The entry.
+    * @param handle The handle used by the borrower.
+    */
+   private void release(final Entry entry, final Handle handle) {
+
+      entry.borrowTrace = null;
+      handle.closeStatements();
+
+      if(closed || entry.evict || System.currentTimeMillis() - entry.createTime > maxLifetimeMillis) {
+         remove(entry);
+         return;
+      }
+
+      try {
+         Connection conn = entry.connection;
+         if(!conn.getAutoCommit()) {
+            conn.rollback();
+         }
+         if(handle.autoCommitChanged) {
+            conn.setAutoCommit(defaultAutoCommit);
+         }
+         if(handle.readOnlyChanged) {
+            conn.setReadOnly(defaultReadOnly);
+         }
+         if(handle.isolationChanged) {
+            conn.setTransactionIsolation(defaultIsolation);
+         }
+         if(handle.catalogChanged) {
+            conn.setCatalog(defaultCatalog);
+         }
+         if(handle.schemaChanged) {
+            conn.setSchema(defaultSchema);
+         }
+         conn.clearWarnings();
+      } catch(SQLException | AbstractMethodError e) {
+         logger.warn(String.format("Unable to reset connection returned to pool, '%s'", name), e);
+         remove(entry);
+         return;
+      }
+
+      entry.lastAccessTime = System.currentTimeMillis();
+      free(entry);
+   }
+
+   /**
+    * Marks an entry free and offers it, once, to a waiting thread, if any.
+    * <p>
+    * If no waiter is polling at that moment, the offer fails and the entry stays free.
+    * Waiters rescan for free entries after each timed poll.
+    * </p>
+    * @param entry The entry.
+    */
+   private void free(final Entry entry) {
+      entry.state.set(STATE_FREE);
+      if(waiters.get() > 0) {
+         handoff.offer(entry);
+      }
+   }
+
+   /**
+    * Creates a new connection if the pool is not full.
+    * @return The new entry, in-use, or {@code null} if the pool is full.
+    * @throws SQLException if the connection could not be created.
+    */
+   private Entry tryCreate() throws SQLException {
+      while(true) {
+         int size = totalCount.get();
+         if(size >= maxSize) {
+            return null;
+         }
+         if(totalCount.compareAndSet(size, size + 1)) {
+            break;
+         }
+      }
+
+      final Connection conn;
+      try {
+         conn = connectionFactory.getConnection();
+      } catch(SQLException | RuntimeException e) {
+         totalCount.decrementAndGet();
+         throw e;
+      }
+
+      if(!defaultsInitialized) {
+         try {
+            initDefaults(conn);
+         } catch(SQLException | RuntimeException e) {
+            totalCount.decrementAndGet();
+            try {
+               conn.close();
+            } catch(SQLException se) {
+               logger.warn(String.format("Error closing connection for pool, '%s'", name), se);
+            }
+            throw e;
+         }
+      }
+
+      Entry entry = new Entry(conn, System.currentTimeMillis());
+      entries.add(entry);
+      createdCount.incrementAndGet();
+      return entry;
+   }
+
+   /**
+    * Records connection defaults restored when a connection is returned.
+    * @param conn The first connection created.
+    */
+   private synchronized void initDefaults(final Connection conn) throws SQLException {
+      if(defaultsInitialized) {
+         return;
+      }
+      defaultAutoCommit = conn.getAutoCommit();
+      defaultReadOnly = conn.isReadOnly();
+      defaultIsolation = conn.getTransactionIsolation();
+      defaultCatalog = conn.getCatalog();
+      try {
+         defaultSchema = conn.getSchema();
+      } catch(SQLException | AbstractMethodError e) {
+         defaultSchema = null;
+      }
+      defaultsInitialized = true;
+   }
+
+   /**
+    * Removes an entry from the pool and closes its connection.
+    * @param entry The entry.
+    */
+   private void remove(final Entry entry) {
+      if(entry.state.getAndSet(STATE_REMOVED) == STATE_REMOVED) {
+         return;
+      }
+      entries.remove(entry);
+      totalCount.decrementAndGet();
+      closedCount.incrementAndGet();
+      try {
+         entry.connection.close();
+      } catch(SQLException se) {
+         logger.warn(String.format("Error closing connection for pool, '%s'", name), se);
+      }
+   }
+
+   /**
+    * Validates a connection.
+    * @param entry The entry.
+    * @return Is the connection valid?
+    */
+   private boolean isValid(final Entry entry) {
+      try {
+         boolean valid;
+         if(testSQL != null) {
+            try(Statement stmt = entry.connection.createStatement()) {
+               stmt.setQueryTimeout(validationTimeoutSeconds);
+               stmt.execute(testSQL);
+               valid = true;
+            }
+         } else {
+            valid = entry.connection.isValid(validationTimeoutSeconds);
+         }
+         if(valid) {
+            entry.lastValidatedTime = System.currentTimeMillis();
+         }
+         return valid;
+      } catch(SQLException se) {
+         logger.warn(String.format("Validation failed for connection in pool, '%s'", name), se);
+         return false;
+      }
+   }
+
+   /**
+    * Opens connections until the minimum number of idle connections is reached.
+    * @throws SQLException if a connection could not be created.
+    */
+   private void fillIdle() throws SQLException {
+      while(!closed && getIdleCount() < minIdle) {
+         Entry entry = tryCreate();
+         if(entry == null) {
+            return;
+         }
+         free(entry);
+      }
+   }
+
+   /**
+    * Closes expired connections, validates idle connections, reports leaks and fills the pool.
+    */
+   private void housekeeping() {
+      try {
+         final long currTime = System.currentTimeMillis();
+         for(Entry entry : entries) {
+            switch(entry.state.get()) {
+               case STATE_FREE:
+                  if(!entry.transition(STATE_FREE, STATE_RESERVED)) {
+                     break;
+                  }
+                  if(currTime - entry.createTime > maxLifetimeMillis) {
+                     remove(entry);
+                  } else if(currTime - entry.lastValidatedTime > keepaliveIntervalMillis && !isValid(entry)) {
+                     remove(entry);
+                  } else {
+                     free(entry);
+                  }
+                  break;
+               case STATE_IN_USE:
+                  if(currTime - entry.createTime > maxLifetimeMillis) {
+                     entry.evict = true;
+                  }
+                  if(leakDetectionThresholdMillis > 0L && !entry.leakReported &&
+                          currTime - entry.borrowTime > leakDetectionThresholdMillis) {
+                     Throwable trace = entry.borrowTrace;
+                     if(trace != null) {
+                        entry.leakReported = true;
+                        leakCount.incrementAndGet();
+                        logger.warn(String.format("Possible connection leak in pool, '%s'. Borrowed %d ms ago",
+                                name, currTime - entry.borrowTime), trace);
+                     }
+                  }
+                  break;
+            }
+         }
+         fillIdle();
+      } catch(SQLException | RuntimeException e) {
+         logger.error(String.format("Housekeeping failed for pool, '%s'", name), e);
+      }
+   }
+
+   /**
+    * Closes the pool. Idle connections are closed immediately. Borrowed connections are closed when returned.
+    */
+   @Override
+   public void close() {
+      if(closed) {
+         return;
+      }
+      closed = true;
+      housekeeper.shutdownNow();
+      for(Entry entry : entries) {
+         if(entry.transition(STATE_FREE, STATE_RESERVED)) {
+            remove(entry);
+         }
+      }
+   }
+
+   /**
+    * Is the pool closed?
+    * @return Is the pool closed?
+    */
+   public boolean isClosed() {
+      return closed;
+   }
+
+   /**
+    * Gets the pool name.
+    * @return The name.
+    */
+   public String getName() {
+      return name;
+   }
+
+   /**
+    * Gets the number of open connections.
+    * @return The number of connections.
+    */
+   public int getTotalCount() {
+      return totalCount.get();
+   }
+
+   /**
+    * Gets the number of borrowed connections.
+    * @return The number of connections.
+    */
+   public int getActiveCount() {
+      int count = 0;
+      for(Entry entry : entries) {
+         if(entry.state.get() == STATE_IN_USE) {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   /**
+    * Gets the number of idle connections.
+    * @return The number of connections.
+    */
+   public int getIdleCount() {
+      int count = 0;
+      for(Entry entry : entries) {
+         if(entry.state.get() == STATE_FREE) {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   /**
+    * Gets the number of threads waiting for a connection.
+    * @return The number of threads.
+    */
+   public int getWaitingCount() {
+      return waiters.get();
+   }
+
+   /**
+    * Gets the total number of connections created.
+    * @return The number of connections.
+    */
+   public long getCreatedCount() {
+      return createdCount.get();
+   }
+
+   /**
+    * Gets the total number of connections closed.
+    * @return The number of connections.
+    */
+   public long getClosedCount() {
+      return closedCount.get();
+   }
+
+   /**
+    * Gets the number of times a connection could not be acquired before the timeout.
+    * @return The number of timeouts.
+    */
+   public long getTimeoutCount() {
+      return timeoutCount.get();
+   }
+
+   /**
+    * Gets the number of possible leaks reported.
+    * @return The number of leaks.
+    */
+   public long getLeakCount() {
+      return leakCount.get();
+   }
+
+   /**
+    * Determine if an exception indicates the connection is no longer usable.
+    * @param se The exception.
+    * @return Is the exception fatal?
+    */
+   private static boolean isFatal(final SQLException se) {
+      String state = se.getSQLState();
+      return state != null && (state.startsWith("08") || state.equals("57P01"));
+   }
+
+   /**
+    * Creates a connection factory that uses {@code DriverManager}.
+    * @param config The configuration.
+    * @return The factory.
+    * @throws InitializationException if the URL is unspecified or the driver is not found.
+    */
+   private static ConnectionSupplier driverManagerFactory(final ConfigSnapshot config) throws InitializationException {
+      final String url = config.getProperty("url");
+      if(Strings.isNullOrEmpty(url)) {
+         throw new InitializationException(String.format("The '%surl' property must be specified", config.prefix()));
+      }
+
+      String driver = config.getProperty("driver");
+      if(!Strings.isNullOrEmpty(driver)) {
+         try {
+            Class.forName(driver);
+         } catch(ClassNotFoundException ce) {
+            throw new InitializationException(String.format("The driver, '%s' was not found in the classpath", driver), ce);
+         }
+      }
+
+      final String user = config.getProperty("user");
+      final String password = config.getProperty("password");
+      if(user != null) {
+         return () -> DriverManager.getConnection(url, user, password);
+      } else {
+         return () -> DriverManager.getConnection(url);
+      }
+   }
+
+   private static final int STATE_REMOVED = -1;
+   private static final int STATE_FREE = 0;
+   private static final int STATE_IN_USE = 1;
+   private static final int STATE_RESERVED = 2;
+
+   private static final Class<?>[] PROXY_INTERFACES = new Class<?>[] {Connection.class};
+
+   /**
+    * The maximum time a waiting thread blocks before rescanning for free connections.
+    */
+   private static final long MAX_HANDOFF_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+
+   /**
+    * The pool name.
+    */
+   private final String name;
+
+   /**
+    * Supplies new connections.
+    */
+   private final ConnectionSupplier connectionFactory;
+
+   /**
+    * The logger.
+    */
+   private final Logger logger;
+
+   private final int minIdle;
+   private final int maxSize;
+   private final long acquireTimeoutMillis;
+   private final long maxLifetimeMillis;
+   private final long keepaliveIntervalMillis;
+   private final long validateAfterIdleMillis;
+   private final int validationTimeoutSeconds;
+   private final long leakDetectionThresholdMillis;
+   private final String testSQL;
+
+   /**
+    * All open connections.
+    */
+   private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+   /**
+    * The connection most recently borrowed by each thread.
+    */
+   private final ThreadLocal<Entry> lastUsed = new ThreadLocal<>();
+
+   /**
+    * Hands returned connections directly to waiting threads.
+    */
+   private final SynchronousQueue<Entry> handoff = new SynchronousQueue<>(true);
+
+   /**
+    * The number of threads waiting for a connection.
+    */
+   private final AtomicInteger waiters = new AtomicInteger();
+
+   /**
+    * The number of open connections, including those being created.
+    */
+   private final AtomicInteger totalCount = new AtomicInteger();
+
+   private final AtomicLong createdCount = new AtomicLong();
+   private final AtomicLong closedCount = new AtomicLong();
+   private final AtomicLong timeoutCount = new AtomicLong();
+   private final AtomicLong leakCount = new AtomicLong();
+
+   /**
+    * Runs background maintenance.
+    */
+   private final ScheduledExecutorService housekeeper;
+
+   /**
+    * Is the pool closed?
+    */
+   private volatile boolean closed;
+
+   private volatile boolean defaultsInitialized;
+   private boolean defaultAutoCommit;
+   private boolean defaultReadOnly;
+   private int defaultIsolation;
+   private String defaultCatalog;
+   private String defaultSchema;
+}
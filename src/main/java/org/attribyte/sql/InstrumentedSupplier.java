@@ -0,0 +1,407 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import org.attribyte.api.Logger;
+import org.attribyte.api.NOOPLogger;
+import org.attribyte.util.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Supplies connections that record connection acquire time, statement execution time
+ * per normalized SQL, and the number of rows fetched.
+ * <p>
+ * Acquire time is recorded for every connection. Statements are timed only for a sample
+ * of connections, chosen when the connection is acquired, so unsampled connections
+ * have no overhead. Sampled executions that exceed the slow query threshold are logged
+ * with the normalized SQL.
+ * </p>
+ * <p>
+ * SQL is normalized by replacing literals with '?', collapsing 'IN' lists and whitespace.
+ * Statistics are kept for a bounded number of distinct statements. Others are recorded
+ * as {@value #OTHER_SQL}.
+ * </p>
+ */
+public class InstrumentedSupplier implements ConnectionSupplier {
+
+   /**
+    * Statistics for a normalized statement.
+    */
+   public static final class QueryStats {
+
+      private QueryStats(final String sql) {
+         this.sql = sql;
+      }
+
+      /**
+       * Gets the normalized SQL.
+       * @return The SQL.
+       */
+      public String sql() {
+         return sql;
+      }
+
+      /**
+       * Gets the execution time histogram.
+       * @return The histogram.
+       */
+      public LatencyHistogram executeTimes() {
+         return executeTimes;
+      }
+
+      /**
+       * Gets the number of rows fetched from query results.
+       * @return The number of rows.
+       */
+      public long rowsFetched() {
+         return rowsFetched.sum();
+      }
+
+      /**
+       * Gets the number of executions that exceeded the slow query threshold.
+       * @return The number of executions.
+       */
+      public long slowCount() {
+         return slowCount.sum();
+      }
+
+      @Override
+      public String toString() {
+         return sql + " [" + executeTimes + ", rows=" + rowsFetched() + ", slow=" + slowCount() + "]";
+      }
+
+      private final String sql;
+      private final LatencyHistogram executeTimes = new LatencyHistogram();
+      private final LongAdder rowsFetched = new LongAdder();
+      private final LongAdder slowCount = new LongAdder();
+   }
+
+   /**
+    * Handles calls to a sampled connection.
+    */
+   private final class ConnectionHandle implements InvocationHandler {
+
+      ConnectionHandle(final Connection conn) {
+         this.conn = conn;
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+         final Object result = delegate(conn, method, args);
+         if(result instanceof Statement) {
+            final String sql = args != null && args.length > 0 && args[0] instanceof String ? (String)args[0] : null;
+            return Proxy.newProxyInstance(InstrumentedSupplier.class.getClassLoader(),
+                    new Class<?>[] {method.getReturnType()}, new StatementHandle((Statement)result, sql));
+         } else {
+            return result;
+         }
+      }
+
+      private final Connection conn;
+   }
+
+   /**
+    * Handles calls to a statement created by a sampled connection.
+    */
+   private final class StatementHandle implements InvocationHandler {
+
+      StatementHandle(final Statement stmt, final String preparedSQL) {
+         this.stmt = stmt;
+         this.preparedSQL = preparedSQL;
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+         if(!method.getName().startsWith("execute")) {
+            return delegate(stmt, method, args);
+         }
+
+         final String sql = args != null && args.length > 0 && args[0] instanceof String ? (String)args[0] : preparedSQL;
+         final QueryStats stats = stats(sql);
+         final long startNanos = System.nanoTime();
+         try {
+            final Object result = delegate(stmt, method, args);
+            if(result instanceof ResultSet) {
+               return Proxy.newProxyInstance(InstrumentedSupplier.class.getClassLoader(),
+                       RESULT_SET_INTERFACES, new ResultSetHandle((ResultSet)result, stats));
+            } else {
+               return result;
+            }
+         } finally {
+            final long elapsedNanos = System.nanoTime() - startNanos;
+            stats.executeTimes.record(elapsedNanos);
+            if(elapsedNanos >= slowQueryThresholdNanos) {
+               stats.slowCount.increment();
+               logger.warn(String.format("Slow query (%d ms): %s",
+                       TimeUnit.NANOSECONDS.toMillis(elapsedNanos), stats.sql));
+            }
+         }
+      }
+
+      private final Statement stmt;
+      private final String preparedSQL;
+   }
+
+   /**
+    * Counts rows fetched from a result set.
+    */
+   private static final class ResultSetHandle implements InvocationHandler {
+
+      ResultSetHandle(final ResultSet rs, final QueryStats stats) {
+         this.rs = rs;
+         this.stats = stats;
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+         final Object result = delegate(rs, method, args);
+         if(method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+            stats.rowsFetched.increment();
+         }
+         return result;
+      }
+
+      private final ResultSet rs;
+      private final QueryStats stats;
+   }
+
+   /**
+    * The name recorded for statements that exceed the maximum number of distinct statements.
+    */
+   public static final String OTHER_SQL = "[other]";
+
+   /**
+    * Creates an instrumented supplier.
+    * @param supplier The supplier of connections.
+    * @param sampleRate The fraction of connections for which statements are timed, {@code 0.0 - 1.0}.
+    * @param slowQueryThreshold Sampled executions that take at least this long are logged.
+    * @param slowQueryThresholdUnits The threshold units.
+    * @param maxStatements The maximum number of distinct normalized statements tracked.
+    * @param logger The logger for slow queries. May be {@code null}.
+    */
+   public InstrumentedSupplier(final ConnectionSupplier supplier, final double sampleRate,
+                               final long slowQueryThreshold, final TimeUnit slowQueryThresholdUnits,
+                               final int maxStatements, final Logger logger) {
+      this.supplier = supplier;
+      this.sampleRate = sampleRate;
+      this.slowQueryThresholdNanos = slowQueryThresholdUnits.toNanos(slowQueryThreshold);
+      this.maxStatements = maxStatements;
+      this.logger = logger != null ? logger : new NOOPLogger();
+      this.normalizedCache = CacheBuilder.newBuilder().maximumSize(maxStatements * 4L).build();
+   }
+
+   @Override
+   public Connection getConnection() throws SQLException {
+      final long startNanos = System.nanoTime();
+      final Connection conn = supplier.getConnection();
+      acquireTimes.record(System.nanoTime() - startNanos);
+      if(sampleRate >= 1.0 || (sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+         return (Connection)Proxy.newProxyInstance(InstrumentedSupplier.class.getClassLoader(),
+                 CONNECTION_INTERFACES, new ConnectionHandle(conn));
+      } else {
+         return conn;
+      }
+   }
+
+   /**
+    * Gets the connection acquire time histogram.
+    * @return The histogram.
+    */
+   public LatencyHistogram acquireTimes() {
+      return acquireTimes;
+   }
+
+   /**
+    * Gets statistics for all tracked statements.
+    * @return The statistics vs normalized SQL.
+    */
+   public Map<String, QueryStats> queryStats() {
+      return ImmutableMap.copyOf(queryStats);
+   }
+
+   /**
+    * Gets the statistics for a statement.
+    * @param sql The SQL.
+    * @return The statistics.
+    */
+   private QueryStats stats(final String sql) {
+      final String normalized = sql != null ? normalizedCache.asMap().computeIfAbsent(sql, InstrumentedSupplier::normalize) : OTHER_SQL;
+      QueryStats stats = queryStats.get(normalized);
+      if(stats == null) {
+         if(queryStats.size() >= maxStatements) {
+            return queryStats.computeIfAbsent(OTHER_SQL, QueryStats::new);
+         }
+         stats = queryStats.computeIfAbsent(normalized, QueryStats::new);
+      }
+      return stats;
+   }
+
+   /**
+    * Normalizes SQL by replacing string and numeric literals with '?', collapsing
+    * lists of parameters in parentheses to a single parameter, and collapsing whitespace.
+    * @param sql The SQL.
+    * @return The normalized SQL.
+    */
+   public static String normalize(final String sql) {
+      final StringBuilder buf = new StringBuilder(sql.length());
+      final int len = sql.length();
+      int i = 0;
+      while(i < len) {
+         char ch = sql.charAt(i);
+         if(ch == '\'') {
+            i++;
+            while(i < len) {
+               if(sql.charAt(i) == '\'') {
+                  if(i + 1 < len && sql.charAt(i + 1) == '\'') {
+                     i += 2;
+                     continue;
+                  }
+                  break;
+               }
+               i++;
+            }
+            i++;
+            buf.append('?');
+         } else if(Character.isDigit(ch) && (buf.length() == 0 || !isIdentifierChar(buf.charAt(buf.length() - 1)))) {
+            while(i < len && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+               i++;
+            }
+            buf.append('?');
+         } else if(Character.isWhitespace(ch)) {
+            while(i < len && Character.isWhitespace(sql.charAt(i))) {
+               i++;
+            }
+            if(buf.length() > 0) {
+               buf.append(' ');
+            }
+         } else {
+            buf.append(ch);
+            i++;
+         }
+      }
+
+      //Collapse parameter lists, e.g. "(?, ?, ?)" to "(?)".
+      int start;
+      int from = 0;
+      while((start = buf.indexOf("(?", from)) >= 0) {
+         int end = start + 2;
+         while(end < buf.length()) {
+            char ch = buf.charAt(end);
+            if(ch == '?' || ch == ',' || ch == ' ') {
+               end++;
+            } else {
+               break;
+            }
+         }
+         if(end < buf.length() && buf.charAt(end) == ')') {
+            buf.replace(start + 1, end, "?");
+         }
+         from = start + 2;
+      }
+
+      int trimmedLength = buf.length();
+      while(trimmedLength > 0 && buf.charAt(trimmedLength - 1) == ' ') {
+         trimmedLength--;
+      }
+      buf.setLength(trimmedLength);
+      return buf.toString();
+   }
+
+   /**
+    * Determine if a character may be part of an identifier.
+    * @param ch The character.
+    * @return Is the character part of an identifier?
+    */
+   private static boolean isIdentifierChar(final char ch) {
+      return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$' || ch == '.';
+   }
+
+   /**
+    * Invokes a method on a target, unwrapping any exception thrown.
+    * @param target The target.
+    * @param method The method.
+    * @param args The arguments.
+    * @return The result.
+    * @throws Throwable on invocation error.
+    */
+   private static Object delegate(final Object target, final Method method, final Object[] args) throws Throwable {
+      try {
+         return method.invoke(target, args);
+      } catch(InvocationTargetException ite) {
+         throw ite.getCause();
+      }
+   }
+
+   private static final Class<?>[] CONNECTION_INTERFACES = new Class<?>[] {Connection.class};
+   private static final Class<?>[] RESULT_SET_INTERFACES = new Class<?>[] {ResultSet.class};
+
+   /**
+    * The supplier of connections.
+    */
+   private final ConnectionSupplier supplier;
+
+   /**
+    * The fraction of connections sampled.
+    */
+   private final double sampleRate;
+
+   /**
+    * The slow query threshold.
+    */
+   private final long slowQueryThresholdNanos;
+
+   /**
+    * The maximum number of distinct statements tracked.
+    */
+   private final int maxStatements;
+
+   /**
+    * The logger.
+    */
+   private final Logger logger;
+
+   /**
+    * The acquire time histogram.
+    */
+   private final LatencyHistogram acquireTimes = new LatencyHistogram();
+
+   /**
+    * Statistics vs normalized SQL.
+    */
+   private final ConcurrentMap<String, QueryStats> queryStats = new ConcurrentHashMap<>();
+
+   /**
+    * Normalized SQL vs SQL.
+    */
+   private final Cache<String, String> normalizedCache;
+}
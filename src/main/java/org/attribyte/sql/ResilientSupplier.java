@@ -0,0 +1,514 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.sql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.attribyte.api.DatastoreException;
+import org.attribyte.api.Logger;
+import org.attribyte.api.NOOPLogger;
+import org.attribyte.util.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Supplies connections with bounded concurrency, an acquisition deadline and a circuit breaker.
+ * <p>
+ * At most {@code maxConcurrent} acquisitions run at once. A caller waits for a permit and
+ * for the connection only until the deadline. Acquisitions run on a separate thread, so a caller
+ * is never blocked beyond the deadline by a slow database. A connection that arrives after
+ * its caller gave up is closed. Its permit is held until then.
+ * </p>
+ * <p>
+ * The circuit breaker records the outcome of the last {@code windowSize} acquisitions.
+ * When at least {@code minimumCalls} are recorded and the failure rate or the rate of
+ * acquisitions slower than the slow threshold reaches its limit, the breaker opens and acquisitions
+ * fail immediately. After the open duration, the breaker is half-open and allows {@code probeCount}
+ * probe acquisitions. If all succeed, the breaker closes. If any fails, it opens again.
+ * </p>
+ */
+public class ResilientSupplier implements ConnectionSupplier, AutoCloseable {
+
+   /**
+    * The circuit breaker state.
+    */
+   public enum State {
+
+      /**
+       * Acquisitions are allowed.
+       */
+      CLOSED,
+
+      /**
+       * Acquisitions fail immediately.
+       */
+      OPEN,
+
+      /**
+       * A limited number of probe acquisitions are allowed.
+       */
+      HALF_OPEN
+   }
+
+   /**
+    * Circuit breaker and deadline settings.
+    */
+   public static final class Config {
+
+      /**
+       * Creates settings.
+       * @param maxConcurrent The maximum number of concurrent acquisitions.
+       * @param deadlineMillis The maximum time a caller waits for a connection.
+       * @param slowCallMillis Acquisitions that take at least this long are slow.
+       * @param failureRateThreshold The failure rate, {@code 0.0 - 1.0}, that opens the breaker.
+       * @param slowRateThreshold The slow acquisition rate, {@code 0.0 - 1.0}, that opens the breaker.
+       * @param windowSize The number of recent acquisitions considered.
+       * @param minimumCalls The minimum number of recorded acquisitions before the breaker may open.
+       * @param openMillis The time the breaker stays open before allowing probes.
+       * @param probeCount The number of successful probes required to close the breaker.
+       */
+      public Config(final int maxConcurrent, final long deadlineMillis, final long slowCallMillis,
+                    final double failureRateThreshold, final double slowRateThreshold,
+                    final int windowSize, final int minimumCalls,
+                    final long openMillis, final int probeCount) {
+         this.maxConcurrent = maxConcurrent;
+         this.deadlineMillis = deadlineMillis;
+         this.slowCallMillis = slowCallMillis;
+         this.failureRateThreshold = failureRateThreshold;
+         this.slowRateThreshold = slowRateThreshold;
+         this.windowSize = windowSize;
+         this.minimumCalls = Math.min(minimumCalls, windowSize);
+         this.openMillis = openMillis;
+         this.probeCount = probeCount;
+      }
+
+      /**
+       * The maximum number of concurrent acquisitions.
+       */
+      public final int maxConcurrent;
+
+      /**
+       * The maximum time a caller waits for a connection.
+       */
+      public final long deadlineMillis;
+
+      /**
+       * Acquisitions that take at least this long are slow.
+       */
+      public final long slowCallMillis;
+
+      /**
+       * The failure rate that opens the breaker.
+       */
+      public final double failureRateThreshold;
+
+      /**
+       * The slow acquisition rate that opens the breaker.
+       */
+      public final double slowRateThreshold;
+
+      /**
+       * The number of recent acquisitions considered.
+       */
+      public final int windowSize;
+
+      /**
+       * The minimum number of recorded acquisitions before the breaker may open.
+       */
+      public final int minimumCalls;
+
+      /**
+       * The time the breaker stays open before allowing probes.
+       */
+      public final long openMillis;
+
+      /**
+       * The number of successful probes required to close the breaker.
+       */
+      public final int probeCount;
+   }
+
+   /**
+    * Creates a resilient supplier.
+    * @param name The name used in messages.
+    * @param supplier The supplier of connections.
+    * @param config The settings.
+    * @param logger A logger for state changes. May be {@code null}.
+    */
+   public ResilientSupplier(final String name, final ConnectionSupplier supplier, final Config config,
+                            final Logger logger) {
+      this.name = name;
+      this.supplier = supplier;
+      this.config = config;
+      this.logger = logger != null ? logger : new NOOPLogger();
+      this.permits = new Semaphore(config.maxConcurrent, true);
+      this.outcomes = new byte[config.windowSize];
+      this.acquirer = Executors.newCachedThreadPool(
+              new ThreadFactoryBuilder().setNameFormat("resilient-supplier-" + name + "-%d").setDaemon(true).build()
+      );
+   }
+
+   /**
+    * Gets a connection.
+    * @return The connection.
+    * @throws SQLException if the delegate fails or a {@code SQLTransientConnectionException}
+    * caused by a {@code DatastoreException} if the breaker is open or the deadline was reached.
+    */
+   @Override
+   public Connection getConnection() throws SQLException {
+      try {
+         return acquire();
+      } catch(DatastoreException de) {
+         if(de.getCause() instanceof SQLException) {
+            throw (SQLException)de.getCause();
+         } else {
+            throw new SQLTransientConnectionException(de.getMessage(), de);
+         }
+      }
+   }
+
+   /**
+    * Gets a connection.
+    * @return The connection.
+    * @throws DatastoreException if the breaker is open, the deadline was reached or the delegate failed.
+    */
+   public Connection acquire() throws DatastoreException {
+
+      final boolean probe = allowRequest();
+      final long startNanos = System.nanoTime();
+      final long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(config.deadlineMillis);
+
+      try {
+         if(!permits.tryAcquire(config.deadlineMillis, TimeUnit.MILLISECONDS)) {
+            bulkheadRejectedCount.incrementAndGet();
+            record(probe, OUTCOME_FAILURE);
+            throw new DatastoreException(String.format("Timeout waiting for a connection permit from '%s'", name));
+         }
+      } catch(InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         releaseProbe(probe);
+         throw new DatastoreException(String.format("Interrupted waiting for a connection from '%s'", name), ie);
+      }
+
+      final CompletableFuture<Connection> future = new CompletableFuture<>();
+      try {
+         acquirer.execute(() -> {
+            try {
+               future.complete(supplier.getConnection());
+            } catch(Throwable t) {
+               future.completeExceptionally(t);
+            } finally {
+               permits.release();
+            }
+         });
+      } catch(RuntimeException re) {
+         permits.release();
+         record(probe, OUTCOME_FAILURE);
+         throw new DatastoreException(String.format("Unable to acquire a connection from '%s'", name), re);
+      }
+
+      try {
+         final Connection conn = future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+         final long elapsedNanos = System.nanoTime() - startNanos;
+         acquireTimes.record(elapsedNanos);
+         successCount.incrementAndGet();
+         record(probe, elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(config.slowCallMillis) ? OUTCOME_SLOW : OUTCOME_SUCCESS);
+         return conn;
+      } catch(TimeoutException te) {
+         timeoutCount.incrementAndGet();
+         record(probe, OUTCOME_FAILURE);
+         future.thenAccept(ResilientSupplier::closeQuietly);
+         throw new DatastoreException(String.format("Timeout acquiring a connection from '%s' after %d ms", name, config.deadlineMillis), te);
+      } catch(ExecutionException ee) {
+         failureCount.incrementAndGet();
+         record(probe, OUTCOME_FAILURE);
+         throw new DatastoreException(String.format("Unable to acquire a connection from '%s'", name), ee.getCause());
+      } catch(InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         releaseProbe(probe);
+         future.thenAccept(ResilientSupplier::closeQuietly);
+         throw new DatastoreException(String.format("Interrupted waiting for a connection from '%s'", name), ie);
+      }
+   }
+
+   /**
+    * Determine if a request is allowed, transitioning from open to half-open if the open time has elapsed.
+    * @return Is the request a half-open probe?
+    * @throws DatastoreException if the breaker is open.
+    */
+   private synchronized boolean allowRequest() throws DatastoreException {
+      if(state == State.CLOSED) {
+         return false;
+      }
+
+      if(state == State.OPEN) {
+         if(System.currentTimeMillis() - openedTime < config.openMillis) {
+            rejectedCount.incrementAndGet();
+            throw new DatastoreException(String.format("The circuit breaker for '%s' is open", name));
+         }
+         transition(State.HALF_OPEN);
+      }
+
+      if(probesInFlight + probeSuccesses >= config.probeCount) {
+         rejectedCount.incrementAndGet();
+         throw new DatastoreException(String.format("The circuit breaker for '%s' is half-open", name));
+      }
+      probesInFlight++;
+      return true;
+   }
+
+   /**
+    * Releases a probe without recording an outcome.
+    * @param probe Was the request a probe?
+    */
+   private synchronized void releaseProbe(final boolean probe) {
+      if(probe && state == State.HALF_OPEN) {
+         probesInFlight--;
+      }
+   }
+
+   /**
+    * Records an outcome and updates the breaker state.
+    * @param probe Was the request a probe?
+    * @param outcome The outcome.
+    */
+   private synchronized void record(final boolean probe, final byte outcome) {
+
+      if(probe) {
+         if(state != State.HALF_OPEN) {
+            return;
+         }
+         probesInFlight--;
+         if(outcome == OUTCOME_FAILURE || outcome == OUTCOME_SLOW) {
+            transition(State.OPEN);
+         } else if(++probeSuccesses >= config.probeCount) {
+            transition(State.CLOSED);
+         }
+         return;
+      }
+
+      if(state != State.CLOSED) {
+         return;
+      }
+
+      final byte prev = outcomes[outcomeIndex];
+      if(outcomeCount == outcomes.length) {
+         if(prev == OUTCOME_FAILURE) windowFailures--;
+         else if(prev == OUTCOME_SLOW) windowSlow--;
+      } else {
+         outcomeCount++;
+      }
+      outcomes[outcomeIndex] = outcome;
+      outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+      if(outcome == OUTCOME_FAILURE) windowFailures++;
+      else if(outcome == OUTCOME_SLOW) windowSlow++;
+
+      if(outcomeCount >= config.minimumCalls &&
+              (failureRate() >= config.failureRateThreshold || slowRate() >= config.slowRateThreshold)) {
+         transition(State.OPEN);
+      }
+   }
+
+   /**
+    * Changes the breaker state.
+    * @param newState The new state.
+    */
+   private void transition(final State newState) {
+      if(newState == state) {
+         return;
+      }
+      logger.warn(String.format("Circuit breaker for '%s' changed from %s to %s (failure rate: %.2f, slow rate: %.2f)",
+              name, state, newState, failureRate(), slowRate()));
+      state = newState;
+      stateTransitionCount.incrementAndGet();
+      switch(newState) {
+         case OPEN:
+            openedTime = System.currentTimeMillis();
+            break;
+         case HALF_OPEN:
+            probesInFlight = 0;
+            probeSuccesses = 0;
+            break;
+         case CLOSED:
+            outcomeCount = 0;
+            outcomeIndex = 0;
+            windowFailures = 0;
+            windowSlow = 0;
+            break;
+      }
+   }
+
+   /**
+    * Gets the breaker state.
+    * @return The state.
+    */
+   public synchronized State getState() {
+      if(state == State.OPEN && System.currentTimeMillis() - openedTime >= config.openMillis) {
+         return State.HALF_OPEN;
+      }
+      return state;
+   }
+
+   /**
+    * Gets the failure rate in the current window.
+    * @return The failure rate, {@code 0.0 - 1.0}.
+    */
+   public synchronized double failureRate() {
+      return outcomeCount == 0 ? 0.0 : (double)windowFailures / (double)outcomeCount;
+   }
+
+   /**
+    * Gets the slow acquisition rate in the current window.
+    * @return The slow rate, {@code 0.0 - 1.0}.
+    */
+   public synchronized double slowRate() {
+      return outcomeCount == 0 ? 0.0 : (double)windowSlow / (double)outcomeCount;
+   }
+
+   /**
+    * Gets the successful acquisition time histogram.
+    * @return The histogram.
+    */
+   public LatencyHistogram acquireTimes() {
+      return acquireTimes;
+   }
+
+   /**
+    * Gets the number of acquisitions currently in progress.
+    * @return The number of acquisitions.
+    */
+   public int getActiveCount() {
+      return config.maxConcurrent - permits.availablePermits();
+   }
+
+   /**
+    * Gets the number of successful acquisitions.
+    * @return The number of acquisitions.
+    */
+   public long getSuccessCount() {
+      return successCount.get();
+   }
+
+   /**
+    * Gets the number of acquisitions that failed in the delegate.
+    * @return The number of acquisitions.
+    */
+   public long getFailureCount() {
+      return failureCount.get();
+   }
+
+   /**
+    * Gets the number of acquisitions that reached the deadline.
+    * @return The number of acquisitions.
+    */
+   public long getTimeoutCount() {
+      return timeoutCount.get();
+   }
+
+   /**
+    * Gets the number of acquisitions that could not get a permit before the deadline.
+    * @return The number of acquisitions.
+    */
+   public long getBulkheadRejectedCount() {
+      return bulkheadRejectedCount.get();
+   }
+
+   /**
+    * Gets the number of acquisitions rejected by the breaker.
+    * @return The number of acquisitions.
+    */
+   public long getRejectedCount() {
+      return rejectedCount.get();
+   }
+
+   /**
+    * Gets the number of breaker state changes.
+    * @return The number of changes.
+    */
+   public long getStateTransitionCount() {
+      return stateTransitionCount.get();
+   }
+
+   /**
+    * Stops the acquisition threads.
+    */
+   @Override
+   public void close() {
+      acquirer.shutdownNow();
+   }
+
+   /**
+    * Closes a connection, ignoring errors.
+    * @param conn The connection.
+    */
+   private static void closeQuietly(final Connection conn) {
+      try {
+         conn.close();
+      } catch(SQLException se) {
+         //Ignore
+      }
+   }
+
+   private static final byte OUTCOME_SUCCESS = 0;
+   private static final byte OUTCOME_FAILURE = 1;
+   private static final byte OUTCOME_SLOW = 2;
+
+   private final String name;
+   private final ConnectionSupplier supplier;
+   private final Config config;
+   private final Logger logger;
+
+   /**
+    * Bounds concurrent acquisitions.
+    */
+   private final Semaphore permits;
+
+   /**
+    * Runs acquisitions so callers may give up at the deadline.
+    */
+   private final ExecutorService acquirer;
+
+   /**
+    * The outcome ring for the current window.
+    */
+   private final byte[] outcomes;
+   private int outcomeIndex;
+   private int outcomeCount;
+   private int windowFailures;
+   private int windowSlow;
+
+   private State state = State.CLOSED;
+   private long openedTime;
+   private int probesInFlight;
+   private int probeSuccesses;
+
+   private final LatencyHistogram acquireTimes = new LatencyHistogram();
+   private final AtomicLong successCount = new AtomicLong();
+   private final AtomicLong failureCount = new AtomicLong();
+   private final AtomicLong timeoutCount = new AtomicLong();
+   private final AtomicLong bulkheadRejectedCount = new AtomicLong();
+   private final AtomicLong rejectedCount = new AtomicLong();
+   private final AtomicLong stateTransitionCount = new AtomicLong();
+}
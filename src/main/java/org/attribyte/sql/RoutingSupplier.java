@@ -0,0 +1,524 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.sql;
+
+import com.google.common.collect.ImmutableList;
+import org.attribyte.api.Logger;
+import org.attribyte.api.NOOPLogger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Supplies connections that route read-only work to replicas and everything else to a primary.
+ * <p>
+ * A connection is not acquired until it is first used. If the first statement is prepared
+ * for a {@code SELECT} (not {@code FOR UPDATE}) with auto-commit enabled, or the connection
+ * was marked read-only, a replica connection is acquired. Otherwise, the primary is used.
+ * If a connection routed to a replica by its first statement later writes, or disables auto-commit,
+ * that call and all that follow use a newly acquired primary connection. The replica connection stays
+ * open until the connection is closed. Connections explicitly marked read-only are never moved.
+ * After a thread uses the primary for a write, its reads are routed to the primary
+ * for the pin window, so the thread reads its own writes despite replication lag.
+ * </p>
+ * <p>
+ * Replicas are chosen by least outstanding connections (relative to weight) or weighted round-robin.
+ * A replica that fails to supply a connection is ejected for a time. If no replica is available,
+ * the primary is used.
+ * </p>
+ */
+public class RoutingSupplier implements ConnectionSupplier {
+
+   /**
+    * The replica selection strategy.
+    */
+   public enum Strategy {
+
+      /**
+       * Choose the replica with the fewest open connections relative to its weight.
+       */
+      LEAST_OUTSTANDING,
+
+      /**
+       * Choose replicas in turn, in proportion to their weight.
+       */
+      WEIGHTED_ROUND_ROBIN
+   }
+
+   /**
+    * A replica.
+    */
+   public static final class Node {
+
+      /**
+       * Creates a replica node.
+       * @param name The name.
+       * @param supplier Supplies connections to the replica.
+       * @param weight The relative weight. Must be > 0.
+       */
+      public Node(final String name, final ConnectionSupplier supplier, final int weight) {
+         if(weight < 1) {
+            throw new IllegalArgumentException("The 'weight' must be > 0");
+         }
+         this.name = name;
+         this.supplier = supplier;
+         this.weight = weight;
+      }
+
+      /**
+       * Gets the number of open connections to this node.
+       * @return The number of connections.
+       */
+      public int outstanding() {
+         return outstanding.get();
+      }
+
+      /**
+       * Is the node ejected?
+       * @return Is the node ejected?
+       */
+      public boolean isEjected() {
+         return System.currentTimeMillis() < ejectedUntil;
+      }
+
+      @Override
+      public String toString() {
+         return name;
+      }
+
+      /**
+       * The name.
+       */
+      public final String name;
+
+      /**
+       * The connection supplier.
+       */
+      final ConnectionSupplier supplier;
+
+      /**
+       * The weight.
+       */
+      public final int weight;
+
+      /**
+       * The number of open connections.
+       */
+      final AtomicInteger outstanding = new AtomicInteger();
+
+      /**
+       * The time until which the node is ejected.
+       */
+      volatile long ejectedUntil;
+   }
+
+   /**
+    * Handles calls to a routed connection, acquiring the connection on first use.
+    */
+   private final class RoutedConnection implements InvocationHandler {
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+         if(conn == null) {
+            switch(method.getName()) {
+               case "close":
+                  closed = true;
+                  return null;
+               case "isClosed":
+                  return closed;
+               case "equals":
+                  return proxy == args[0];
+               case "hashCode":
+                  return System.identityHashCode(proxy);
+               case "toString":
+                  return "Unrouted connection";
+               case "setAutoCommit":
+                  autoCommit = (Boolean)args[0];
+                  return null;
+               case "getAutoCommit":
+                  return autoCommit;
+               case "setReadOnly":
+                  readOnly = (Boolean)args[0];
+                  return null;
+               case "isReadOnly":
+                  return readOnly;
+            }
+
+            if(closed) {
+               throw new SQLException("The connection is closed");
+            }
+
+            final String sql = method.getName().startsWith("prepare") && args != null && args[0] instanceof String ?
+                    (String)args[0] : null;
+            bind(readOnly || (autoCommit && sql != null && isRead(sql)));
+         }
+
+         if(method.getName().equals("close")) {
+            if(!closed) {
+               closed = true;
+               if(node != null) {
+                  node.outstanding.decrementAndGet();
+               }
+               if(replicaConn != null) {
+                  closeQuietly(replicaConn);
+               }
+            }
+         } else if(isWrite(method, args) || isTransactionStart(method, args)) {
+            if(node != null && !readOnly && replicaConn == null) {
+               switchToPrimary();
+            }
+            if(replicaConn != null || node == null) {
+               pin();
+            }
+         }
+
+         try {
+            return method.invoke(conn, args);
+         } catch(InvocationTargetException ite) {
+            throw ite.getCause();
+         }
+      }
+
+      /**
+       * Moves a connection routed to a replica by its first statement to the primary.
+       * <p>
+       * The replica connection stays open, so statements and results already
+       * created on it remain usable, and is closed with this connection.
+       * </p>
+       * @throws SQLException if no primary connection could be acquired.
+       */
+      private void switchToPrimary() throws SQLException {
+         Connection primaryConn = primary.getConnection();
+         primaryCount.incrementAndGet();
+         switchCount.incrementAndGet();
+         replicaConn = conn;
+         conn = primaryConn;
+      }
+
+      /**
+       * Acquires the connection.
+       * @param read Is the work read-only?
+       * @throws SQLException if no connection could be acquired.
+       */
+      private void bind(final boolean read) throws SQLException {
+         if(read && System.currentTimeMillis() >= pinnedUntil.get()) {
+            for(int attempt = 0; attempt < replicas.size(); attempt++) {
+               Node candidate = select();
+               if(candidate == null) {
+                  break;
+               }
+               candidate.outstanding.incrementAndGet();
+               try {
+                  conn = candidate.supplier.getConnection();
+                  node = candidate;
+                  break;
+               } catch(SQLException se) {
+                  candidate.outstanding.decrementAndGet();
+                  candidate.ejectedUntil = System.currentTimeMillis() + ejectTimeMillis;
+                  ejectionCount.incrementAndGet();
+                  logger.warn(String.format("Ejecting replica, '%s' for %d ms", candidate.name, ejectTimeMillis), se);
+               }
+            }
+         }
+
+         if(conn == null) {
+            conn = primary.getConnection();
+            primaryCount.incrementAndGet();
+         } else {
+            replicaCount.incrementAndGet();
+         }
+
+         if(!autoCommit) {
+            conn.setAutoCommit(false);
+         }
+         if(readOnly) {
+            conn.setReadOnly(true);
+         }
+      }
+
+      private Connection conn;
+      private Node node;
+
+      /**
+       * The replica connection, retained after a switch to the primary.
+       */
+      private Connection replicaConn;
+      private boolean closed;
+      private boolean autoCommit = true;
+      private boolean readOnly;
+   }
+
+   /**
+    * Creates a routing supplier.
+    * @param primary Supplies connections to the primary.
+    * @param replicas The replicas.
+    * @param strategy The replica selection strategy.
+    * @param pinWindow The time reads are routed to the primary after a thread writes.
+    * @param ejectTime The time a replica is ejected after it fails to supply a connection.
+    * @param units The time units.
+    * @param logger A logger. May be {@code null}.
+    */
+   public RoutingSupplier(final ConnectionSupplier primary, final List<Node> replicas, final Strategy strategy,
+                          final long pinWindow, final long ejectTime, final TimeUnit units, final Logger logger) {
+      this.primary = primary;
+      this.replicas = ImmutableList.copyOf(replicas);
+      this.strategy = strategy;
+      this.pinWindowMillis = units.toMillis(pinWindow);
+      this.ejectTimeMillis = units.toMillis(ejectTime);
+      this.logger = logger != null ? logger : new NOOPLogger();
+      this.schedule = roundRobinSchedule(this.replicas);
+   }
+
+   /**
+    * Gets a connection. The primary or a replica is chosen when the connection is first used.
+    * @return The connection.
+    */
+   @Override
+   public Connection getConnection() {
+      return (Connection)Proxy.newProxyInstance(RoutingSupplier.class.getClassLoader(),
+              CONNECTION_INTERFACES, new RoutedConnection());
+   }
+
+   /**
+    * Routes reads on the current thread to the primary for the pin window.
+    * <p>
+    * Writes through this supplier pin automatically. Call this after writes
+    * made some other way.
+    * </p>
+    */
+   public void pin() {
+      pinnedUntil.set(System.currentTimeMillis() + pinWindowMillis);
+   }
+
+   /**
+    * Gets the replicas.
+    * @return The replicas.
+    */
+   public List<Node> replicas() {
+      return replicas;
+   }
+
+   /**
+    * Gets the number of connections acquired from the primary.
+    * @return The number of connections.
+    */
+   public long getPrimaryCount() {
+      return primaryCount.get();
+   }
+
+   /**
+    * Gets the number of connections acquired from replicas.
+    * @return The number of connections.
+    */
+   public long getReplicaCount() {
+      return replicaCount.get();
+   }
+
+   /**
+    * Gets the number of connections routed to a replica by their first statement
+    * that were moved to the primary for a write or transaction.
+    * @return The number of connections.
+    */
+   public long getSwitchCount() {
+      return switchCount.get();
+   }
+
+   /**
+    * Gets the number of times a replica was ejected.
+    * @return The number of ejections.
+    */
+   public long getEjectionCount() {
+      return ejectionCount.get();
+   }
+
+   /**
+    * Selects a replica that is not ejected.
+    * @return The replica or {@code null} if all are ejected.
+    */
+   private Node select() {
+      final long currTime = System.currentTimeMillis();
+      switch(strategy) {
+         case WEIGHTED_ROUND_ROBIN:
+            final long start = roundRobinIndex.getAndIncrement();
+            for(int i = 0; i < schedule.length; i++) {
+               Node node = replicas.get(schedule[(int)Math.floorMod(start + i, (long)schedule.length)]);
+               if(currTime >= node.ejectedUntil) {
+                  return node;
+               }
+            }
+            return null;
+         default:
+            Node best = null;
+            double bestLoad = Double.MAX_VALUE;
+            final int offset = (int)Math.floorMod(roundRobinIndex.getAndIncrement(), (long)Math.max(1, replicas.size()));
+            for(int i = 0; i < replicas.size(); i++) {
+               Node node = replicas.get((offset + i) % replicas.size());
+               if(currTime >= node.ejectedUntil) {
+                  double load = (double)node.outstanding.get() / (double)node.weight;
+                  if(load < bestLoad) {
+                     best = node;
+                     bestLoad = load;
+                  }
+               }
+            }
+            return best;
+      }
+   }
+
+   /**
+    * Creates an interleaved schedule of replica indexes, each appearing in proportion to its weight.
+    * @param replicas The replicas.
+    * @return The schedule.
+    */
+   private static int[] roundRobinSchedule(final List<Node> replicas) {
+      int totalWeight = 0;
+      for(Node node : replicas) {
+         totalWeight += node.weight;
+      }
+      final int[] schedule = new int[totalWeight];
+      final int[] current = new int[replicas.size()];
+      for(int slot = 0; slot < totalWeight; slot++) {
+         int best = 0;
+         for(int i = 0; i < replicas.size(); i++) {
+            current[i] += replicas.get(i).weight;
+            if(current[i] > current[best]) {
+               best = i;
+            }
+         }
+         current[best] -= totalWeight;
+         schedule[slot] = best;
+      }
+      return schedule;
+   }
+
+   /**
+    * Determine if a connection method may write.
+    * @param method The method.
+    * @param args The arguments.
+    * @return Is the method {@code createStatement}, {@code commit}, or prepares SQL other than a read?
+    */
+   private static boolean isWrite(final Method method, final Object[] args) {
+      switch(method.getName()) {
+         case "createStatement":
+         case "commit":
+            return true;
+         case "prepareStatement":
+         case "prepareCall":
+            return !isRead((String)args[0]);
+         default:
+            return false;
+      }
+   }
+
+   /**
+    * Determine if a connection method starts a transaction.
+    * @param method The method.
+    * @param args The arguments.
+    * @return Is the method {@code setAutoCommit(false)}?
+    */
+   private static boolean isTransactionStart(final Method method, final Object[] args) {
+      return method.getName().equals("setAutoCommit") && Boolean.FALSE.equals(args[0]);
+   }
+
+   /**
+    * Closes a connection, ignoring errors.
+    * @param conn The connection.
+    */
+   private static void closeQuietly(final Connection conn) {
+      try {
+         conn.close();
+      } catch(SQLException se) {
+         //Ignore
+      }
+   }
+
+   /**
+    * Determine if SQL only reads.
+    * @param sql The SQL.
+    * @return Is the SQL a {@code SELECT} without {@code FOR UPDATE}?
+    */
+   static boolean isRead(final String sql) {
+      int start = 0;
+      while(start < sql.length() && (Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '(')) {
+         start++;
+      }
+      return sql.regionMatches(true, start, "SELECT", 0, 6) &&
+              !FOR_UPDATE.matcher(sql).find();
+   }
+
+   private static final Pattern FOR_UPDATE = Pattern.compile("\\bFOR\\s+(UPDATE|SHARE)\\b", Pattern.CASE_INSENSITIVE);
+
+   private static final Class<?>[] CONNECTION_INTERFACES = new Class<?>[] {Connection.class};
+
+   /**
+    * Supplies connections to the primary.
+    */
+   private final ConnectionSupplier primary;
+
+   /**
+    * The replicas.
+    */
+   private final ImmutableList<Node> replicas;
+
+   /**
+    * The replica selection strategy.
+    */
+   private final Strategy strategy;
+
+   /**
+    * The time reads are routed to the primary after a write.
+    */
+   private final long pinWindowMillis;
+
+   /**
+    * The time a failed replica is ejected.
+    */
+   private final long ejectTimeMillis;
+
+   /**
+    * The logger.
+    */
+   private final Logger logger;
+
+   /**
+    * The weighted round-robin schedule of replica indexes.
+    */
+   private final int[] schedule;
+
+   /**
+    * The next round-robin position.
+    */
+   private final AtomicLong roundRobinIndex = new AtomicLong();
+
+   /**
+    * The time until which each thread's reads go to the primary.
+    */
+   private final ThreadLocal<Long> pinnedUntil = ThreadLocal.withInitial(() -> 0L);
+
+   private final AtomicLong primaryCount = new AtomicLong();
+   private final AtomicLong replicaCount = new AtomicLong();
+   private final AtomicLong ejectionCount = new AtomicLong();
+   private final AtomicLong switchCount = new AtomicLong();
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.sql;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object.
+ * <p>
+ * Mappers should read columns by index. Use a {@link Factory} to resolve
+ * column labels to indexes once, when the query is executed.
+ * </p>
+ * @param <T> The mapped class.
+ */
+public interface RowMapper<T> {
+
+   /**
+    * Creates a mapper for a query result.
+    * @param <T> The mapped class.
+    */
+   public interface Factory<T> {
+
+      /**
+       * Creates a mapper, resolving column indexes from the result metadata.
+       * @param metadata The result set metadata.
+       * @return The mapper.
+       * @throws SQLException on metadata error or if a required column is missing.
+       */
+      public RowMapper<T> create(ResultSetMetaData metadata) throws SQLException;
+
+      /**
+       * Creates a factory that always returns the same mapper.
+       * @param mapper The mapper.
+       * @param <T> The mapped class.
+       * @return The factory.
+       */
+      public static <T> Factory<T> of(final RowMapper<T> mapper) {
+         return metadata -> mapper;
+      }
+   }
+
+   /**
+    * Maps the current row.
+    * @param rs The result set, positioned at the row.
+    * @return The mapped object.
+    * @throws SQLException on read error.
+    */
+   public T map(ResultSet rs) throws SQLException;
+
+   /**
+    * Finds the index of a column by label, ignoring case.
+    * @param metadata The result set metadata.
+    * @param label The column label.
+    * @return The column index.
+    * @throws SQLException if no column has the label.
+    */
+   public static int columnIndex(final ResultSetMetaData metadata, final String label) throws SQLException {
+      for(int i = 1; i <= metadata.getColumnCount(); i++) {
+         if(metadata.getColumnLabel(i).equalsIgnoreCase(label)) {
+            return i;
+         }
+      }
+      throw new SQLException(String.format("The column, '%s' is not in the result", label));
+   }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.sql;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Supplies connections that cache prepared statements.
+ * <p>
+ * Each physical connection has a bounded, least-recently-used cache of statements
+ * prepared with {@link Connection#prepareStatement(String)}. Closing a cached statement
+ * clears its parameters and returns it to the cache. If a statement for the same SQL is already
+ * in use on the connection, a new, uncached statement is prepared. Statements still open when
+ * their connection is closed or aborted are closed, returning cached statements to the cache.
+ * </p>
+ * <p>
+ * Caches are kept for, and cached statements prepared with, the physical connection, found with {@code unwrap(Connection.class)},
+ * so statements survive connections returned to, and borrowed again from, a pool.
+ * A cache, and its statements, are removed when its physical connection is found to be closed:
+ * when a connection handle is closed, and by a sweep of all caches every {@value #SWEEP_INTERVAL} connections supplied.
+ * Statement properties other than parameters (for example, fetch size and timeout) are not reset when
+ * a statement is returned to the cache.
+ * </p>
+ */
+public class StatementCachingSupplier implements ConnectionSupplier {
+
+   /**
+    * A cached statement.
+    */
+   private static final class CachedStatement {
+
+      CachedStatement(final PreparedStatement stmt) {
+         this.stmt = stmt;
+      }
+
+      /**
+       * The statement.
+       */
+      final PreparedStatement stmt;
+
+      /**
+       * Is the statement in use?
+       */
+      boolean inUse;
+
+      /**
+       * Was the statement evicted while in use?
+       */
+      boolean evicted;
+   }
+
+   /**
+    * The statement cache for a physical connection.
+    */
+   @SuppressWarnings("serial")
+   private final class StatementCache extends LinkedHashMap<String, CachedStatement> {
+
+      StatementCache() {
+         super(16, 0.75f, true);
+      }
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, CachedStatement> eldest) {
+         if(size() <= maxStatements) {
+            return false;
+         }
+         evictionCount.incrementAndGet();
+         CachedStatement cached = eldest.getValue();
+         if(cached.inUse) {
+            cached.evicted = true;
+         } else {
+            closeStatement(cached.stmt);
+         }
+         return true;
+      }
+
+      /**
+       * Gets a statement from the cache or prepares and caches a new one.
+       * @param physical The physical connection.
+       * @param sql The SQL.
+       * @return The statement, marked in use, or {@code null} if the statement for the SQL is already in use.
+       * @throws SQLException on prepare error.
+       */
+      synchronized CachedStatement checkout(final Connection physical, final String sql) throws SQLException {
+         CachedStatement cached = get(sql);
+         if(cached != null) {
+            if(cached.inUse) {
+               missCount.incrementAndGet();
+               return null;
+            } else if(!cached.stmt.isClosed()) {
+               hitCount.incrementAndGet();
+               cached.inUse = true;
+               return cached;
+            } else {
+               remove(sql);
+            }
+         }
+
+         missCount.incrementAndGet();
+         cached = new CachedStatement(physical.prepareStatement(sql));
+         cached.inUse = true;
+         put(sql, cached);
+         return cached;
+      }
+
+      /**
+       * Closes all statements not in use, and marks those in use to be closed on release.
+       */
+      synchronized void closeAll() {
+         for(CachedStatement cached : values()) {
+            if(cached.inUse) {
+               cached.evicted = true;
+            } else {
+               closeStatement(cached.stmt);
+            }
+         }
+         clear();
+      }
+
+      /**
+       * Returns a statement to the cache.
+       * @param cached The statement.
+       */
+      synchronized void release(final CachedStatement cached) {
+         cached.inUse = false;
+         if(cached.evicted) {
+            closeStatement(cached.stmt);
+            return;
+         }
+         try {
+            cached.stmt.clearParameters();
+            cached.stmt.clearWarnings();
+         } catch(SQLException se) {
+            values().remove(cached);
+            closeStatement(cached.stmt);
+         }
+      }
+   }
+
+   /**
+    * Handles calls to a connection.
+    */
+   private final class ConnectionHandle implements InvocationHandler {
+
+      ConnectionHandle(final Connection conn, final Connection physical, final StatementCache cache) {
+         this.conn = conn;
+         this.physical = physical;
+         this.cache = cache;
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+         if(method.getName().equals("prepareStatement") && args.length == 1) {
+            String sql = (String)args[0];
+            CachedStatement cached = cache.checkout(physical, sql);
+            PreparedStatement stmt = cached != null ? cached.stmt : conn.prepareStatement(sql);
+            PreparedStatement stmtProxy = (PreparedStatement)Proxy.newProxyInstance(StatementCachingSupplier.class.getClassLoader(),
+                    STATEMENT_INTERFACES, new StatementHandle(this, cached, stmt, (Connection)proxy));
+            statements.add(stmtProxy);
+            return stmtProxy;
+         }
+         switch(method.getName()) {
+            case "equals":
+               return proxy == args[0];
+            case "hashCode":
+               return System.identityHashCode(proxy);
+            case "close":
+            case "abort":
+               closeStatements();
+               try {
+                  return delegate(conn, method, args);
+               } finally {
+                  removeIfClosed(physical);
+               }
+         }
+         return delegate(conn, method, args);
+      }
+
+      /**
+       * Closes statements prepared with this connection that are still open,
+       * returning cached statements to the cache.
+       */
+      private void closeStatements() {
+         for(PreparedStatement stmt : statements) {
+            closeStatement(stmt);
+         }
+         statements.clear();
+      }
+
+      /**
+       * The connection.
+       */
+      private final Connection conn;
+
+      /**
+       * The physical connection.
+       */
+      private final Connection physical;
+
+      /**
+       * The statement cache.
+       */
+      private final StatementCache cache;
+
+      /**
+       * Statements prepared with this connection and not yet closed.
+       */
+      private final Set<PreparedStatement> statements = Sets.newConcurrentHashSet();
+   }
+
+   /**
+    * Handles calls to a statement prepared with a connection handle.
+    */
+   private static final class StatementHandle implements InvocationHandler {
+
+      StatementHandle(final ConnectionHandle owner, final CachedStatement cached,
+                      final PreparedStatement stmt, final Connection connProxy) {
+         this.owner = owner;
+         this.cached = cached;
+         this.stmt = stmt;
+         this.connProxy = connProxy;
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+         switch(method.getName()) {
+            case "close":
+               if(!closed) {
+                  closed = true;
+                  owner.statements.remove(proxy);
+                  if(cached != null) {
+                     owner.cache.release(cached);
+                  } else {
+                     closeStatement(stmt);
+                  }
+               }
+               return null;
+            case "isClosed":
+               return closed || stmt.isClosed();
+            case "getConnection":
+               return connProxy;
+            case "equals":
+               return proxy == args[0];
+            case "hashCode":
+               return System.identityHashCode(proxy);
+         }
+
+         if(closed) {
+            throw new SQLException("The statement is closed");
+         }
+         return delegate(stmt, method, args);
+      }
+
+      /**
+       * The connection handle that prepared the statement.
+       */
+      private final ConnectionHandle owner;
+
+      /**
+       * The cached statement or {@code null} if the statement is not cached.
+       */
+      private final CachedStatement cached;
+
+      /**
+       * The statement.
+       */
+      private final PreparedStatement stmt;
+
+      /**
+       * The connection returned to the caller.
+       */
+      private final Connection connProxy;
+
+      private volatile boolean closed;
+   }
+
+   /**
+    * Creates a statement-caching supplier.
+    * @param supplier The supplier of connections.
+    * @param maxStatements The maximum number of statements cached for each connection.
+    */
+   public StatementCachingSupplier(final ConnectionSupplier supplier, final int maxStatements) {
+      this.supplier = supplier;
+      this.maxStatements = maxStatements;
+   }
+
+   @Override
+   public Connection getConnection() throws SQLException {
+      Connection conn = supplier.getConnection();
+      Connection physical = conn.isWrapperFor(Connection.class) ? conn.unwrap(Connection.class) : conn;
+      if(physical == null) {
+         physical = conn;
+      }
+      if(suppliedCount.incrementAndGet() % SWEEP_INTERVAL == 0) {
+         sweep();
+      }
+      StatementCache cache = caches.computeIfAbsent(physical, c -> new StatementCache());
+      return (Connection)Proxy.newProxyInstance(StatementCachingSupplier.class.getClassLoader(),
+              CONNECTION_INTERFACES, new ConnectionHandle(conn, physical, cache));
+   }
+
+   /**
+    * Removes the caches, and closes the statements, for all physical connections that are closed.
+    */
+   public void sweep() {
+      for(Connection physical : caches.keySet()) {
+         removeIfClosed(physical);
+      }
+   }
+
+   /**
+    * Gets the number of physical connections with a statement cache.
+    * @return The number of connections.
+    */
+   public int connectionCount() {
+      return caches.size();
+   }
+
+   /**
+    * Removes the cache, and closes the statements, for a physical connection if it is closed.
+    * @param physical The physical connection.
+    */
+   private void removeIfClosed(final Connection physical) {
+      boolean closed;
+      try {
+         closed = physical.isClosed();
+      } catch(SQLException se) {
+         closed = true;
+      }
+      if(closed) {
+         StatementCache cache = caches.remove(physical);
+         if(cache != null) {
+            cache.closeAll();
+         }
+      }
+   }
+
+   /**
+    * Gets statistics for all statement caches, including hit rate and eviction count.
+    * @return The statistics.
+    */
+   public CacheStats stats() {
+      return new CacheStats(hitCount.get(), missCount.get(), 0L, 0L, 0L, evictionCount.get());
+   }
+
+   /**
+    * Gets the number of statements currently cached for all connections.
+    * @return The number of statements.
+    */
+   public int size() {
+      int size = 0;
+      for(StatementCache cache : caches.values()) {
+         synchronized(cache) {
+            size += cache.size();
+         }
+      }
+      return size;
+   }
+
+   /**
+    * Invokes a method on a target, unwrapping any exception thrown.
+    * @param target The target.
+    * @param method The method.
+    * @param args The arguments.
+    * @return The result.
+    * @throws Throwable on invocation error.
+    */
+   private static Object delegate(final Object target, final Method method, final Object[] args) throws Throwable {
+      try {
+         return method.invoke(target, args);
+      } catch(InvocationTargetException ite) {
+         throw ite.getCause();
+      }
+   }
+
+   /**
+    * Closes a statement, ignoring errors.
+    * @param stmt The statement.
+    */
+   private static void closeStatement(final PreparedStatement stmt) {
+      try {
+         stmt.close();
+      } catch(SQLException se) {
+         //Ignore
+      }
+   }
+
+   /**
+    * The number of connections supplied between sweeps for closed physical connections.
+    */
+   public static final int SWEEP_INTERVAL = 256;
+
+   private static final Class<?>[] CONNECTION_INTERFACES = new Class<?>[] {Connection.class};
+   private static final Class<?>[] STATEMENT_INTERFACES = new Class<?>[] {PreparedStatement.class};
+
+   /**
+    * The connection supplier.
+    */
+   private final ConnectionSupplier supplier;
+
+   /**
+    * The maximum number of statements cached for each connection.
+    */
+   private final int maxStatements;
+
+   /**
+    * Statement caches vs physical connection.
+    * <p>
+    * Statements typically reference their connection, so caches must be removed explicitly
+    * when the connection is closed. Weak keys would never be cleared.
+    * </p>
+    */
+   private final ConcurrentMap<Connection, StatementCache> caches = Maps.newConcurrentMap();
+
+   private final AtomicLong hitCount = new AtomicLong();
+   private final AtomicLong missCount = new AtomicLong();
+   private final AtomicLong evictionCount = new AtomicLong();
+   private final AtomicLong suppliedCount = new AtomicLong();
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Executes queries that stream mapped rows without buffering the result.
+ * <p>
+ * Rows are read from the driver in groups of the fetch size and mapped one at a time,
+ * so memory use does not depend on the size of the result. Some drivers stream results only
+ * within a transaction (for example, PostgreSQL). For these, enable {@code streamInTransaction}.
+ * </p>
+ * <p>
+ * The connection, statement and result set are closed quietly when the last row is read,
+ * when reading fails, or when the returned stream or iterator is closed. Streams and iterators
+ * that may not be read to the end must be closed, e.g. with try-with-resources.
+ * </p>
+ */
+public class StreamingQuery {
+
+   /**
+    * An iterator that must be closed if not read to the end.
+    * @param <T> The element class.
+    */
+   public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+      /**
+       * Closes the iterator and the resources it holds.
+       */
+      @Override
+      public void close();
+   }
+
+   /**
+    * An unchecked exception raised when reading a streamed result fails.
+    */
+   @SuppressWarnings("serial")
+   public static class UncheckedSQLException extends RuntimeException {
+
+      public UncheckedSQLException(final SQLException cause) {
+         super(cause);
+      }
+
+      @Override
+      public synchronized SQLException getCause() {
+         return (SQLException)super.getCause();
+      }
+   }
+
+   /**
+    * Iterates over mapped rows.
+    * @param <T> The mapped class.
+    */
+   private static final class RowIterator<T> implements CloseableIterator<T> {
+
+      RowIterator(final Connection conn, final boolean restoreAutoCommit,
+                  final PreparedStatement stmt, final ResultSet rs, final RowMapper<T> mapper) {
+         this.conn = conn;
+         this.restoreAutoCommit = restoreAutoCommit;
+         this.stmt = stmt;
+         this.rs = rs;
+         this.mapper = mapper;
+      }
+
+      @Override
+      public boolean hasNext() {
+         if(hasNext == null) {
+            if(closed) {
+               return false;
+            }
+            try {
+               hasNext = rs.next();
+            } catch(SQLException se) {
+               close();
+               throw new UncheckedSQLException(se);
+            }
+            if(!hasNext) {
+               close();
+            }
+         }
+         return hasNext;
+      }
+
+      @Override
+      public T next() {
+         if(!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         hasNext = null;
+         try {
+            return mapper.map(rs);
+         } catch(SQLException se) {
+            close();
+            throw new UncheckedSQLException(se);
+         } catch(RuntimeException re) {
+            close();
+            throw re;
+         }
+      }
+
+      @Override
+      public void close() {
+         if(closed) {
+            return;
+         }
+         closed = true;
+         hasNext = Boolean.FALSE;
+         closeQuietly(rs);
+         closeQuietly(stmt);
+         if(restoreAutoCommit) {
+            try {
+               conn.rollback();
+               conn.setAutoCommit(true);
+            } catch(SQLException se) {
+               //Ignore
+            }
+         }
+         closeQuietly(conn);
+      }
+
+      private final Connection conn;
+      private final boolean restoreAutoCommit;
+      private final PreparedStatement stmt;
+      private final ResultSet rs;
+      private final RowMapper<T> mapper;
+      private Boolean hasNext;
+      private boolean closed;
+   }
+
+   /**
+    * Creates a streaming query executor.
+    * @param supplier Supplies connections.
+    * @param fetchSize The number of rows fetched from the database at a time.
+    * @param streamInTransaction Should auto-commit be disabled while streaming? Required by some drivers to stream.
+    */
+   public StreamingQuery(final ConnectionSupplier supplier, final int fetchSize, final boolean streamInTransaction) {
+      this.supplier = supplier;
+      this.fetchSize = fetchSize;
+      this.streamInTransaction = streamInTransaction;
+   }
+
+   /**
+    * Executes a query and returns an iterator over mapped rows.
+    * @param sql The SQL.
+    * @param mapperFactory Creates the row mapper from the result metadata.
+    * @param params The statement parameters.
+    * @param <T> The mapped class.
+    * @return The iterator. Must be closed if not read to the end.
+    * @throws SQLException on query error. All resources are closed.
+    */
+   public <T> CloseableIterator<T> iterator(final String sql, final RowMapper.Factory<T> mapperFactory,
+                                            final Object... params) throws SQLException {
+      Connection conn = null;
+      PreparedStatement stmt = null;
+      ResultSet rs = null;
+      boolean restoreAutoCommit = false;
+      try {
+         conn = supplier.getConnection();
+         if(streamInTransaction && conn.getAutoCommit()) {
+            conn.setAutoCommit(false);
+            restoreAutoCommit = true;
+         }
+         stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+         stmt.setFetchSize(fetchSize);
+         for(int i = 0; i < params.length; i++) {
+            stmt.setObject(i + 1, params[i]);
+         }
+         rs = stmt.executeQuery();
+         rs.setFetchSize(fetchSize);
+         RowMapper<T> mapper = mapperFactory.create(rs.getMetaData());
+         return new RowIterator<>(conn, restoreAutoCommit, stmt, rs, mapper);
+      } catch(SQLException | RuntimeException e) {
+         if(conn != null) {
+            new RowIterator<T>(conn, restoreAutoCommit, stmt, rs, null).close();
+         }
+         throw e;
+      }
+   }
+
+   /**
+    * Executes a query and returns a sequential stream of mapped rows.
+    * <p>
+    * Read errors are thrown as {@link UncheckedSQLException}. The stream contains {@code null}
+    * for any row the mapper maps to {@code null}.
+    * </p>
+    * @param sql The SQL.
+    * @param mapperFactory Creates the row mapper from the result metadata.
+    * @param params The statement parameters.
+    * @param <T> The mapped class.
+    * @return The stream. Must be closed if not read to the end.
+    * @throws SQLException on query error. All resources are closed.
+    */
+   public <T> Stream<T> stream(final String sql, final RowMapper.Factory<T> mapperFactory,
+                               final Object... params) throws SQLException {
+      CloseableIterator<T> iterator = iterator(sql, mapperFactory, params);
+      return StreamSupport.stream(
+              Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false
+      ).onClose(iterator::close);
+   }
+
+   /**
+    * Executes a query and supplies each mapped row to a consumer, always closing all resources.
+    * @param sql The SQL.
+    * @param mapperFactory Creates the row mapper from the result metadata.
+    * @param consumer The consumer.
+    * @param params The statement parameters.
+    * @param <T> The mapped class.
+    * @return The number of rows.
+    * @throws SQLException on query or read error.
+    */
+   public <T> long forEach(final String sql, final RowMapper.Factory<T> mapperFactory,
+                           final Consumer<? super T> consumer, final Object... params) throws SQLException {
+      long count = 0L;
+      try(CloseableIterator<T> iterator = iterator(sql, mapperFactory, params)) {
+         while(iterator.hasNext()) {
+            consumer.accept(iterator.next());
+            count++;
+         }
+      } catch(UncheckedSQLException use) {
+         throw use.getCause();
+      }
+      return count;
+   }
+
+   /**
+    * Quietly closes a resource, as for {@code SQLUtil.closeQuietly}.
+    * @param resource The resource. May be null.
+    */
+   private static void closeQuietly(final AutoCloseable resource) {
+      if(resource != null) {
+         try {
+            resource.close();
+         } catch(Exception e) {
+            //Ignore
+         }
+      }
+   }
+
+   /**
+    * Supplies connections.
+    */
+   private final ConnectionSupplier supplier;
+
+   /**
+    * The fetch size.
+    */
+   private final int fetchSize;
+
+   /**
+    * Is auto-commit disabled while streaming?
+    */
+   private final boolean streamInTransaction;
+}
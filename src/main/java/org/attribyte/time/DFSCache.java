@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.time;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caching layer for {@link DateFormatSet} instances by time zone and locale.
+ */
+public class DFSCache {
+
+   /**
+    * A cache key.
+    */
+   public static final class Key {
+
+      /**
+       * Creates a key.
+       * @param zone The time zone.
+       * @param locale The locale.
+       */
+      public Key(final ZoneId zone, final Locale locale) {
+         this.zone = zone;
+         this.locale = locale;
+      }
+
+      @Override
+      public String toString() {
+         return MoreObjects.toStringHelper(this)
+                 .add("zone", zone)
+                 .add("locale", locale)
+                 .toString();
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if(this == o) return true;
+         if(o == null || getClass() != o.getClass()) return false;
+         final Key key = (Key)o;
+         return Objects.equal(zone, key.zone) &&
+                 Objects.equal(locale, key.locale);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * zone.hashCode() + locale.hashCode();
+      }
+
+      /**
+       * The time zone.
+       */
+      public final ZoneId zone;
+
+      /**
+       * The locale.
+       */
+      public final Locale locale;
+   }
+
+   /**
+    * Creates a cache with a non-standard default date format set.
+    * @param defaultSet The default set.
+    */
+   public DFSCache(final DateFormatSet defaultSet) {
+      this.defaultSet = defaultSet;
+      this.dfsCache.put(new Key(defaultSet.zone, defaultSet.locale), defaultSet);
+   }
+
+   /**
+    * The default cache created with {@code DateFormatSet.DEFAULT}.
+    */
+   public static final DFSCache DEFAULT = new DFSCache(DateFormatSet.DEFAULT);
+
+   /**
+    * Gets a set with a pre-built key.
+    * @param key The key.
+    * @return The date format set.
+    */
+   public DateFormatSet forKey(final Key key) {
+      return dfsCache.computeIfAbsent(key, k -> defaultSet.withTimeZone(k.zone, k.locale));
+   }
+
+   /**
+    * Gets a set with time zone and locale changed from the default.
+    * @param zone The time zone. If {@code null}, the default time zone.
+    * @param locale The locale. If {@code null}, the default locale.
+    * @return The date format set with time zone and locale changed.
+    */
+   public DateFormatSet withTimeZone(final ZoneId zone, final Locale locale) {
+      return forKey(new Key(zone != null ? zone : defaultSet.zone, locale != null ? locale : defaultSet.locale));
+   }
+
+   /**
+    * Gets a set with Java time zone and locale changed from the default.
+    * @param tz The time zone.
+    * @param locale The locale.
+    * @return The date format set with time zone and locale changed.
+    */
+   public DateFormatSet withTimeZone(final TimeZone tz, final Locale locale) {
+      return withTimeZone(tz.toZoneId(), locale);
+   }
+
+   /**
+    * Gets a set with a time zone changed and default locale.
+    * @param zone The time zone.
+    * @return The date format set with time zone changed.
+    */
+   public DateFormatSet withTimeZone(final ZoneId zone) {
+      return withTimeZone(zone, null);
+   }
+
+   /**
+    * Gets a set with Java time zone changed and default locale.
+    * @param tz The time zone.
+    * @return The date format set with time zone changed.
+    */
+   public DateFormatSet withTimeZone(final TimeZone tz) {
+      return withTimeZone(tz.toZoneId());
+   }
+
+   /**
+    * Gets a set with locale changed and default time zone.
+    * @param locale The locale.
+    * @return The date format set with locale changed.
+    */
+   public DateFormatSet withLocale(final Locale locale) {
+      return withTimeZone((ZoneId)null, locale);
+   }
+
+   /**
+    * Gets a new formatted date with changed time zone and locale.
+    * @param date The formatted date.
+    * @param zone The time zone.
+    * @param locale The locale.
+    * @return The new formatted date or the input if timezone and locale are identical.
+    */
+   public FormattedDate withTimeZone(final FormattedDate date, final ZoneId zone, final Locale locale) {
+      DateFormatSet formatSet = withTimeZone(zone, locale);
+      return date.formatSet == formatSet ? date : new FormattedDate(date.timestamp, formatSet);
+   }
+
+   /**
+    * Gets a new formatted date with changed time zone.
+    * @param date The formatted date.
+    * @param zone The time zone.
+    * @return The new formatted date or the input if timezone is identical.
+    */
+   public FormattedDate withTimeZone(final FormattedDate date, final ZoneId zone) {
+      DateFormatSet formatSet = withTimeZone(zone);
+      return date.formatSet == formatSet ? date : new FormattedDate(date.timestamp, formatSet);
+   }
+
+   /**
+    * The default date format set.
+    */
+   public final DateFormatSet defaultSet;
+
+   /**
+    * The cache.
+    */
+   private final ConcurrentMap<Key, DateFormatSet> dfsCache = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,660 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.time;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneRules;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.stream.LongStream;
+
+/**
+ * A collection of named date/time formatters built on {@code java.time}.
+ * <p>
+ * Formatters are immutable and thread-safe. Time zones with fixed offsets
+ * are resolved once, when the set is created.
+ * </p>
+ */
+public class DateFormatSet {
+
+   /**
+    * A named {@code DateTimeFormatter}.
+    */
+   public static class NamedFormatter {
+
+      /**
+       * Create a named formatter.
+       * @param name The name.
+       * @param formatter The formatter.
+       * @param aliases A set of aliases (alternative names).
+       */
+      public NamedFormatter(final String name, final DateTimeFormatter formatter,
+                            final Set<String> aliases) {
+         this.name = name;
+         this.formatter = formatter;
+         this.aliases = aliases != null ? ImmutableSet.copyOf(aliases) : ImmutableSet.of();
+      }
+
+      /**
+       * Create a named formatter.
+       * @param name The name.
+       * @param formatter The formatter.
+       * @param aliases An arbitrary array of aliases.
+       * @throws IllegalArgumentException If any duplicate aliases are supplied.
+       */
+      public NamedFormatter(final String name, final DateTimeFormatter formatter,
+                            final String... aliases) {
+         this.name = name;
+         this.formatter = formatter;
+         this.aliases = aliases != null ? ImmutableSet.copyOf(aliases) : ImmutableSet.of();
+      }
+
+      /**
+       * Change the time zone and locale for this formatter.
+       * @param zone The new time zone.
+       * @param locale The new locale.
+       * @return The formatter with time zone and locale changed.
+       */
+      public NamedFormatter withTimeZone(final ZoneId zone, final Locale locale) {
+         return new NamedFormatter(this.name, formatter.withZone(zone).withLocale(locale), this.aliases);
+      }
+
+      /**
+       * Change the time zone for this formatter.
+       * @param zone The new time zone.
+       * @return The formatter with time zone changed.
+       */
+      public NamedFormatter withTimeZone(final ZoneId zone) {
+         return new NamedFormatter(this.name, formatter.withZone(zone), this.aliases);
+      }
+
+      /**
+       * Change the locale for this formatter.
+       * @param locale The locale.
+       * @return The formatter with locale changed.
+       */
+      public NamedFormatter withLocale(final Locale locale) {
+         return new NamedFormatter(this.name, formatter.withLocale(locale), this.aliases);
+      }
+
+      @Override
+      public String toString() {
+         return MoreObjects.toStringHelper(this)
+                 .add("name", name)
+                 .add("formatter", formatter)
+                 .add("aliases", aliases)
+                 .toString();
+      }
+
+      /**
+       * The name.
+       */
+      public final String name;
+
+      /**
+       * The formatter.
+       */
+      public final DateTimeFormatter formatter;
+
+      /**
+       * A set of aliases (alternative names).
+       */
+      public final ImmutableSet<String> aliases;
+
+      /**
+       * Gets the finest field printed, determined on first use.
+       * @return The resolution in milliseconds: a day (date-only), a second, or one.
+       */
+      long resolution() {
+         long resolution = resolutionMillis;
+         if(resolution == 0L) {
+            resolution = DateFormatSet.resolution(formatter);
+            resolutionMillis = resolution;
+         }
+         return resolution;
+      }
+
+      /**
+       * The resolution, or zero if not yet determined.
+       */
+      private volatile long resolutionMillis;
+   }
+
+   /**
+    * Determines the finest field a formatter prints by printing probe times.
+    * <p>
+    * If times throughout a (non-transition) local day print the same, the formatter is date-only.
+    * If times within a second print the same, it prints seconds. Otherwise, it prints milliseconds.
+    * </p>
+    * @param formatter The formatter.
+    * @return The resolution in milliseconds: a day, a second, or one.
+    */
+   static long resolution(final DateTimeFormatter formatter) {
+      final ZoneId zone = formatter.getZone() != null ? formatter.getZone() : ZoneOffset.UTC;
+      long resolution = ONE_DAY_MILLIS;
+      for(LocalDate day : PROBE_DAYS) {
+         final ZonedDateTime start = day.atStartOfDay(zone);
+         final String startStr = formatter.format(start);
+         for(long offset : MILLIS_PROBE_OFFSETS) {
+            if(!formatter.format(start.plus(offset, ChronoUnit.MILLIS)).equals(startStr)) {
+               return 1L;
+            }
+         }
+         if(resolution == ONE_DAY_MILLIS) {
+            for(long offset : DAY_PROBE_OFFSETS) {
+               if(!formatter.format(start.plus(offset, ChronoUnit.MILLIS)).equals(startStr)) {
+                  resolution = 1000L;
+                  break;
+               }
+            }
+         }
+      }
+      return resolution;
+   }
+
+   /**
+    * Local days used to probe formatters, in and out of daylight saving time.
+    */
+   private static final ImmutableList<LocalDate> PROBE_DAYS =
+           ImmutableList.of(LocalDate.of(2018, 1, 15), LocalDate.of(2018, 7, 16));
+
+   /**
+    * Offsets within the first second of a day.
+    */
+   private static final long[] MILLIS_PROBE_OFFSETS = {1L, 10L, 100L, 999L};
+
+   /**
+    * Offsets, at least one second, within a day.
+    */
+   private static final long[] DAY_PROBE_OFFSETS = {
+           1000L, 59000L, 60000L, 3540000L, 3600000L, 12L * 3600000L, 13L * 3600000L, 23L * 3600000L + 3599000L
+   };
+
+   /**
+    * Creates a set with the default formatters.
+    */
+   public DateFormatSet() {
+      this(DEFAULT_FORMATTERS);
+   }
+
+   /**
+    * Creates a format set from a collection of formatters with default time zone and locale.
+    * @param formatters The collection of formatters.
+    * @throws IllegalArgumentException if more than one formatter has the same name or alias.
+    * @throws NullPointerException if input formatters is {@code null}, or any formatter has a {@code null} name.
+    */
+   public DateFormatSet(final Collection<NamedFormatter> formatters) {
+      this(formatters, null, null);
+   }
+
+   /**
+    * Creates a format set from a collection of formatters with time zone and default locale.
+    * @param formatters The collection of formatters.
+    * @param zone The time zone.
+    * @throws IllegalArgumentException if more than one formatter has the same name or alias.
+    * @throws NullPointerException if input formatters is {@code null}, or any formatter has a {@code null} name.
+    */
+   public DateFormatSet(final Collection<NamedFormatter> formatters, final ZoneId zone) {
+      this(formatters, zone, null);
+   }
+
+   /**
+    * Creates a set from properties.
+    * <ul>
+    *    <li>Values must be a valid {@code java.time} pattern</li>
+    *    <li>Default formatters are added when there is no conflict with property names.</li>
+    * </ul>
+    * @param props The properties.
+    * @param zone The time zone. If {@code null}, the default time zone.
+    * @param locale The locale. If {@code null}, the default locale.
+    * @throws IllegalArgumentException on invalid pattern.
+    */
+   public DateFormatSet(final Properties props, final ZoneId zone, final Locale locale) throws IllegalArgumentException {
+      this(fromProperties(props), zone, locale);
+   }
+
+   /**
+    * Creates a list that contains custom formatters and default formatters
+    * that do not conflict.
+    * @param props The properties.
+    * @return The list of formatters.
+    */
+   private static List<NamedFormatter> fromProperties(Properties props) {
+
+      List<NamedFormatter> formatters = Lists.newArrayList();
+      for(String name : props.stringPropertyNames()) {
+         String pattern = props.getProperty(name);
+         formatters.add(new NamedFormatter(name, DateTimeFormatter.ofPattern(pattern), ImmutableSet.of()));
+      }
+
+      for(NamedFormatter formatter : DEFAULT_FORMATTERS) {
+         if(!props.keySet().contains(formatter.name) && Sets.intersection(props.keySet(), formatter.aliases).isEmpty()) {
+            formatters.add(formatter);
+         }
+      }
+
+      return formatters;
+   }
+
+   /**
+    * Creates a format set from a collection of formatters.
+    * @param formatters The collection of formatters.
+    * @param zone The time zone. If {@code null}, the default time zone.
+    * @param locale The locale. If {@code null}, the default locale.
+    * @throws IllegalArgumentException if more than one formatter has the same name or alias.
+    * @throws NullPointerException if input formatters is {@code null}, or any formatter has a {@code null} name.
+    */
+   public DateFormatSet(final Collection<NamedFormatter> formatters,
+                        ZoneId zone,
+                        Locale locale) throws IllegalArgumentException {
+
+      this.zone = zone != null ? zone : ZoneId.systemDefault();
+      this.locale = locale != null ? locale : Locale.getDefault();
+
+      ZoneRules rules = this.zone.getRules();
+      this.fixedOffset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : null;
+
+      Map<String, NamedFormatter> builder = Maps.newHashMapWithExpectedSize(formatters.size());
+      for(NamedFormatter _formatter : formatters) {
+         NamedFormatter formatter = _formatter.withTimeZone(this.zone, this.locale);
+         if(!builder.containsKey(formatter.name)) {
+            builder.put(formatter.name, formatter);
+            for(String alias : formatter.aliases) {
+               if(!builder.containsKey(alias)) {
+                  builder.put(alias, formatter);
+               } else {
+                  throw new IllegalArgumentException(String.format("Duplicate formatter for alias, '%s'", alias));
+               }
+            }
+         } else {
+            throw new IllegalArgumentException(String.format("Duplicate formatter for name, '%s'", formatter.name));
+         }
+      }
+      this.formatters = ImmutableMap.copyOf(builder);
+      this.uniqueFormatters = ImmutableList.copyOf(formatters);
+   }
+
+   /**
+    * Creates a new set with time zone and locale changed.
+    * @param zone The time zone. If {@code null}, the default time zone.
+    * @param locale The locale. If {@code null}, the default locale.
+    * @return The date format set with time zone and locale changed.
+    */
+   public DateFormatSet withTimeZone(final ZoneId zone, final Locale locale) {
+      ZoneId checkZone = zone != null ? zone : ZoneId.systemDefault();
+      Locale checkLocale = locale != null ? locale : Locale.getDefault();
+      if(checkZone.equals(this.zone) && checkLocale.equals(this.locale)) {
+         return this;
+      }
+      return new DateFormatSet(uniqueFormatters, checkZone, checkLocale);
+   }
+
+   /**
+    * Creates a new set with Java time zone and locale changed.
+    * @param tz The time zone.
+    * @param locale The locale.
+    * @return The date format set with time zone and locale changed.
+    */
+   public DateFormatSet withTimeZone(final TimeZone tz, final Locale locale) {
+      return withTimeZone(tz.toZoneId(), locale);
+   }
+
+   /**
+    * Creates a new set with a time zone changed.
+    * @param zone The time zone. If {@code null}, the default time zone.
+    * @return The date format set with time zone changed.
+    */
+   public DateFormatSet withTimeZone(final ZoneId zone) {
+      return withTimeZone(zone, this.locale);
+   }
+
+   /**
+    * Creates a new set with Java time zone changed.
+    * @param tz The time zone.
+    * @return The date format set with time zone changed.
+    */
+   public DateFormatSet withTimeZone(final TimeZone tz) {
+      return withTimeZone(tz.toZoneId());
+   }
+
+   /**
+    * Creates a new set with locale changed.
+    * @param locale The locale. If {@code null}, the default locale.
+    * @return The date format set with locale changed.
+    */
+   public DateFormatSet withLocale(final Locale locale) {
+      return withTimeZone(this.zone, locale);
+   }
+
+   /**
+    * Gets a formatter by name.
+    * @param name The name.
+    * @return The formatter or {@code null} if none.
+    */
+   public DateTimeFormatter formatter(final String name) {
+      NamedFormatter formatter = formatters.get(name);
+      return formatter != null ? formatter.formatter : null;
+   }
+
+   /**
+    * Gets a formatter.
+    * @param format The format.
+    * @return The formatter or {@code null} if none.
+    */
+   public DateTimeFormatter formatter(final Format format) {
+      return formatter(format.name);
+   }
+
+   /**
+    * Formats a timestamp with a named formatter.
+    * @param timestamp The timestamp.
+    * @param name The formatter name.
+    * @return The formatted timestamp or {@code null} if no formatter matches the name.
+    */
+   public String format(final long timestamp, final String name) {
+      DateTimeFormatter formatter = formatter(name);
+      return formatter != null ? formatter.format(toZonedDateTime(timestamp)) : null;
+   }
+
+   /**
+    * Formats a timestamp.
+    * @param timestamp The timestamp.
+    * @param format The format.
+    * @return The formatted timestamp or {@code null} if the set has no formatter for the format.
+    */
+   public String format(final long timestamp, final Format format) {
+      return format(timestamp, format.name);
+   }
+
+   /**
+    * Converts a timestamp to a date-time in the time zone for this set.
+    * @param timestamp The timestamp.
+    * @return The zoned date-time.
+    */
+   public ZonedDateTime toZonedDateTime(final long timestamp) {
+      if(fixedOffset != null) {
+         long epochSecond = Math.floorDiv(timestamp, 1000L);
+         int nanos = (int)Math.floorMod(timestamp, 1000L) * 1000000;
+         return ZonedDateTime.ofLocal(LocalDateTime.ofEpochSecond(epochSecond, nanos, fixedOffset), zone, fixedOffset);
+      } else {
+         return Instant.ofEpochMilli(timestamp).atZone(zone);
+      }
+   }
+
+   /**
+    * Formats an array of timestamps, separated by a delimiter.
+    * <p>
+    * When consecutive timestamps fall in the same second (or the same local day, for
+    * date-only formatters) and the formatter does not print milliseconds, the previously
+    * formatted value is appended again without recomputing calendar fields.
+    * </p>
+    * @param timestamps The timestamps.
+    * @param format The format.
+    * @param delimiter The delimiter appended between formatted values.
+    * @param out The output.
+    * @throws IOException on write error.
+    * @throws IllegalArgumentException if this set has no formatter for the format.
+    */
+   public void formatAll(final long[] timestamps, final Format format,
+                         final CharSequence delimiter, final Appendable out) throws IOException {
+      formatAll(timestamps, 0, timestamps.length, format, delimiter, out);
+   }
+
+   /**
+    * Formats a range of an array of timestamps, separated by a delimiter.
+    * @param timestamps The timestamps.
+    * @param offset The offset of the first timestamp.
+    * @param length The number of timestamps.
+    * @param format The format.
+    * @param delimiter The delimiter appended between formatted values.
+    * @param out The output.
+    * @throws IOException on write error.
+    * @throws IllegalArgumentException if this set has no formatter for the format.
+    */
+   public void formatAll(final long[] timestamps, final int offset, final int length, final Format format,
+                         final CharSequence delimiter, final Appendable out) throws IOException {
+      BulkPrinter printer = new BulkPrinter(format);
+      for(int i = offset; i < offset + length; i++) {
+         if(i > offset) {
+            out.append(delimiter);
+         }
+         printer.print(timestamps[i], out);
+      }
+   }
+
+   /**
+    * Formats a stream of timestamps, separated by a delimiter.
+    * @param timestamps The timestamps.
+    * @param format The format.
+    * @param delimiter The delimiter appended between formatted values.
+    * @param out The output.
+    * @throws IOException on write error.
+    * @throws IllegalArgumentException if this set has no formatter for the format.
+    */
+   public void formatAll(final LongStream timestamps, final Format format,
+                         final CharSequence delimiter, final Appendable out) throws IOException {
+      BulkPrinter printer = new BulkPrinter(format);
+      PrimitiveIterator.OfLong iter = timestamps.iterator();
+      boolean first = true;
+      while(iter.hasNext()) {
+         if(!first) {
+            out.append(delimiter);
+         } else {
+            first = false;
+         }
+         printer.print(iter.nextLong(), out);
+      }
+   }
+
+   /**
+    * Formats an array of timestamps to a string, separated by a delimiter.
+    * @param timestamps The timestamps.
+    * @param format The format.
+    * @param delimiter The delimiter appended between formatted values.
+    * @return The formatted string.
+    * @throws IllegalArgumentException if this set has no formatter for the format.
+    */
+   public String formatAll(final long[] timestamps, final Format format, final CharSequence delimiter) {
+      StringBuilder buf = new StringBuilder(timestamps.length * 24);
+      try {
+         formatAll(timestamps, format, delimiter, buf);
+      } catch(IOException ioe) {
+         throw new UncheckedIOException(ioe); //Not thrown by StringBuilder
+      }
+      return buf.toString();
+   }
+
+   /**
+    * Gets the resolution of the formatter for a format: the finest field it prints.
+    * @param format The format.
+    * @return The resolution in milliseconds: a day (date-only), a second, or one.
+    */
+   long resolution(final Format format) {
+      NamedFormatter formatter = formatters.get(format.name);
+      return formatter != null ? formatter.resolution() : 1L;
+   }
+
+   /**
+    * Gets the local day (for date-only formatters), epoch second or timestamp
+    * that determines the formatted value for a timestamp.
+    * @param timestamp The timestamp.
+    * @param format The format.
+    * @return The day, second or timestamp.
+    */
+   long bucket(final long timestamp, final Format format) {
+      final long resolution = resolution(format);
+      if(resolution != ONE_DAY_MILLIS) {
+         return Math.floorDiv(timestamp, resolution);
+      }
+      int offsetSeconds = fixedOffset != null ? fixedOffset.getTotalSeconds() :
+              zone.getRules().getOffset(Instant.ofEpochMilli(timestamp)).getTotalSeconds();
+      return Math.floorDiv(timestamp + offsetSeconds * 1000L, ONE_DAY_MILLIS);
+   }
+
+   private static final long ONE_DAY_MILLIS = 24L * 3600L * 1000L;
+
+   /**
+    * Prints a sequence of timestamps with one format, reusing the previous value
+    * when consecutive timestamps share a day or second.
+    */
+   private final class BulkPrinter {
+
+      BulkPrinter(final Format format) {
+         this.format = format;
+         switch(format) {
+            case AGO:
+            case DAYS_AGO:
+               this.formatter = null;
+               break;
+            default:
+               this.formatter = formatter(format);
+               if(this.formatter == null) {
+                  throw new IllegalArgumentException(String.format("No formatter for '%s'", format.name));
+               }
+         }
+      }
+
+      void print(final long timestamp, final Appendable out) throws IOException {
+         switch(format) {
+            case AGO:
+               out.append(RelativeTime.DEFAULT.ago(timestamp));
+               return;
+            case DAYS_AGO:
+               out.append(RelativeTime.DEFAULT.daysAgo(timestamp, zone));
+               return;
+         }
+
+         final long bucket = bucket(timestamp, format);
+         if(lastBucket != bucket || buf.length() == 0) {
+            buf.setLength(0);
+            formatter.formatTo(toZonedDateTime(timestamp), buf);
+            lastBucket = bucket;
+         }
+         out.append(buf);
+      }
+
+      private final Format format;
+      private final DateTimeFormatter formatter;
+      private final StringBuilder buf = new StringBuilder(32);
+      private long lastBucket;
+   }
+
+   /**
+    * An immutable list of the default formatters.
+    */
+   public static final ImmutableList<NamedFormatter> DEFAULT_FORMATTERS = ImmutableList.copyOf(defaultFormatters());
+
+   /**
+    * The default date format set.
+    */
+   public static final DateFormatSet DEFAULT = new DateFormatSet(DEFAULT_FORMATTERS);
+
+   /**
+    * Creates a list of the default formatters.
+    * @return The list of formatters.
+    */
+   public static List<NamedFormatter> defaultFormatters() {
+
+      List<NamedFormatter> formatters = Lists.newArrayList();
+      formatters.add(new NamedFormatter("shortTime", DateTimeFormatter.ofLocalizedTime(FormatStyle.SHORT),"st", "short_time"));
+      formatters.add(new NamedFormatter("medTime", DateTimeFormatter.ofLocalizedTime(FormatStyle.MEDIUM),"mt", "med_time"));
+      formatters.add(new NamedFormatter("longTime", DateTimeFormatter.ofLocalizedTime(FormatStyle.LONG),"lt", "long_time"));
+      formatters.add(new NamedFormatter("fullTime", DateTimeFormatter.ofLocalizedTime(FormatStyle.FULL),"ft", "full_time"));
+
+      formatters.add(new NamedFormatter("shortDate", DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT),"sd", "short_date"));
+      formatters.add(new NamedFormatter("medDate", DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM),"md", "med_date"));
+      formatters.add(new NamedFormatter("longDate", DateTimeFormatter.ofLocalizedDate(FormatStyle.LONG),"ld", "long_date"));
+      formatters.add(new NamedFormatter("fullDate", DateTimeFormatter.ofLocalizedDate(FormatStyle.FULL),"fd", "full_date"));
+
+      formatters.add(new NamedFormatter("shortDateTime", DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT),"sdt", "short_date_time"));
+      formatters.add(new NamedFormatter("medDateTime", DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM),"mdt", "med_date_time"));
+      formatters.add(new NamedFormatter("longDateTime", DateTimeFormatter.ofLocalizedDateTime(FormatStyle.LONG),"ldt", "long_date_time"));
+      formatters.add(new NamedFormatter("fullDateTime", DateTimeFormatter.ofLocalizedDateTime(FormatStyle.FULL),"fdt", "full_date_time"));
+
+      formatters.add(new NamedFormatter("isoDateTime", DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ssXXX"),"idt", "iso_date_time"));
+
+      formatters.add(new NamedFormatter("dayOfWeek", DateTimeFormatter.ofPattern("EEEE"),"dow", "day_of_week"));
+
+      formatters.add(new NamedFormatter("monthDay", DateTimeFormatter.ofPattern("MMM d"),"month_day"));
+
+      formatters.add(new NamedFormatter("ymdCSV", DateTimeFormatter.ofPattern("yyyy,MM,d"),"ymdcsv", "ymd_csv"));
+
+      formatters.add(new NamedFormatter("ymd", DateTimeFormatter.ofPattern("yyyyMMd"), ImmutableSet.of()));
+
+      formatters.add(new NamedFormatter("year", DateTimeFormatter.ofPattern("yyyy"), "y"));
+
+      formatters.add(new NamedFormatter("timeDayMonth",  DateTimeFormatter.ofPattern("h:mma EEEE d MMMM"), "tmd", "time_day_month"));
+
+      return formatters;
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this)
+              .add("zone", zone)
+              .add("locale", locale)
+              .toString();
+   }
+
+   /**
+    * The current time zone for this set.
+    */
+   public final ZoneId zone;
+
+   /**
+    * The current locale for this set.
+    */
+   public final Locale locale;
+
+   /**
+    * The map of formatters.
+    */
+   public final ImmutableMap<String, NamedFormatter> formatters;
+
+   /**
+    * The offset for the time zone if the zone has a fixed offset, otherwise {@code null}.
+    */
+   private final ZoneOffset fixedOffset;
+
+   /**
+    * A list of the unique formatters.
+    */
+   private final ImmutableList<NamedFormatter> uniqueFormatters;
+}
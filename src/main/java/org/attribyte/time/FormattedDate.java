@@ -0,0 +1,383 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.time;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Strings;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * An immutable timestamp with various built-in formatting options.
+ */
+public final class FormattedDate {
+
+   /**
+    * Creates a formatted date from an instant.
+    * @param instant The instant.
+    * @param formatSet The format set.
+    */
+   public FormattedDate(final Instant instant, final DateFormatSet formatSet) {
+      this(instant.toEpochMilli(), formatSet);
+   }
+
+   /**
+    * Creates a formatted date from a timestamp.
+    * @param timestamp The timestamp.
+    * @param formatSet The format set.
+    */
+   public FormattedDate(final long timestamp, final DateFormatSet formatSet) {
+      this.timestamp = timestamp;
+      this.formatSet = formatSet;
+   }
+
+   /**
+    * Creates a formatted date with the default format set and a Java time zone.
+    * @param timestamp The timestamp.
+    * @param tz The time zone.
+    */
+   public FormattedDate(final long timestamp, final TimeZone tz) {
+      this(timestamp, DFSCache.DEFAULT.withTimeZone(tz));
+   }
+
+   /**
+    * Creates a formatted date with the default format set and a time zone.
+    * @param timestamp The timestamp.
+    * @param zone The time zone.
+    */
+   public FormattedDate(final long timestamp, final ZoneId zone) {
+      this(timestamp, DFSCache.DEFAULT.withTimeZone(zone));
+   }
+
+   /**
+    * Creates a formatted date with the default format set, a time zone and a locale.
+    * @param timestamp The timestamp.
+    * @param zone The time zone.
+    * @param locale The locale.
+    */
+   public FormattedDate(final long timestamp, final ZoneId zone, final Locale locale) {
+      this(timestamp, DFSCache.DEFAULT.withTimeZone(zone, locale));
+   }
+
+   /**
+    * Creates a formatted date with the default format set, a Java time zone and a locale.
+    * @param timestamp The timestamp.
+    * @param tz The time zone.
+    * @param locale The locale.
+    */
+   public FormattedDate(final long timestamp, final TimeZone tz, final Locale locale) {
+      this(timestamp, DFSCache.DEFAULT.withTimeZone(tz, locale));
+   }
+
+   /**
+    * Gets the timestamp.
+    * @return The milliseconds since the epoch.
+    */
+   public long getTime() {
+      return timestamp;
+   }
+
+   /**
+    * Gets the instant.
+    * @return The instant.
+    */
+   public Instant toInstant() {
+      return Instant.ofEpochMilli(timestamp);
+   }
+
+   /**
+    * Gets the date-time in the time zone of the format set.
+    * @return The zoned date-time.
+    */
+   public ZonedDateTime toZonedDateTime() {
+      return formatSet.toZonedDateTime(timestamp);
+   }
+
+   /**
+    * Gets the locale.
+    * @return The locale.
+    */
+   public Locale getLocale() {
+      return formatSet.locale;
+   }
+
+   /**
+    * Gets the time zone.
+    * @return The time zone.
+    */
+   public ZoneId getZone() {
+      return formatSet.zone;
+   }
+
+   /**
+    * Formats using the named format.
+    * @param formatName The format name.
+    * @return The formatted date-time, or {@code null} if the format name is invalid.
+    */
+   public String format(final String formatName) {
+
+      switch(Strings.nullToEmpty(formatName).toLowerCase()) {
+         case "ago":
+         case "a":
+            return getAgo();
+         case "da":
+         case "days_ago":
+            return getDaysAgo();
+         default:
+            return formatSet.format(timestamp, formatName);
+      }
+   }
+
+   /**
+    * Formats using the enumerated format type.
+    * @param fmt The format type.
+    * @return The formatted date-time.
+    */
+   public String format(final Format fmt) {
+      switch(fmt) {
+         case AGO: return getAgo();
+         case DAYS_AGO: return getDaysAgo();
+         default: return formatSet.format(timestamp, fmt);
+      }
+   }
+
+   /**
+    * Formats using the short time format.
+    * @return The formatted time.
+    */
+   public String getShortTime() {
+      return formatSet.format(timestamp, Format.SHORT_TIME);
+   }
+
+   /**
+    * Formats using the medium time format.
+    * @return The formatted time.
+    */
+   public String getMedTime() {
+      return formatSet.format(timestamp, Format.MED_TIME);
+   }
+
+   /**
+    * Formats using the long time format.
+    * @return The formatted time.
+    */
+   public String getLongTime() {
+      return formatSet.format(timestamp, Format.LONG_TIME);
+   }
+
+   /**
+    * Formats using the full time format.
+    * @return The formatted time.
+    */
+   public String getFullTime() {
+      return formatSet.format(timestamp, Format.FULL_TIME);
+   }
+
+   /**
+    * Formats using the short date format.
+    * @return The formatted date.
+    */
+   public String getShortDate() {
+      return formatSet.format(timestamp, Format.SHORT_DATE);
+   }
+
+   /**
+    * Formats using the medium date format.
+    * @return The formatted date.
+    */
+   public String getMedDate() {
+      return formatSet.format(timestamp, Format.MED_DATE);
+   }
+
+   /**
+    * Formats using the long date format.
+    * @return The formatted date.
+    */
+   public String getLongDate() {
+      return formatSet.format(timestamp, Format.LONG_DATE);
+   }
+
+   /**
+    * Formats using the full date format.
+    * @return The formatted date.
+    */
+   public String getFullDate() {
+      return formatSet.format(timestamp, Format.FULL_DATE);
+   }
+
+   /**
+    * Formats using the short date/time format.
+    * @return The formatted date/time.
+    */
+   public String getShortDateTime() {
+      return formatSet.format(timestamp, Format.SHORT_DATE_TIME);
+   }
+
+   /**
+    * Formats using the medium date/time format.
+    * @return The formatted date/time.
+    */
+   public String getMedDateTime() {
+      return formatSet.format(timestamp, Format.MED_DATE_TIME);
+   }
+
+   /**
+    * Formats using the long date/time format.
+    * @return The formatted date/time.
+    */
+   public String getLongDateTime() {
+      return formatSet.format(timestamp, Format.LONG_DATE_TIME);
+   }
+
+   /**
+    * Formats using the full date/time format.
+    * @return The formatted date/time.
+    */
+   public String getFullDateTime() {
+      return formatSet.format(timestamp, Format.FULL_DATE_TIME);
+   }
+
+   /**
+    * Formats using the ISO8601 standard.
+    * @return The formatted date/time.
+    */
+   public String getIsoDateTime() {
+      return formatSet.format(timestamp, Format.ISO_DATE_TIME);
+   }
+
+   /**
+    * The locale-formatted name for the day of the week.
+    * @return The day of week name.
+    */
+   public String getDayOfWeekName() {
+      return formatSet.format(timestamp, Format.DAY_OF_WEEK);
+   }
+
+   /**
+    * The locale-formatted month and day.
+    * @return The month and day.
+    */
+   public String getMonthDay() {
+      return formatSet.format(timestamp, Format.MONTH_DAY);
+   }
+
+   /**
+    * Gets the YYYY,MM,DD
+    * @return The YYYY,MM,DD string.
+    */
+   public String getYMDCSV() {
+      return formatSet.format(timestamp, Format.YMD_CSV);
+   }
+
+   /**
+    * Gets the YYYYMMDD
+    * @return The YYYYMMDD string.
+    */
+   public String getYMD() {
+      return formatSet.format(timestamp, Format.YMD);
+   }
+
+   /**
+    * Gets the YYYY
+    * @return The YYYY string.
+    */
+   public String getYYYY() {
+      return formatSet.format(timestamp, Format.YEAR);
+   }
+
+   /**
+    * Gets the format 7:50 PM Wednesday 4 November
+    * @return The formatted string.
+    */
+   public String getTimeDateMonth() {
+      return formatSet.format(timestamp, Format.TIME_DAY_MONTH);
+   }
+
+   /**
+    * Formats using words like "14 Minutes Ago"
+    * @return The ago string.
+    */
+   public String getAgo() {
+      return RelativeTime.DEFAULT.ago(timestamp);
+   }
+
+   /**
+    * Formats with "Today", "Yesterday", "2 Days Ago".
+    * @return The days ago string.
+    */
+   public String getDaysAgo() {
+      return RelativeTime.DEFAULT.daysAgo(timestamp, formatSet.zone);
+   }
+
+   /**
+    * Determine if the date is in the current year.
+    * @return Is the date in this year?
+    */
+   public boolean isThisYear() {
+      return RelativeTime.DEFAULT.isThisYear(timestamp, formatSet.zone);
+   }
+
+   /**
+    * Determine if the date is in the current day.
+    * @return Is the date today?
+    */
+   public boolean isToday() {
+      return RelativeTime.DEFAULT.isToday(timestamp, formatSet.zone);
+   }
+
+   /**
+    * Determine if the date is from the previous day.
+    * @return Is the date from the previous day?
+    */
+   public boolean isYesterday() {
+      return RelativeTime.DEFAULT.isYesterday(timestamp, formatSet.zone);
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if(this == o) return true;
+      if(o == null || getClass() != o.getClass()) return false;
+      final FormattedDate that = (FormattedDate)o;
+      return timestamp == that.timestamp && formatSet == that.formatSet;
+   }
+
+   @Override
+   public int hashCode() {
+      return Long.hashCode(timestamp);
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this)
+              .add("timestamp", timestamp)
+              .add("formatSet", formatSet)
+              .toString();
+   }
+
+   /**
+    * The timestamp.
+    */
+   final long timestamp;
+
+   /**
+    * The associated date format set.
+    */
+   final DateFormatSet formatSet;
+}
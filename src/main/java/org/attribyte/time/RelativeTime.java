@@ -0,0 +1,241 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.time;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Renders relative times like "14 Minutes Ago" and "Yesterday" against a pluggable clock.
+ * <p>
+ * Day boundaries are computed at most once per minute for each time zone,
+ * and all strings for common intervals are built once, so rendering
+ * is a few comparisons and a table lookup.
+ * </p>
+ */
+public class RelativeTime {
+
+   /**
+    * Day and year boundaries for a time zone.
+    */
+   private static final class Boundaries {
+
+      Boundaries(final long currTime, final ZoneId zone) {
+         LocalDate today = Instant.ofEpochMilli(currTime).atZone(zone).toLocalDate();
+         this.todayStart = startOfDay(today, zone);
+         this.tomorrowStart = startOfDay(today.plusDays(1), zone);
+         this.yesterdayStart = startOfDay(today.minusDays(1), zone);
+         this.yearStart = startOfDay(today.withDayOfYear(1), zone);
+         this.nextYearStart = startOfDay(today.withDayOfYear(1).plusYears(1), zone);
+         this.expireTime = currTime - Math.floorMod(currTime, ONE_MINUTE_MILLIS) + ONE_MINUTE_MILLIS;
+      }
+
+      private static long startOfDay(final LocalDate date, final ZoneId zone) {
+         return date.atStartOfDay(zone).toInstant().toEpochMilli();
+      }
+
+      /**
+       * The start of the current day.
+       */
+      final long todayStart;
+
+      /**
+       * The start of the next day.
+       */
+      final long tomorrowStart;
+
+      /**
+       * The start of the previous day.
+       */
+      final long yesterdayStart;
+
+      /**
+       * The start of the current year.
+       */
+      final long yearStart;
+
+      /**
+       * The start of the next year.
+       */
+      final long nextYearStart;
+
+      /**
+       * The time after which boundaries must be recomputed.
+       */
+      final long expireTime;
+   }
+
+   /**
+    * The default instance that uses the system clock.
+    */
+   public static final RelativeTime DEFAULT = new RelativeTime(Clock.systemUTC());
+
+   /**
+    * Creates a relative time engine.
+    * @param clock The clock used to determine the current time.
+    */
+   public RelativeTime(final Clock clock) {
+      this.clock = clock;
+   }
+
+   /**
+    * Formats using words like "14 Minutes Ago".
+    * @param timestamp The timestamp.
+    * @return The ago string.
+    */
+   public String ago(final long timestamp) {
+
+      long timeAgoMinutes = (clock.millis() - timestamp) / ONE_MINUTE_MILLIS;
+
+      if(timeAgoMinutes <= 1L) {
+         return MINUTES_AGO[1];
+      } else if(timeAgoMinutes < 60L) {
+         return MINUTES_AGO[(int)timeAgoMinutes];
+      } else if(timeAgoMinutes < ONE_DAY_MINUTES) {
+         return HOURS_AGO[(int)(timeAgoMinutes / 60L)];
+      } else {
+         return daysAgoString(timeAgoMinutes / ONE_DAY_MINUTES);
+      }
+   }
+
+   /**
+    * Formats with "Today", "Yesterday", "2 Days Ago".
+    * @param timestamp The timestamp.
+    * @param zone The time zone that determines day boundaries.
+    * @return The days ago string.
+    */
+   public String daysAgo(final long timestamp, final ZoneId zone) {
+
+      final long currTime = clock.millis();
+      final Boundaries boundaries = boundaries(currTime, zone);
+
+      if(timestamp >= boundaries.todayStart) {
+         return TODAY;
+      } else if(timestamp >= boundaries.yesterdayStart) {
+         return YESTERDAY;
+      } else {
+         return daysAgoString((currTime - timestamp) / ONE_MINUTE_MILLIS / ONE_DAY_MINUTES);
+      }
+   }
+
+   /**
+    * Determine if a timestamp is in the current day.
+    * @param timestamp The timestamp.
+    * @param zone The time zone that determines day boundaries.
+    * @return Is the timestamp today?
+    */
+   public boolean isToday(final long timestamp, final ZoneId zone) {
+      final Boundaries boundaries = boundaries(clock.millis(), zone);
+      return timestamp >= boundaries.todayStart && timestamp < boundaries.tomorrowStart;
+   }
+
+   /**
+    * Determine if a timestamp is in the previous day.
+    * @param timestamp The timestamp.
+    * @param zone The time zone that determines day boundaries.
+    * @return Is the timestamp yesterday?
+    */
+   public boolean isYesterday(final long timestamp, final ZoneId zone) {
+      final Boundaries boundaries = boundaries(clock.millis(), zone);
+      return timestamp >= boundaries.yesterdayStart && timestamp < boundaries.todayStart;
+   }
+
+   /**
+    * Determine if a timestamp is in the current year.
+    * @param timestamp The timestamp.
+    * @param zone The time zone that determines year boundaries.
+    * @return Is the timestamp in this year?
+    */
+   public boolean isThisYear(final long timestamp, final ZoneId zone) {
+      final Boundaries boundaries = boundaries(clock.millis(), zone);
+      return timestamp >= boundaries.yearStart && timestamp < boundaries.nextYearStart;
+   }
+
+   /**
+    * Gets boundaries for a zone, recomputing them if the current minute has changed.
+    * @param currTime The current time.
+    * @param zone The time zone.
+    * @return The boundaries.
+    */
+   private Boundaries boundaries(final long currTime, final ZoneId zone) {
+      Boundaries boundaries = boundariesCache.get(zone);
+      if(boundaries == null || currTime >= boundaries.expireTime || currTime < boundaries.expireTime - ONE_MINUTE_MILLIS) {
+         boundaries = new Boundaries(currTime, zone);
+         boundariesCache.put(zone, boundaries);
+      }
+      return boundaries;
+   }
+
+   /**
+    * Gets the string for a number of days ago.
+    * @param daysAgo The number of days.
+    * @return The string.
+    */
+   private static String daysAgoString(final long daysAgo) {
+      if(daysAgo < DAYS_AGO.length) {
+         return DAYS_AGO[(int)daysAgo];
+      } else {
+         return Long.toString(daysAgo) + " Days Ago";
+      }
+   }
+
+   private static final long ONE_MINUTE_MILLIS = 60000L;
+   private static final long ONE_DAY_MINUTES = 60L * 24L;
+
+   private static final String TODAY = "Today";
+   private static final String YESTERDAY = "Yesterday";
+
+   /**
+    * "N Minutes Ago" strings for 0-59 minutes.
+    */
+   private static final String[] MINUTES_AGO = new String[60];
+
+   /**
+    * "N Hours Ago" strings for 0-23 hours.
+    */
+   private static final String[] HOURS_AGO = new String[24];
+
+   /**
+    * "N Days Ago" strings for 0-365 days.
+    */
+   private static final String[] DAYS_AGO = new String[366];
+
+   static {
+      for(int i = 0; i < MINUTES_AGO.length; i++) {
+         MINUTES_AGO[i] = i == 1 ? "1 Minute Ago" : Integer.toString(i) + " Minutes Ago";
+      }
+      for(int i = 0; i < HOURS_AGO.length; i++) {
+         HOURS_AGO[i] = i == 1 ? "1 Hour Ago" : Integer.toString(i) + " Hours Ago";
+      }
+      for(int i = 0; i < DAYS_AGO.length; i++) {
+         DAYS_AGO[i] = i == 1 ? YESTERDAY : Integer.toString(i) + " Days Ago";
+      }
+   }
+
+   /**
+    * The clock.
+    */
+   private final Clock clock;
+
+   /**
+    * Day boundaries vs time zone.
+    */
+   private final ConcurrentMap<ZoneId, Boundaries> boundariesCache = new ConcurrentHashMap<>();
+}
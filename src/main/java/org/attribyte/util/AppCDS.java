@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import com.google.common.collect.ImmutableList;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Support for training runs that create an application class data sharing (AppCDS) archive.
+ * <p>
+ * A training run starts the application with {@link #trainingFlags(String)} and the system property
+ * {@value #TRAINING_SYSTEM_PROP}{@code =true}. The {@link CLI} exits when startup is complete,
+ * and the JVM writes every class loaded during startup, including those from this library,
+ * Guava and Joda-Time, to the archive. Later runs that start with {@link #runFlags(String)}
+ * map the archived classes instead of loading, parsing and verifying them.
+ * </p>
+ * <p>
+ * Dynamic archives require Java 13 or later. The archive must be created by the same JVM
+ * with the same classpath used for later runs.
+ * </p>
+ */
+public final class AppCDS {
+
+   /**
+    * The system property that enables a training run ('appcds.training').
+    */
+   public static final String TRAINING_SYSTEM_PROP = "appcds.training";
+
+   private AppCDS() {
+   }
+
+   /**
+    * Determine if this is a training run.
+    * @return Is the training system property set to {@code true}?
+    */
+   public static boolean isTrainingRun() {
+      return Boolean.getBoolean(TRAINING_SYSTEM_PROP);
+   }
+
+   /**
+    * Gets the JVM flags for a training run that writes an archive.
+    * @param archiveFile The archive file.
+    * @return The flags.
+    */
+   public static List<String> trainingFlags(final String archiveFile) {
+      return ImmutableList.of(
+              "-XX:ArchiveClassesAtExit=" + archiveFile,
+              "-D" + TRAINING_SYSTEM_PROP + "=true"
+      );
+   }
+
+   /**
+    * Gets the JVM flags for a run that uses an archive.
+    * <p>
+    * With {@code -Xshare:auto} the JVM starts normally if the archive is missing or does not
+    * match the JVM or classpath.
+    * </p>
+    * @param archiveFile The archive file.
+    * @return The flags.
+    */
+   public static List<String> runFlags(final String archiveFile) {
+      return ImmutableList.of(
+              "-XX:SharedArchiveFile=" + archiveFile,
+              "-Xshare:auto"
+      );
+   }
+
+   /**
+    * Gets the archive file specified when the JVM was started.
+    * @return The archive file, or {@code null} if none was specified.
+    */
+   public static String archiveFile() {
+      for(String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+         if(arg.startsWith(SHARED_ARCHIVE_FILE_FLAG)) {
+            return arg.substring(SHARED_ARCHIVE_FILE_FLAG.length());
+         }
+      }
+      return null;
+   }
+
+   private static final String SHARED_ARCHIVE_FILE_FLAG = "-XX:SharedArchiveFile=";
+}
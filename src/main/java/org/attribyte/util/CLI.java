@@ -15,12 +15,15 @@
 
 package org.attribyte.util;
 
+import com.google.common.collect.Lists;
 import org.attribyte.api.Logger;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Creates a command line interface with properties and a logger.
@@ -51,12 +54,22 @@ public abstract class CLI {
     */
    protected CLI(final String appName, final String installDirSystemProperty, String args[]) throws IOException {
       this.appName = appName;
-      Properties commandLineOverrides = new Properties();
+      this.installDirSystemProperty = installDirSystemProperty;
       args = InitUtil.fromCommandLine(args, commandLineOverrides);
-      loadProperties(args, props, logProps, installDirSystemProperty);
+      StartupPhases.Phase phase = startup.begin("load-properties");
+      try {
+         loadProperties(args, props, logProps, installDirSystemProperty);
+      } finally {
+         phase.close();
+      }
       props.putAll(commandLineOverrides);
       logProps.putAll(commandLineOverrides);
-      this.logger = initLogger();
+      phase = startup.begin("init-logger");
+      try {
+         this.logger = initLogger();
+      } finally {
+         phase.close();
+      }
    }
 
    /**
@@ -85,22 +98,36 @@ public abstract class CLI {
             System.exit(0);
          }
 
-         FileInputStream fis = null;
-         Properties currProps = new Properties();
-
+         StartupPhases.Phase phase = startup.begin(f.getName());
          try {
-            fis = new FileInputStream(f);
-            currProps.load(fis);
-            if(f.getName().startsWith("log.")) {
-               logProps.putAll(resolveRelativeFiles(currProps, installDirSystemProperty));
-            } else {
-               props.putAll(resolveRelativeFiles(currProps, installDirSystemProperty));
-            }
+            loadFile(f, props, logProps, installDirSystemProperty);
          } finally {
-            if(fis != null) {
-               fis.close();
-            }
+            phase.close();
          }
+         configFiles.add(f);
+      }
+   }
+
+   /**
+    * Loads properties from a file.
+    * @param f The file.
+    * @param props The properties to fill.
+    * @param logProps The properties to fill if the file name starts with 'log.'.
+    * @param installDirSystemProperty The system property containing the install directory.
+    * @throws IOException on load error.
+    */
+   static void loadFile(final File f,
+                        final Properties props,
+                        final Properties logProps,
+                        final String installDirSystemProperty) throws IOException {
+      Properties currProps = new Properties();
+      try(FileInputStream fis = new FileInputStream(f)) {
+         currProps.load(fis);
+      }
+      if(f.getName().startsWith("log.")) {
+         logProps.putAll(resolveRelativeFiles(currProps, installDirSystemProperty));
+      } else {
+         props.putAll(resolveRelativeFiles(currProps, installDirSystemProperty));
       }
    }
 
@@ -111,7 +138,7 @@ public abstract class CLI {
     * @param props The properties.
     * @return The properties with modified values.
     */
-   private Properties resolveRelativeFiles(final Properties props, final String installDirSystemProperty) {
+   private static Properties resolveRelativeFiles(final Properties props, final String installDirSystemProperty) {
 
       Properties filteredProps = new Properties();
       String systemInstallDir = systemInstallDir(installDirSystemProperty);
@@ -137,7 +164,10 @@ public abstract class CLI {
     * @param installDirSystemProperty The system property containing the install directory.
     * @return The directory.
     */
-   private String systemInstallDir(String installDirSystemProperty) {
+   private static String systemInstallDir(String installDirSystemProperty) {
+      if(installDirSystemProperty == null) {
+         return "";
+      }
       String systemInstallDir = System.getProperty(installDirSystemProperty, "").trim();
       if(systemInstallDir.length() > 0 && !systemInstallDir.endsWith("/")) {
          systemInstallDir = systemInstallDir + "/";
@@ -145,6 +175,58 @@ public abstract class CLI {
       return systemInstallDir;
    }
 
+   /**
+    * Creates a configuration source that reloads the files supplied on the command line
+    * when they change, then starts polling them.
+    * <p>
+    * Command line overrides continue to take precedence over file values.
+    * The returned source should be closed on shutdown.
+    * </p>
+    * @param pollInterval The interval between checks for modified files.
+    * @param pollIntervalUnits The poll interval units.
+    * @return The started configuration source.
+    * @throws IOException on load error.
+    */
+   protected WatchedConfig watchConfig(final long pollInterval, final TimeUnit pollIntervalUnits) throws IOException {
+      WatchedConfig config = new WatchedConfig(configFiles, installDirSystemProperty, commandLineOverrides, logger);
+      config.start(pollInterval, pollIntervalUnits);
+      return config;
+   }
+
+   /**
+    * Begins a timed startup phase, nested within any open phase.
+    * <p>
+    * Subclasses should time expensive initialization steps with this method, e.g.
+    * {@code try(StartupPhases.Phase phase = startupPhase("init-cache")) { ... }}.
+    * </p>
+    * @param name The phase name.
+    * @return The phase, to be closed when the step is complete.
+    */
+   protected final StartupPhases.Phase startupPhase(final String name) {
+      return startup.begin(name);
+   }
+
+   /**
+    * Marks startup as complete and logs the startup phase report.
+    * <p>
+    * If this is an AppCDS training run, the JVM exits so the class archive is written.
+    * Comparing reports from runs with and without the archive shows its effect on startup.
+    * </p>
+    * @return The report.
+    * @see AppCDS
+    */
+   protected String startupComplete() {
+      String archiveFile = AppCDS.archiveFile();
+      String report = startup.report() + System.lineSeparator() +
+              (archiveFile != null ? "Class data sharing archive: " + archiveFile : "Class data sharing archive: none");
+      logInfo(report);
+      if(AppCDS.isTrainingRun()) {
+         logInfo("AppCDS training run complete. Exiting to write the class archive");
+         System.exit(0);
+      }
+      return report;
+   }
+
    /**
     * Initialize the logger.
     * @return The logger.
@@ -171,6 +253,26 @@ public abstract class CLI {
     */
    public final Logger logger;
 
+   /**
+    * The startup phases.
+    */
+   public final StartupPhases startup = new StartupPhases();
+
+   /**
+    * The configuration files, in load order.
+    */
+   private final List<File> configFiles = Lists.newArrayListWithExpectedSize(4);
+
+   /**
+    * Properties supplied on the command line.
+    */
+   private final Properties commandLineOverrides = new Properties();
+
+   /**
+    * The system property that indicates the install directory.
+    */
+   private final String installDirSystemProperty;
+
    /**
     * Logs to both the console and the log file.
     * @param message The message.
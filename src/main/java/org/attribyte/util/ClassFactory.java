@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates instances of classes by name with their no-argument constructor.
+ * <p>
+ * Each class name is resolved and its constructor looked up once. Later instances
+ * are created by invoking the cached constructor handle, without reflective access checks.
+ * </p>
+ */
+public final class ClassFactory {
+
+   /**
+    * Creates instances of a class.
+    */
+   public interface Factory {
+
+      /**
+       * Gets the class created by this factory.
+       * @return The class.
+       */
+      public Class<?> instanceClass();
+
+      /**
+       * Creates a new instance.
+       * <p>
+       * Runtime exceptions and errors thrown by the constructor are propagated.
+       * </p>
+       * @return The new instance.
+       * @throws InstantiationException if the constructor throws a checked exception.
+       */
+      public Object newInstance() throws InstantiationException;
+   }
+
+   /**
+    * A factory that invokes a constructor handle.
+    */
+   private static final class HandleFactory implements Factory {
+
+      HandleFactory(final Class<?> instanceClass, final MethodHandle constructor) {
+         this.instanceClass = instanceClass;
+         this.constructor = constructor.asType(MethodType.methodType(Object.class));
+      }
+
+      @Override
+      public Class<?> instanceClass() {
+         return instanceClass;
+      }
+
+      @Override
+      public Object newInstance() throws InstantiationException {
+         try {
+            return (Object)constructor.invokeExact();
+         } catch(RuntimeException | Error e) {
+            throw e;
+         } catch(Throwable t) {
+            InstantiationException ie = new InstantiationException(instanceClass.getName());
+            ie.initCause(t);
+            throw ie;
+         }
+      }
+
+      /**
+       * The class.
+       */
+      private final Class<?> instanceClass;
+
+      /**
+       * The constructor, adapted to return {@code Object}.
+       */
+      private final MethodHandle constructor;
+   }
+
+   /**
+    * The shared factory cache.
+    */
+   public static final ClassFactory DEFAULT = new ClassFactory();
+
+   /**
+    * Gets the factory for a class, resolving the class and its constructor on first use.
+    * @param className The fully-qualified class name.
+    * @return The factory.
+    * @throws ClassNotFoundException if the class was not found.
+    * @throws NoSuchMethodException if the class has no no-argument constructor.
+    * @throws IllegalAccessException if the class or constructor is not accessible.
+    * @throws InstantiationException if the class is abstract or an interface.
+    */
+   public Factory factory(final String className)
+           throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InstantiationException {
+      Factory factory = factories.get(className);
+      if(factory == null) {
+         factory = resolve(className);
+         Factory prev = factories.putIfAbsent(className, factory);
+         if(prev != null) {
+            factory = prev;
+         }
+      }
+      return factory;
+   }
+
+   /**
+    * Creates a new instance of a class.
+    * @param className The fully-qualified class name.
+    * @return The new instance.
+    * @throws ClassNotFoundException if the class was not found.
+    * @throws ReflectiveOperationException if the class could not be instantiated.
+    */
+   public Object newInstance(final String className) throws ReflectiveOperationException {
+      return factory(className).newInstance();
+   }
+
+   /**
+    * Gets the number of cached factories.
+    * @return The number of factories.
+    */
+   public int size() {
+      return factories.size();
+   }
+
+   /**
+    * Removes all cached factories.
+    */
+   public void clear() {
+      factories.clear();
+   }
+
+   /**
+    * Resolves a class and its no-argument constructor.
+    * @param className The class name.
+    * @return The factory.
+    * @throws ClassNotFoundException if the class was not found.
+    * @throws NoSuchMethodException if the class has no no-argument constructor.
+    * @throws IllegalAccessException if the class or constructor is not accessible.
+    * @throws InstantiationException if the class is abstract or an interface.
+    */
+   private static Factory resolve(final String className)
+           throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InstantiationException {
+      Class<?> c = Class.forName(className);
+      if(c.isInterface() || Modifier.isAbstract(c.getModifiers())) {
+         throw new InstantiationException(className);
+      }
+      MethodHandle constructor;
+      try {
+         constructor = MethodHandles.publicLookup().findConstructor(c, NO_ARG_CONSTRUCTOR);
+      } catch(IllegalAccessException iae) {
+         constructor = MethodHandles.lookup().unreflectConstructor(c.getDeclaredConstructor());
+      }
+      return new HandleFactory(c, constructor);
+   }
+
+   private static final MethodType NO_ARG_CONSTRUCTOR = MethodType.methodType(void.class);
+
+   /**
+    * Factories vs class name.
+    */
+   private final ConcurrentMap<String, Factory> factories = new ConcurrentHashMap<>();
+}
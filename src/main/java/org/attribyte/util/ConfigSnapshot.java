@@ -0,0 +1,391 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Longs;
+import org.attribyte.api.InitializationException;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * An immutable, pre-parsed snapshot of the properties selected by an {@link InitUtil}.
+ * <p>
+ * Values are trimmed, split on ',' and parsed as integers and times once, when the snapshot is created.
+ * Reads never lock, parse or allocate, except to lower-case a name that is not already lower-case
+ * when names are case-insensitive, and to split the default value of a missing multi-valued property. Methods have the same semantics as the equivalent methods of {@link InitUtil}.
+ * </p>
+ */
+public final class ConfigSnapshot {
+
+   /**
+    * A parsed value.
+    */
+   private static final class Value {
+
+      Value(final String str) {
+         this.str = str;
+         Long longValue = Longs.tryParse(str);
+         this.isLong = longValue != null;
+         this.longValue = isLong ? longValue : 0L;
+         this.isInt = isLong && longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE;
+         this.millis = InitUtil.millisFromTime(str);
+      }
+
+      /**
+       * The string value.
+       */
+      final String str;
+
+      /**
+       * Is the value a long integer?
+       */
+      final boolean isLong;
+
+      /**
+       * Is the value an integer?
+       */
+      final boolean isInt;
+
+      /**
+       * The value as a long, if {@code isLong}.
+       */
+      final long longValue;
+
+      /**
+       * The value as a time in milliseconds, or {@code Long.MIN_VALUE} if not a time with units.
+       */
+      final long millis;
+   }
+
+   /**
+    * A property.
+    */
+   private static final class Entry {
+
+      Entry(final String str) {
+         this.value = new Value(str);
+         String[] split = str.split(",");
+         this.values = new Value[split.length];
+         ImmutableList.Builder<String> list = ImmutableList.builder();
+         for(int i = 0; i < split.length; i++) {
+            values[i] = new Value(split[i].trim());
+            if(!values[i].str.isEmpty()) {
+               list.add(values[i].str);
+            }
+         }
+         this.list = list.build();
+      }
+
+      /**
+       * Gets the value at an index, or the last value if the index exceeds the number of values.
+       * @param index The index.
+       * @return The value.
+       */
+      Value value(final int index) {
+         return index < values.length ? values[index] : values[values.length - 1];
+      }
+
+      /**
+       * The whole value.
+       */
+      final Value value;
+
+      /**
+       * The comma-separated values.
+       */
+      final Value[] values;
+
+      /**
+       * The non-empty comma-separated values.
+       */
+      final ImmutableList<String> list;
+   }
+
+   /**
+    * Creates a snapshot.
+    * @param prefix The prefix applied to the original properties.
+    * @param props The properties, with prefix removed and values trimmed.
+    * @param lowercaseNames Were property names lower-cased?
+    */
+   ConfigSnapshot(final String prefix, final Properties props, final boolean lowercaseNames) {
+      this.prefix = prefix;
+      this.lowercaseNames = lowercaseNames;
+      ImmutableMap.Builder<String, Entry> builder = ImmutableMap.builder();
+      for(String name : props.stringPropertyNames()) {
+         builder.put(name, new Entry(props.getProperty(name)));
+      }
+      this.entries = builder.build();
+   }
+
+   /**
+    * Creates a snapshot with case-sensitive names, as for {@code new InitUtil(prefix, props)}.
+    * @param prefix The prefix appended to all property names.
+    * @param props The properties.
+    * @return The snapshot.
+    */
+   public static ConfigSnapshot create(final String prefix, final Properties props) {
+      return new InitUtil(prefix, props).snapshot();
+   }
+
+   /**
+    * Creates a snapshot with optionally case-insensitive names.
+    * @param prefix The prefix appended to all property names.
+    * @param props The properties.
+    * @param lowercaseNames Should property names be lower-cased? That is, property methods are case-insensitive.
+    * @return The snapshot.
+    */
+   public static ConfigSnapshot create(final String prefix, final Properties props, final boolean lowercaseNames) {
+      return new InitUtil(prefix, props, lowercaseNames).snapshot();
+   }
+
+   /**
+    * Gets the prefix applied to the original properties.
+    * @return The prefix.
+    */
+   public String prefix() {
+      return prefix;
+   }
+
+   /**
+    * Gets the names of all properties.
+    * @return The set of names.
+    */
+   public Set<String> names() {
+      return entries.keySet();
+   }
+
+   /**
+    * Gets the number of properties.
+    * @return The number of properties.
+    */
+   public int size() {
+      return entries.size();
+   }
+
+   /**
+    * Gets new properties containing all values in this snapshot.
+    * @return The new properties.
+    */
+   public Properties toProperties() {
+      Properties props = new Properties();
+      for(Map.Entry<String, Entry> kv : entries.entrySet()) {
+         props.setProperty(kv.getKey(), kv.getValue().value.str);
+      }
+      return props;
+   }
+
+   /**
+    * Determine if a non-empty property exists.
+    * @param propertyName The property name.
+    * @return Does the property exist?
+    */
+   public boolean hasProperty(final String propertyName) {
+      return !Strings.isNullOrEmpty(getProperty(propertyName));
+   }
+
+   /**
+    * Gets a property.
+    * @param propertyName The property name.
+    * @return The property, or {@code null} if unspecified.
+    */
+   public String getProperty(final String propertyName) {
+      Entry entry = entry(propertyName);
+      return entry != null ? entry.value.str : null;
+   }
+
+   /**
+    * Gets a property.
+    * @param propertyName The property name.
+    * @param defaultValue The default value.
+    * @return The property, or the default value if unspecified.
+    */
+   public String getProperty(final String propertyName, final String defaultValue) {
+      Entry entry = entry(propertyName);
+      return entry != null ? entry.value.str : defaultValue;
+   }
+
+   /**
+    * Gets a multi-valued property.
+    * <p>
+    * Index values are separated by ','. If index exceeds
+    * the number of values, the last is returned.
+    * </p>
+    * @param propertyName The property name.
+    * @param index The index.
+    * @param defaultValue The default value, split and indexed in the same way. Used only if the property does not exist.
+    * @return The property, or the default value if unspecified.
+    */
+   public String getProperty(final String propertyName, final int index, final String defaultValue) {
+      Entry entry = entry(propertyName);
+      if(entry != null) {
+         return entry.value(index).str;
+      } else if(defaultValue == null) {
+         return null;
+      }
+
+      String[] values = defaultValue.split(",");
+      return index < values.length ? values[index].trim() : values[values.length - 1].trim();
+   }
+
+   /**
+    * Gets the non-empty, comma-separated values of a property.
+    * @param propertyName The property name.
+    * @return The list of values, or an empty list if unspecified.
+    */
+   public ImmutableList<String> getList(final String propertyName) {
+      Entry entry = entry(propertyName);
+      return entry != null ? entry.list : ImmutableList.of();
+   }
+
+   /**
+    * Gets a property as an integer.
+    * @param propertyName The property name.
+    * @param defaultValue The default value.
+    * @return The property, or the default value if unspecified.
+    * @throws InitializationException if property is not an integer.
+    */
+   public int getIntProperty(final String propertyName, final int defaultValue) throws InitializationException {
+      Entry entry = entry(propertyName);
+      if(entry == null || entry.value.str.isEmpty()) {
+         return defaultValue;
+      }
+      return intValue(propertyName, entry.value);
+   }
+
+   /**
+    * Gets a multi-valued integer property.
+    * <p>
+    * Index values are separated by ','. If index exceeds
+    * the number of values, the last is returned.
+    * </p>
+    * @param propertyName The property name.
+    * @param index The index.
+    * @param defaultValue The default value. Used only if the property does not exist.
+    * @return The property, or the default value if unspecified.
+    * @throws InitializationException if property is not an integer.
+    */
+   public int getIntProperty(final String propertyName, final int index, final int defaultValue) throws InitializationException {
+      Entry entry = entry(propertyName);
+      if(entry == null) {
+         return defaultValue;
+      }
+      return intValue(propertyName, entry.value(index));
+   }
+
+   /**
+    * Gets a property as a long.
+    * @param propertyName The property name.
+    * @param defaultValue The default value.
+    * @return The property, or the default value if unspecified.
+    * @throws InitializationException if property is not an integer.
+    */
+   public long getLongProperty(final String propertyName, final long defaultValue) throws InitializationException {
+      Entry entry = entry(propertyName);
+      if(entry == null || entry.value.str.isEmpty()) {
+         return defaultValue;
+      }
+      if(entry.value.isLong) {
+         return entry.value.longValue;
+      } else {
+         throw new InitializationException(String.format("The '%s%s' must be an integer", prefix, propertyName));
+      }
+   }
+
+   /**
+    * Gets a property as a time in milliseconds.
+    * <p>
+    * The value must end with units, as for {@link InitUtil#millisFromTime(String)}.
+    * </p>
+    * @param propertyName The property name.
+    * @param defaultValue The default value.
+    * @return The time in milliseconds, or the default value if unspecified.
+    * @throws InitializationException if property is not a time with units.
+    */
+   public long getMillis(final String propertyName, final long defaultValue) throws InitializationException {
+      Entry entry = entry(propertyName);
+      if(entry == null || entry.value.str.isEmpty()) {
+         return defaultValue;
+      }
+      if(entry.value.millis != Long.MIN_VALUE) {
+         return entry.value.millis;
+      } else {
+         throw new InitializationException(String.format("The '%s%s' must be a time with units (e.g. 30s, 5m)", prefix, propertyName));
+      }
+   }
+
+   /**
+    * Gets a value as an integer.
+    * @param propertyName The property name.
+    * @param value The value.
+    * @return The integer.
+    * @throws InitializationException if the value is not an integer.
+    */
+   private int intValue(final String propertyName, final Value value) throws InitializationException {
+      if(value.isInt) {
+         return (int)value.longValue;
+      } else {
+         throw new InitializationException(String.format("The '%s%s' must be an integer", prefix, propertyName));
+      }
+   }
+
+   /**
+    * Gets the entry for a property name.
+    * @param propertyName The property name.
+    * @return The entry or {@code null} if none.
+    */
+   private Entry entry(final String propertyName) {
+      Entry entry = entries.get(propertyName);
+      if(entry == null && lowercaseNames && hasUpperCase(propertyName)) {
+         entry = entries.get(propertyName.toLowerCase());
+      }
+      return entry;
+   }
+
+   /**
+    * Determine if a string contains any upper-case characters.
+    * @param str The string.
+    * @return Does the string contain upper-case characters?
+    */
+   private static boolean hasUpperCase(final String str) {
+      for(int i = 0; i < str.length(); i++) {
+         char ch = str.charAt(i);
+         if(ch != Character.toLowerCase(ch)) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * The prefix applied to the original properties.
+    */
+   private final String prefix;
+
+   /**
+    * Were property names lower-cased?
+    */
+   private final boolean lowercaseNames;
+
+   /**
+    * The entries vs name.
+    */
+   private final ImmutableMap<String, Entry> entries;
+}
@@ -15,20 +15,220 @@
 
 package org.attribyte.util;
 
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import java.util.Collections;
 import java.util.List;
 
 /**
  * Utilities for (built-into-java) DOM manipulation.
+ * <p>
+ * Child elements are found by walking siblings, not by searching descendants.
+ * </p>
+ * <p>
+ * To process large documents without building a DOM, see {@link XMLStreamUtil}.
+ * </p>
  * @author Matt Hamer - Attribyte, LLC
  */
 public class DOMUtil {
 
+   /**
+    * A compiled path expression like {@code feed/entry/link@href}, reusable across documents.
+    * <p>
+    * A path is a sequence of element names separated by '/', optionally followed by {@code @attribute}.
+    * A name matches child elements with that tag name, as for {@code getElementsByTagName}. With a namespace-aware
+    * parser, a name without a prefix also matches the local name, so {@code link} matches {@code atom:link}.
+    * A name of {@code *} matches any element.
+    * Evaluation starts at the children of the context node, so for a document, the first name
+    * matches the document element. Elements are found by walking siblings, in document order.
+    * Paths are immutable and thread-safe.
+    * </p>
+    */
+   public static final class ElementPath {
+
+      private ElementPath(final String expression) {
+         this.expression = expression;
+         String elementPath = expression.trim();
+         final int attributeIndex = elementPath.lastIndexOf('@');
+         if(attributeIndex >= 0) {
+            this.attribute = elementPath.substring(attributeIndex + 1).trim();
+            elementPath = elementPath.substring(0, attributeIndex);
+            if(this.attribute.isEmpty()) {
+               throw new IllegalArgumentException("Expected an attribute name in '" + expression + "'");
+            } else if(this.attribute.indexOf('/') >= 0) {
+               throw new IllegalArgumentException("An attribute must be last in '" + expression + "'");
+            }
+         } else {
+            this.attribute = null;
+         }
+         List<String> names = pathSplitter.splitToList(elementPath);
+         if(names.isEmpty() && this.attribute == null) {
+            throw new IllegalArgumentException("The path must not be empty");
+         }
+         for(String name : names) {
+            if(name.indexOf('@') >= 0) {
+               throw new IllegalArgumentException("An attribute must be last in '" + expression + "'");
+            }
+         }
+         this.names = names.toArray(new String[0]);
+      }
+
+      /**
+       * Compiles a path, or returns a previously compiled path.
+       * @param expression The path expression.
+       * @return The compiled path.
+       * @throws IllegalArgumentException if the expression is invalid.
+       */
+      public static ElementPath compile(final String expression) {
+         ElementPath path = pathCache.getIfPresent(expression);
+         if(path == null) {
+            path = new ElementPath(expression);
+            pathCache.put(expression, path);
+         }
+         return path;
+      }
+
+      /**
+       * Gets the first element that matches the element names.
+       * @param context The context node, typically a document or element.
+       * @return The element or <tt>null</tt> if none found.
+       */
+      public Element first(final Node context) {
+         if(names.length == 0) {
+            return context instanceof Element ? (Element)context : null;
+         }
+         return first(context, 0);
+      }
+
+      /**
+       * Gets all elements that match the element names, in document order.
+       * @param context The context node.
+       * @return The elements.
+       */
+      public List<Element> all(final Node context) {
+         if(names.length == 0) {
+            return context instanceof Element ? Collections.singletonList((Element)context) : Collections.emptyList();
+         }
+         List<Element> matched = Lists.newArrayList();
+         all(context, 0, matched);
+         return matched;
+      }
+
+      /**
+       * Gets the value of the first match: the attribute value, if the path has an attribute,
+       * or the text content of the first matched element.
+       * <p>
+       * If the path has an attribute, the first matched element that has the attribute is selected.
+       * </p>
+       * @param context The context node.
+       * @return The value or <tt>null</tt> if none.
+       */
+      public String value(final Node context) {
+         if(attribute == null) {
+            Element elem = first(context);
+            return elem != null ? elem.getTextContent() : null;
+         } else if(names.length == 0) {
+            return context instanceof Element ? attributeValue((Element)context) : null;
+         } else {
+            return firstAttribute(context, 0);
+         }
+      }
+
+      /**
+       * Gets the values of all matches, in document order.
+       * Elements without the attribute are skipped if the path has an attribute.
+       * @param context The context node.
+       * @return The values.
+       */
+      public List<String> values(final Node context) {
+         List<Element> matched = all(context);
+         List<String> values = Lists.newArrayListWithExpectedSize(matched.size());
+         for(Element elem : matched) {
+            String value = attribute == null ? elem.getTextContent() : attributeValue(elem);
+            if(value != null) {
+               values.add(value);
+            }
+         }
+         return values;
+      }
+
+      /**
+       * Gets the attribute name.
+       * @return The attribute name or <tt>null</tt> if the path selects elements only.
+       */
+      public String attribute() {
+         return attribute;
+      }
+
+      @Override
+      public String toString() {
+         return expression;
+      }
+
+      private Element first(final Node parent, final int index) {
+         for(Node curr = parent.getFirstChild(); curr != null; curr = curr.getNextSibling()) {
+            if(curr instanceof Element && matchesPathName((Element)curr, names[index])) {
+               if(index == names.length - 1) {
+                  return (Element)curr;
+               }
+               Element found = first(curr, index + 1);
+               if(found != null) {
+                  return found;
+               }
+            }
+         }
+         return null;
+      }
+
+      private String firstAttribute(final Node parent, final int index) {
+         for(Node curr = parent.getFirstChild(); curr != null; curr = curr.getNextSibling()) {
+            if(curr instanceof Element && matchesPathName((Element)curr, names[index])) {
+               String value = index == names.length - 1 ? attributeValue((Element)curr) : firstAttribute(curr, index + 1);
+               if(value != null) {
+                  return value;
+               }
+            }
+         }
+         return null;
+      }
+
+      private void all(final Node parent, final int index, final List<Element> matched) {
+         for(Node curr = parent.getFirstChild(); curr != null; curr = curr.getNextSibling()) {
+            if(curr instanceof Element && matchesPathName((Element)curr, names[index])) {
+               if(index == names.length - 1) {
+                  matched.add((Element)curr);
+               } else {
+                  all(curr, index + 1, matched);
+               }
+            }
+         }
+      }
+
+      private String attributeValue(final Element elem) {
+         return elem.hasAttribute(attribute) ? elem.getAttribute(attribute) : null;
+      }
+
+      /**
+       * The original expression.
+       */
+      private final String expression;
+
+      /**
+       * The element names.
+       */
+      private final String[] names;
+
+      /**
+       * The attribute name, or {@code null}.
+       */
+      private final String attribute;
+   }
+
    /**
     * Gets the first child element with the specified name.
     * @param parentElem The parent element.
@@ -36,33 +236,40 @@ public class DOMUtil {
     * @return The first element or <tt>null</tt> if none found.
     */
    public static final Element getFirstChild(final Element parentElem, final String childName) {
-      NodeList childList = parentElem.getElementsByTagName(childName);
-      if(childList.getLength() > 0) {
-         Node childNode = childList.item(0);
-         if(childNode instanceof Element && childNode.getParentNode() == parentElem) {
-            return (Element)childNode;
-         } else {
-            return null;
+      for(Node curr = parentElem.getFirstChild(); curr != null; curr = curr.getNextSibling()) {
+         if(curr instanceof Element && matches((Element)curr, childName)) {
+            return (Element)curr;
          }
-      } else {
-         return null;
       }
+      return null;
    }
 
+   /**
+    * Gets all child elements with the specified name.
+    * @param parentElem The parent element.
+    * @param childName The child name.
+    * @return The elements.
+    */
    public static final List<Element> getChildElementsByTagName(final Element parentElem, final String childName) {
-      NodeList childList = parentElem.getElementsByTagName(childName);
-      if(childList.getLength() > 0) {
-         List<Element> childElements = Lists.newArrayListWithExpectedSize(childList.getLength());
-         for(int i = 0; i < childList.getLength(); i++) {
-            Node curr = childList.item(i);
-            if(curr instanceof Element && curr.getParentNode() == parentElem) {
-               childElements.add((Element)curr);
+      List<Element> childElements = null;
+      for(Node curr = parentElem.getFirstChild(); curr != null; curr = curr.getNextSibling()) {
+         if(curr instanceof Element && matches((Element)curr, childName)) {
+            if(childElements == null) {
+               childElements = Lists.newArrayList();
             }
+            childElements.add((Element)curr);
          }
-         return childElements;
-      } else {
-         return Collections.emptyList();
       }
+      return childElements != null ? childElements : Collections.emptyList();
+   }
+
+   /**
+    * Gets all child elements.
+    * @param parentElem The parent element.
+    * @return The elements.
+    */
+   public static final List<Element> getChildElements(final Element parentElem) {
+      return getChildElementsByTagName(parentElem, "*");
    }
 
    /**
@@ -72,12 +279,70 @@ public class DOMUtil {
     * @return The text content or <tt>null</tt> if none.
     */
    public static final String getChildText(final Element parentElem, final String childName) {
-      NodeList childList = parentElem.getElementsByTagName(childName);
-      if(childList.getLength() > 0) {
-         Node child = childList.item(0);
-         return child.getTextContent();
-      } else {
-         return null;
-      }
+      Element child = getFirstChild(parentElem, childName);
+      return child != null ? child.getTextContent() : null;
+   }
+
+   /**
+    * Gets the value of a path like {@code feed/entry/link@href}.
+    * @param context The context node.
+    * @param path The path. Compiled paths are cached.
+    * @return The value or <tt>null</tt> if none.
+    * @see ElementPath#value(Node)
+    */
+   public static final String getPathValue(final Node context, final String path) {
+      return ElementPath.compile(path).value(context);
    }
+
+   /**
+    * Gets the values of all matches for a path.
+    * @param context The context node.
+    * @param path The path. Compiled paths are cached.
+    * @return The values.
+    * @see ElementPath#values(Node)
+    */
+   public static final List<String> getPathValues(final Node context, final String path) {
+      return ElementPath.compile(path).values(context);
+   }
+
+   /**
+    * Gets all elements that match a path like {@code feed/entry}.
+    * @param context The context node.
+    * @param path The path. Compiled paths are cached.
+    * @return The elements.
+    */
+   public static final List<Element> getPathElements(final Node context, final String path) {
+      return ElementPath.compile(path).all(context);
+   }
+
+   /**
+    * Determine if an element matches a name, as for {@code getElementsByTagName}.
+    * @param elem The element.
+    * @param name The tag name or '*'.
+    * @return Does the element match?
+    */
+   private static boolean matches(final Element elem, final String name) {
+      return name.equals(elem.getTagName()) || name.equals("*");
+   }
+
+   /**
+    * Determine if an element matches a path name.
+    * @param elem The element.
+    * @param name The tag name, unprefixed local name, or '*'.
+    * @return Does the element match?
+    * @see ElementPath
+    */
+   private static boolean matchesPathName(final Element elem, final String name) {
+      return matches(elem, name) || (name.indexOf(':') < 0 && name.equals(elem.getLocalName()));
+   }
+
+   /**
+    * Splits paths.
+    */
+   private static final Splitter pathSplitter = Splitter.on('/').omitEmptyStrings().trimResults();
+
+   /**
+    * Compiled paths vs expression.
+    */
+   private static final Cache<String, ElementPath> pathCache = CacheBuilder.newBuilder().maximumSize(1024).build();
 }
@@ -17,6 +17,8 @@ package org.attribyte.util;
 
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -25,6 +27,11 @@ import com.google.common.primitives.Longs;
 import org.attribyte.api.InitializationException;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -82,6 +89,22 @@ public class InitUtil {
       return newProps;
    }
 
+   /**
+    * Gets an immutable, pre-parsed snapshot of the properties.
+    * <p>
+    * The snapshot is created on first use and shared by later calls.
+    * </p>
+    * @return The snapshot.
+    */
+   public ConfigSnapshot snapshot() {
+      ConfigSnapshot snapshot = this.snapshot;
+      if(snapshot == null) {
+         snapshot = new ConfigSnapshot(prefix, props, lowercaseNames);
+         this.snapshot = snapshot;
+      }
+      return snapshot;
+   }
+
    /**
     * Gets a map of properties vs name where name is supplied as a prefix, e.g.
     * <p>
@@ -265,6 +288,63 @@ public class InitUtil {
       return objList;
    }
 
+   /**
+    * Creates a list of instances of a class, instantiating classes in parallel.
+    * <p>
+    * Classes must be independent: neither their constructors nor their static initializers
+    * may depend on another class in the list. The order of the returned list matches the property.
+    * </p>
+    * @param propertyName The name of a property containing a space-separated list of classes.
+    * @param expectedClass The expected class.
+    * @param executor The executor used to create instances.
+    * @return The list containing instances of the class or an empty list if no property value.
+    * @throws InitializationException if class could not be found or instantiated.
+    */
+   public final List<Object> initClassList(final String propertyName, final Class<?> expectedClass,
+                                           final ExecutorService executor) throws InitializationException {
+
+      String classList = props.getProperty(lowercaseNames ? propertyName.toLowerCase() : propertyName);
+      if(classList == null || classList.length() == 0) {
+         return Collections.emptyList();
+      }
+
+      List<String> classNames = Splitter.on(' ').omitEmptyStrings().trimResults().splitToList(classList);
+      List<Future<Object>> futures = Lists.newArrayListWithExpectedSize(classNames.size());
+      for(String className : classNames) {
+         futures.add(executor.submit(() -> initClass(propertyName, className, expectedClass)));
+      }
+
+      List<Object> objList = Lists.newArrayListWithExpectedSize(classNames.size());
+      try {
+         for(Future<Object> future : futures) {
+            objList.add(future.get());
+         }
+      } catch(InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         throw new InitializationException(String.format("Interrupted while initializing '%s%s'", prefix, propertyName), ie);
+      } catch(ExecutionException ee) {
+         Throwables.throwIfInstanceOf(ee.getCause(), InitializationException.class);
+         Throwables.throwIfUnchecked(ee.getCause());
+         throw new InitializationException(String.format("Unable to initialize '%s%s'", prefix, propertyName), ee.getCause());
+      } finally {
+         for(Future<Object> future : futures) {
+            future.cancel(true);
+         }
+      }
+      return objList;
+   }
+
+   /**
+    * Gets the time spent creating the most recent instance of each class initialized by this instance.
+    * <p>
+    * Times include class resolution and static initialization for the first instance of a class.
+    * </p>
+    * @return The time in nanoseconds vs class name.
+    */
+   public final Map<String, Long> getClassInitTimes() {
+      return ImmutableSortedMap.copyOf(classInitNanos);
+   }
+
    private Object initClass(final String propertyName, String className,
                             final Class<?> expectedClass) throws InitializationException {
 
@@ -275,8 +355,9 @@ public class InitUtil {
       className = className.trim();
 
       try {
-         Class<?> c = Class.forName(className);
-         Object o = c.newInstance();
+         long startNanos = System.nanoTime();
+         Object o = ClassFactory.DEFAULT.factory(className).newInstance();
+         classInitNanos.put(className, System.nanoTime() - startNanos);
          if(!expectedClass.isInstance(o)) {
             throw new InitializationException(
                     String.format("The class: '%s' specified for '%s%s' does not implement %s",
@@ -288,7 +369,7 @@ public class InitUtil {
          throw new InitializationException(
                  String.format("The class: '%s' specified for '%s%s' was not found in the classpath", className, prefix, propertyName),
                  ce);
-      } catch(InstantiationException | IllegalAccessException ie) {
+      } catch(InstantiationException | IllegalAccessException | NoSuchMethodException ie) {
          throw new InitializationException(
                  String.format("The class: '%s' specified for '%s%s' could not be initialized", className, prefix, propertyName),
                  ie);
@@ -435,6 +516,18 @@ public class InitUtil {
       }
    }
 
+   /**
+    * Convert properties to a list of string pairs, sorted by name.
+    * <p>
+    * Names and values are stored in parallel arrays, without an object per property.
+    * </p>
+    * @param props The properties.
+    * @return The list of pairs.
+    */
+   public static final StringPairList toPairList(final Properties props) {
+      return StringPairList.fromProperties(props);
+   }
+
    /**
     * Convert properties to a collection of string pairs.
     * @param props The properties.
@@ -469,4 +562,14 @@ public class InitUtil {
     * Were property names added as lower-case?
     */
    final boolean lowercaseNames;
+
+   /**
+    * The snapshot, created on first use.
+    */
+   private volatile ConfigSnapshot snapshot;
+
+   /**
+    * The most recent instantiation time vs class name.
+    */
+   private final ConcurrentMap<String, Long> classInitNanos = new ConcurrentHashMap<>();
 }
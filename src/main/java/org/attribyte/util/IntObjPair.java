@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Objects;
+
+/**
+ * An immutable pair with an {@code int} key and an object value.
+ * @param <V> The value class.
+ */
+public final class IntObjPair<V> {
+
+   /**
+    * Creates the pair.
+    * @param key The key.
+    * @param value The value.
+    */
+   public IntObjPair(final int key, final V value) {
+      this.key = key;
+      this.value = value;
+   }
+
+   /**
+    * Gets the key.
+    * @return The key.
+    */
+   public int getKey() {
+      return key;
+   }
+
+   /**
+    * Gets the value.
+    * @return The value.
+    */
+   public V getValue() {
+      return value;
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if(this == o) return true;
+      if(o == null || getClass() != o.getClass()) return false;
+      final IntObjPair<?> pair = (IntObjPair<?>)o;
+      return key == pair.key && Objects.equals(value, pair.value);
+   }
+
+   @Override
+   public int hashCode() {
+      return 31 * Integer.hashCode(key) + Objects.hashCode(value);
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this)
+              .add("key", key)
+              .add("value", value)
+              .toString();
+   }
+
+   /**
+    * The key.
+    */
+   public final int key;
+
+   /**
+    * The value.
+    */
+   public final V value;
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations with logarithmic buckets.
+ * <p>
+ * Each power of two is divided into four buckets, so recorded values and
+ * reported percentiles are accurate to within 25%. Recording is a few
+ * arithmetic operations and two atomic increments.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+   /**
+    * Records a duration.
+    * @param nanos The duration in nanoseconds. Negative values are recorded as zero.
+    */
+   public void record(final long nanos) {
+      final long value = Math.max(0L, nanos);
+      buckets.incrementAndGet(bucket(value));
+      count.increment();
+      sum.add(value);
+      long currMax;
+      while(value > (currMax = max.get())) {
+         if(max.compareAndSet(currMax, value)) {
+            break;
+         }
+      }
+   }
+
+   /**
+    * Gets the number of recorded durations.
+    * @return The count.
+    */
+   public long count() {
+      return count.sum();
+   }
+
+   /**
+    * Gets the mean duration.
+    * @param units The units.
+    * @return The mean, or {@code 0} if nothing was recorded.
+    */
+   public double mean(final TimeUnit units) {
+      long count = count();
+      return count == 0L ? 0.0 : (double)sum.sum() / (double)count / (double)units.toNanos(1L);
+   }
+
+   /**
+    * Gets the maximum duration.
+    * @param units The units.
+    * @return The maximum.
+    */
+   public long max(final TimeUnit units) {
+      return units.convert(max.get(), TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Gets a percentile, the upper bound of the bucket that contains it.
+    * @param percentile The percentile, {@code 0.0 - 1.0}, e.g. {@code 0.99}.
+    * @param units The units.
+    * @return The duration at the percentile, or {@code 0} if nothing was recorded.
+    */
+   public long percentile(final double percentile, final TimeUnit units) {
+      long total = 0L;
+      long[] counts = new long[BUCKET_COUNT];
+      for(int i = 0; i < BUCKET_COUNT; i++) {
+         counts[i] = buckets.get(i);
+         total += counts[i];
+      }
+      if(total == 0L) {
+         return 0L;
+      }
+
+      long rank = (long)Math.ceil(Math.min(1.0, Math.max(0.0, percentile)) * total);
+      long seen = 0L;
+      for(int i = 0; i < BUCKET_COUNT; i++) {
+         seen += counts[i];
+         if(seen >= rank && counts[i] > 0L) {
+            return units.convert(Math.min(upperBound(i), max.get()), TimeUnit.NANOSECONDS);
+         }
+      }
+      return max(units);
+   }
+
+   /**
+    * Removes all recorded values.
+    * <p>
+    * Values recorded concurrently may be partially removed.
+    * </p>
+    */
+   public void reset() {
+      for(int i = 0; i < BUCKET_COUNT; i++) {
+         buckets.set(i, 0L);
+      }
+      count.reset();
+      sum.reset();
+      max.set(0L);
+   }
+
+   @Override
+   public String toString() {
+      return String.format("count=%d, mean=%.3f ms, p50=%.3f ms, p99=%.3f ms, max=%.3f ms",
+              count(), mean(TimeUnit.MILLISECONDS),
+              percentile(0.5, TimeUnit.MICROSECONDS) / 1000.0,
+              percentile(0.99, TimeUnit.MICROSECONDS) / 1000.0,
+              max(TimeUnit.MICROSECONDS) / 1000.0);
+   }
+
+   /**
+    * Gets the bucket for a value.
+    * @param value The value.
+    * @return The bucket index.
+    */
+   static int bucket(final long value) {
+      if(value < 4L) {
+         return (int)value;
+      }
+      final int exp = 63 - Long.numberOfLeadingZeros(value);
+      final int sub = (int)(value >>> (exp - 2)) & 3;
+      return 4 + (exp - 2) * 4 + sub;
+   }
+
+   /**
+    * Gets the largest value in a bucket.
+    * @param bucket The bucket index.
+    * @return The upper bound.
+    */
+   static long upperBound(final int bucket) {
+      if(bucket < 4) {
+         return bucket;
+      }
+      final int exp = (bucket - 4) / 4 + 2;
+      final int sub = (bucket - 4) % 4;
+      final long width = 1L << (exp - 2);
+      return ((4L + sub) << (exp - 2)) + width - 1L;
+   }
+
+   /**
+    * The number of buckets for non-negative long values.
+    */
+   private static final int BUCKET_COUNT = 4 + 62 * 4;
+
+   private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+   private final LongAdder count = new LongAdder();
+   private final LongAdder sum = new LongAdder();
+   private final AtomicLong max = new AtomicLong();
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * An immutable pair of {@code long} values.
+ */
+public final class LongLongPair implements Comparable<LongLongPair> {
+
+   /**
+    * Creates the pair.
+    * @param key The key.
+    * @param value The value.
+    */
+   public LongLongPair(final long key, final long value) {
+      this.key = key;
+      this.value = value;
+   }
+
+   /**
+    * Gets the key.
+    * @return The key.
+    */
+   public long getKey() {
+      return key;
+   }
+
+   /**
+    * Gets the value.
+    * @return The value.
+    */
+   public long getValue() {
+      return value;
+   }
+
+   /**
+    * Compares by key, then by value.
+    */
+   @Override
+   public int compareTo(final LongLongPair other) {
+      int cmp = Long.compare(key, other.key);
+      return cmp != 0 ? cmp : Long.compare(value, other.value);
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if(this == o) return true;
+      if(o == null || getClass() != o.getClass()) return false;
+      final LongLongPair pair = (LongLongPair)o;
+      return key == pair.key && value == pair.value;
+   }
+
+   @Override
+   public int hashCode() {
+      return 31 * Long.hashCode(key) + Long.hashCode(value);
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this)
+              .add("key", key)
+              .add("value", value)
+              .toString();
+   }
+
+   /**
+    * The key.
+    */
+   public final long key;
+
+   /**
+    * The value.
+    */
+   public final long value;
+}
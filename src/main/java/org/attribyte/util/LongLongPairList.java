@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of {@code long} key, value pairs stored in parallel primitive arrays.
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+public class LongLongPairList {
+
+   /**
+    * Creates an empty list with default capacity.
+    */
+   public LongLongPairList() {
+      this(DEFAULT_CAPACITY);
+   }
+
+   /**
+    * Creates an empty list.
+    * @param initialCapacity The initial capacity.
+    */
+   public LongLongPairList(final int initialCapacity) {
+      this.keys = new long[Math.max(initialCapacity, 1)];
+      this.values = new long[Math.max(initialCapacity, 1)];
+   }
+
+   /**
+    * Adds a pair.
+    * @param key The key.
+    * @param value The value.
+    * @return A self-reference.
+    */
+   public LongLongPairList add(final long key, final long value) {
+      if(size == keys.length) {
+         int newCapacity = keys.length + (keys.length >> 1) + 1;
+         keys = Arrays.copyOf(keys, newCapacity);
+         values = Arrays.copyOf(values, newCapacity);
+      }
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+   }
+
+   /**
+    * Adds a pair.
+    * @param pair The pair.
+    * @return A self-reference.
+    */
+   public LongLongPairList add(final LongLongPair pair) {
+      return add(pair.key, pair.value);
+   }
+
+   /**
+    * Gets the number of pairs.
+    * @return The size.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Is the list empty?
+    * @return Is the list empty?
+    */
+   public boolean isEmpty() {
+      return size == 0;
+   }
+
+   /**
+    * Gets the key at an index.
+    * @param index The index.
+    * @return The key.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public long key(final int index) {
+      checkIndex(index);
+      return keys[index];
+   }
+
+   /**
+    * Gets the value at an index.
+    * @param index The index.
+    * @return The value.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public long value(final int index) {
+      checkIndex(index);
+      return values[index];
+   }
+
+   /**
+    * Sets the value at an index.
+    * @param index The index.
+    * @param value The new value.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public void setValue(final int index, final long value) {
+      checkIndex(index);
+      values[index] = value;
+   }
+
+   /**
+    * Gets the pair at an index.
+    * @param index The index.
+    * @return The pair.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public LongLongPair get(final int index) {
+      checkIndex(index);
+      return new LongLongPair(keys[index], values[index]);
+   }
+
+   /**
+    * Removes all pairs.
+    */
+   public void clear() {
+      size = 0;
+   }
+
+   /**
+    * Sorts by key, then value, ascending.
+    * @return A self-reference.
+    */
+   public LongLongPairList sortByKey() {
+      ParallelArrays.sort(0, size, (i, j) -> {
+         int cmp = Long.compare(keys[i], keys[j]);
+         return cmp != 0 ? cmp : Long.compare(values[i], values[j]);
+      }, this::swap);
+      return this;
+   }
+
+   /**
+    * Sorts by value, then key, ascending.
+    * @return A self-reference.
+    */
+   public LongLongPairList sortByValue() {
+      ParallelArrays.sort(0, size, (i, j) -> {
+         int cmp = Long.compare(values[i], values[j]);
+         return cmp != 0 ? cmp : Long.compare(keys[i], keys[j]);
+      }, this::swap);
+      return this;
+   }
+
+   /**
+    * Sorts by value descending, then key ascending.
+    * @return A self-reference.
+    */
+   public LongLongPairList sortByValueDescending() {
+      ParallelArrays.sort(0, size, (i, j) -> {
+         int cmp = Long.compare(values[j], values[i]);
+         return cmp != 0 ? cmp : Long.compare(keys[i], keys[j]);
+      }, this::swap);
+      return this;
+   }
+
+   /**
+    * Searches for a key in a list sorted by key.
+    * @param key The key.
+    * @return The index of a pair with the key, or {@code (-(insertion point) - 1)}, as for {@code Arrays.binarySearch}.
+    */
+   public int binarySearch(final long key) {
+      return Arrays.binarySearch(keys, 0, size, key);
+   }
+
+   /**
+    * Gets a copy of the keys.
+    * @return The keys.
+    */
+   public long[] keys() {
+      return Arrays.copyOf(keys, size);
+   }
+
+   /**
+    * Gets a copy of the values.
+    * @return The values.
+    */
+   public long[] values() {
+      return Arrays.copyOf(values, size);
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder buf = new StringBuilder(size * 16 + 2).append('[');
+      for(int i = 0; i < size; i++) {
+         if(i > 0) buf.append(", ");
+         buf.append(keys[i]).append('=').append(values[i]);
+      }
+      return buf.append(']').toString();
+   }
+
+   private void swap(final int i, final int j) {
+      long tmp = keys[i];
+      keys[i] = keys[j];
+      keys[j] = tmp;
+      tmp = values[i];
+      values[i] = values[j];
+      values[j] = tmp;
+   }
+
+   private void checkIndex(final int index) {
+      if(index < 0 || index >= size) {
+         throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size));
+      }
+   }
+
+   private static final int DEFAULT_CAPACITY = 16;
+
+   /**
+    * The keys.
+    */
+   private long[] keys;
+
+   /**
+    * The values.
+    */
+   private long[] values;
+
+   /**
+    * The number of pairs.
+    */
+   private int size;
+}
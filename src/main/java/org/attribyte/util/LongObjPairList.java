@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A growable list of {@code long} key, object value pairs stored in parallel arrays.
+ * <p>
+ * Not thread-safe.
+ * </p>
+ * @param <V> The value class.
+ */
+public class LongObjPairList<V> {
+
+   /**
+    * Creates an empty list with default capacity.
+    */
+   public LongObjPairList() {
+      this(DEFAULT_CAPACITY);
+   }
+
+   /**
+    * Creates an empty list.
+    * @param initialCapacity The initial capacity.
+    */
+   public LongObjPairList(final int initialCapacity) {
+      this.keys = new long[Math.max(initialCapacity, 1)];
+      this.values = new Object[Math.max(initialCapacity, 1)];
+   }
+
+   /**
+    * Adds a pair.
+    * @param key The key.
+    * @param value The value.
+    * @return A self-reference.
+    */
+   public LongObjPairList<V> add(final long key, final V value) {
+      if(size == keys.length) {
+         int newCapacity = keys.length + (keys.length >> 1) + 1;
+         keys = Arrays.copyOf(keys, newCapacity);
+         values = Arrays.copyOf(values, newCapacity);
+      }
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+   }
+
+   /**
+    * Adds a pair.
+    * @param pair The pair.
+    * @return A self-reference.
+    */
+   public LongObjPairList<V> add(final LongObjPair<V> pair) {
+      return add(pair.key, pair.value);
+   }
+
+   /**
+    * Gets the number of pairs.
+    * @return The size.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Is the list empty?
+    * @return Is the list empty?
+    */
+   public boolean isEmpty() {
+      return size == 0;
+   }
+
+   /**
+    * Gets the key at an index.
+    * @param index The index.
+    * @return The key.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public long key(final int index) {
+      checkIndex(index);
+      return keys[index];
+   }
+
+   /**
+    * Gets the value at an index.
+    * @param index The index.
+    * @return The value.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   @SuppressWarnings("unchecked")
+   public V value(final int index) {
+      checkIndex(index);
+      return (V)values[index];
+   }
+
+   /**
+    * Gets the pair at an index.
+    * @param index The index.
+    * @return The pair.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public LongObjPair<V> get(final int index) {
+      return new LongObjPair<>(key(index), value(index));
+   }
+
+   /**
+    * Gets the value for a key in a list sorted by key.
+    * @param key The key.
+    * @return The value or {@code null} if the key is not in the list.
+    */
+   @SuppressWarnings("unchecked")
+   public V getValue(final long key) {
+      int index = binarySearch(key);
+      return index >= 0 ? (V)values[index] : null;
+   }
+
+   /**
+    * Removes all pairs.
+    */
+   public void clear() {
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+   }
+
+   /**
+    * Sorts by key ascending.
+    * @return A self-reference.
+    */
+   public LongObjPairList<V> sortByKey() {
+      ParallelArrays.sort(0, size, (i, j) -> Long.compare(keys[i], keys[j]), this::swap);
+      return this;
+   }
+
+   /**
+    * Sorts by value.
+    * @param comparator The value comparator.
+    * @return A self-reference.
+    */
+   @SuppressWarnings("unchecked")
+   public LongObjPairList<V> sortByValue(final Comparator<? super V> comparator) {
+      ParallelArrays.sort(0, size, (i, j) -> comparator.compare((V)values[i], (V)values[j]), this::swap);
+      return this;
+   }
+
+   /**
+    * Searches for a key in a list sorted by key.
+    * @param key The key.
+    * @return The index of a pair with the key, or {@code (-(insertion point) - 1)}, as for {@code Arrays.binarySearch}.
+    */
+   public int binarySearch(final long key) {
+      return Arrays.binarySearch(keys, 0, size, key);
+   }
+
+   /**
+    * Gets a copy of the keys.
+    * @return The keys.
+    */
+   public long[] keys() {
+      return Arrays.copyOf(keys, size);
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder buf = new StringBuilder(size * 16 + 2).append('[');
+      for(int i = 0; i < size; i++) {
+         if(i > 0) buf.append(", ");
+         buf.append(keys[i]).append('=').append(values[i]);
+      }
+      return buf.append(']').toString();
+   }
+
+   private void swap(final int i, final int j) {
+      long tmpKey = keys[i];
+      keys[i] = keys[j];
+      keys[j] = tmpKey;
+      Object tmpValue = values[i];
+      values[i] = values[j];
+      values[j] = tmpValue;
+   }
+
+   private void checkIndex(final int index) {
+      if(index < 0 || index >= size) {
+         throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size));
+      }
+   }
+
+   private static final int DEFAULT_CAPACITY = 16;
+
+   /**
+    * The keys.
+    */
+   private long[] keys;
+
+   /**
+    * The values.
+    */
+   private Object[] values;
+
+   /**
+    * The number of pairs.
+    */
+   private int size;
+}
@@ -0,0 +1,684 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Detects MIME types from the leading bytes of content.
+ * <p>
+ * At most the first {@value #MAX_SNIFF_BYTES} bytes are examined. Signatures at offset zero
+ * are compiled, once, into a byte-indexed tree so detection walks the input at most once
+ * per signature depth, then falls back to a small number of signatures at fixed offsets
+ * and a text/markup heuristic.
+ * </p>
+ * <p>
+ * Content sniffing is combined with {@link MimeTypes} extension lookup by the {@code getType}
+ * methods. A specific sniffed type wins over the extension. Generic container types (zip, OLE, XML, plain text)
+ * are refined by the extension when the extension type is compatible, so {@code report.docx}
+ * is reported as a Word document, but a PNG named {@code report.docx} is reported as {@code image/png}.
+ * </p>
+ */
+public class MimeSniffer {
+
+   /**
+    * The maximum number of bytes examined.
+    */
+   public static final int MAX_SNIFF_BYTES = 512;
+
+   /**
+    * Detects the type of content from the leading bytes in a buffer.
+    * <p>
+    * Bytes are read from the buffer's position with absolute gets, so
+    * the position and limit are unchanged. Memory-mapped files may be sniffed
+    * by passing the {@code MappedByteBuffer}.
+    * </p>
+    * @param buf The buffer.
+    * @return The type or {@code null} if not detected.
+    */
+   public static String sniff(final ByteBuffer buf) {
+      final int len = Math.min(buf.remaining(), MAX_SNIFF_BYTES);
+      final byte[] b = new byte[len];
+      final int pos = buf.position();
+      for(int i = 0; i < len; i++) {
+         b[i] = buf.get(pos + i);
+      }
+      return sniff(b, 0, len);
+   }
+
+   /**
+    * Detects the type of content from the leading bytes of a stream.
+    * <p>
+    * If the stream supports {@code mark}, it is reset so that the bytes
+    * may be read again. Otherwise, up to {@value #MAX_SNIFF_BYTES} bytes are consumed.
+    * </p>
+    * @param is The input stream.
+    * @return The type or {@code null} if not detected.
+    * @throws IOException on read error.
+    */
+   public static String sniff(final InputStream is) throws IOException {
+      final byte[] b = new byte[MAX_SNIFF_BYTES];
+      final boolean mark = is.markSupported();
+      if(mark) {
+         is.mark(MAX_SNIFF_BYTES);
+      }
+      try {
+         return sniff(b, 0, readFully(is, b));
+      } finally {
+         if(mark) {
+            is.reset();
+         }
+      }
+   }
+
+   /**
+    * Detects the type of a file from its leading bytes.
+    * <p>
+    * At most {@value #MAX_SNIFF_BYTES} bytes are read with a single positional read.
+    * </p>
+    * @param path The path.
+    * @return The type or {@code null} if not detected.
+    * @throws IOException on read error.
+    */
+   public static String sniff(final Path path) throws IOException {
+      final byte[] b = new byte[MAX_SNIFF_BYTES];
+      return sniff(b, 0, read(path, b));
+   }
+
+   /**
+    * Detects the type of content in a range of bytes.
+    * @param b The bytes.
+    * @param offset The start of the content.
+    * @param length The number of bytes available. Only the first {@value #MAX_SNIFF_BYTES} are examined.
+    * @return The type or {@code null} if not detected.
+    */
+   public static String sniff(final byte[] b, final int offset, final int length) {
+      final int end = offset + Math.min(length, MAX_SNIFF_BYTES);
+
+      if(matches(b, offset, end, 4, FTYP)) {
+         return isoType(b, offset, end);
+      }
+
+      if(matches(b, offset, end, 257, USTAR)) {
+         return "application/x-tar";
+      }
+
+      Node node = ROOT;
+      Node matched = null;
+      for(int i = offset; i < end; i++) {
+         node = node.children[b[i] & 0xFF];
+         if(node == null) {
+            break;
+         } else if(node.type != null || node.refiner != null) {
+            matched = node;
+         }
+      }
+
+      if(matched != null) {
+         if(matched.refiner != null) {
+            String type = matched.refiner.refine(b, offset, end);
+            if(type != null) {
+               return type;
+            }
+         }
+         if(matched.type != null) {
+            return matched.type;
+         }
+      }
+
+      return sniffText(b, offset, end);
+   }
+
+   /**
+    * Gets the type for a file by combining its leading bytes with its extension.
+    * The file is read at most once.
+    * @param path The path.
+    * @param defaultType The default type if undetected.
+    * @return The detected or default type.
+    * @throws IOException on read error.
+    */
+   public static String getType(final Path path, final String defaultType) throws IOException {
+      return combine(sniff(path), MimeTypes.getType(path, null), defaultType);
+   }
+
+   /**
+    * Gets the type for content by combining its leading bytes with the extension of a name.
+    * @param name The name or path, or {@code null} if none.
+    * @param b The bytes.
+    * @param offset The start of the content.
+    * @param length The number of bytes available.
+    * @param defaultType The default type if undetected.
+    * @return The detected or default type.
+    */
+   public static String getType(final CharSequence name, final byte[] b, final int offset, final int length,
+                                final String defaultType) {
+      return combine(sniff(b, offset, length), name != null ? MimeTypes.getType(name, null) : null, defaultType);
+   }
+
+   /**
+    * Gets the type for content in a buffer by combining its leading bytes with the extension of a name.
+    * @param name The name or path, or {@code null} if none.
+    * @param buf The buffer. Position and limit are unchanged.
+    * @param defaultType The default type if undetected.
+    * @return The detected or default type.
+    */
+   public static String getType(final CharSequence name, final ByteBuffer buf, final String defaultType) {
+      return combine(sniff(buf), name != null ? MimeTypes.getType(name, null) : null, defaultType);
+   }
+
+   /**
+    * Gets the type for a stream by combining its leading bytes with the extension of a name.
+    * @param name The name or path, or {@code null} if none.
+    * @param is The input stream. Reset after sniffing if {@code mark} is supported.
+    * @param defaultType The default type if undetected.
+    * @return The detected or default type.
+    * @throws IOException on read error.
+    */
+   public static String getType(final CharSequence name, final InputStream is, final String defaultType) throws IOException {
+      return combine(sniff(is), name != null ? MimeTypes.getType(name, null) : null, defaultType);
+   }
+
+   /**
+    * Combines a sniffed type with a type from the extension.
+    * @param sniffed The sniffed type, or {@code null}.
+    * @param extension The extension type, or {@code null}.
+    * @param defaultType The default type.
+    * @return The combined type.
+    */
+   static String combine(final String sniffed, final String extension, final String defaultType) {
+      if(sniffed == null) {
+         return extension != null ? extension : defaultType;
+      } else if(extension == null || extension.equals(sniffed)) {
+         return sniffed;
+      } else {
+         return refines(sniffed, extension) ? extension : sniffed;
+      }
+   }
+
+   /**
+    * Determine if an extension type is a compatible refinement of a generic sniffed type.
+    * @param sniffed The sniffed type.
+    * @param extension The extension type.
+    * @return Does the extension type refine the sniffed type?
+    */
+   private static boolean refines(final String sniffed, final String extension) {
+      switch(sniffed) {
+         case TYPE_TEXT:
+            return extension.startsWith("text/") || extension.endsWith("xml") ||
+                    extension.endsWith("json") || extension.endsWith("javascript");
+         case TYPE_XML:
+            return extension.endsWith("xml");
+         case TYPE_ZIP:
+         case TYPE_OLE:
+            return extension.startsWith("application/");
+         default:
+            return false;
+      }
+   }
+
+   /**
+    * Refines the type for a signature that is shared by several formats.
+    */
+   private interface Refiner {
+
+      /**
+       * Refines the type.
+       * @param b The bytes.
+       * @param offset The start of content.
+       * @param end The end of available bytes (exclusive).
+       * @return The refined type or {@code null} to use the signature's type.
+       */
+      String refine(byte[] b, int offset, int end);
+   }
+
+   /**
+    * A node in the signature tree.
+    */
+   private static final class Node {
+
+      /**
+       * Gets or creates the child for a byte.
+       * @param b The byte.
+       * @return The child.
+       */
+      Node child(final int b) {
+         Node child = children[b & 0xFF];
+         if(child == null) {
+            child = new Node();
+            children[b & 0xFF] = child;
+         }
+         return child;
+      }
+
+      /**
+       * Children indexed by the next byte.
+       */
+      final Node[] children = new Node[256];
+
+      /**
+       * The type if the signature ends at this node.
+       */
+      String type;
+
+      /**
+       * A refiner for the type if the signature ends at this node.
+       */
+      Refiner refiner;
+   }
+
+   /**
+    * Adds a signature to the tree.
+    * @param signature The signature bytes at offset zero.
+    * @param type The type.
+    * @param refiner A refiner, or {@code null}.
+    */
+   private static void add(final byte[] signature, final String type, final Refiner refiner) {
+      Node node = ROOT;
+      for(byte b : signature) {
+         node = node.child(b);
+      }
+      node.type = type;
+      node.refiner = refiner;
+   }
+
+   private static void add(final String signature, final String type) {
+      add(signature.getBytes(StandardCharsets.ISO_8859_1), type, null);
+   }
+
+   private static void add(final int[] signature, final String type) {
+      add(bytes(signature), type, null);
+   }
+
+   private static byte[] bytes(final int... values) {
+      byte[] b = new byte[values.length];
+      for(int i = 0; i < values.length; i++) {
+         b[i] = (byte)values[i];
+      }
+      return b;
+   }
+
+   /**
+    * Determine if bytes match at an offset.
+    * @param b The bytes.
+    * @param offset The start of content.
+    * @param end The end of available bytes.
+    * @param at The offset of the match relative to the start.
+    * @param match The bytes to match.
+    * @return Do the bytes match?
+    */
+   private static boolean matches(final byte[] b, final int offset, final int end, final int at, final byte[] match) {
+      final int start = offset + at;
+      if(start + match.length > end) {
+         return false;
+      }
+      for(int i = 0; i < match.length; i++) {
+         if(b[start + i] != match[i]) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Determine if ASCII bytes match at an offset, ignoring case.
+    * @param b The bytes.
+    * @param start The absolute start.
+    * @param end The end of available bytes.
+    * @param lowerMatch The lower-case bytes to match.
+    * @return Do the bytes match?
+    */
+   private static boolean matchesIgnoreCase(final byte[] b, final int start, final int end, final byte[] lowerMatch) {
+      if(start + lowerMatch.length > end) {
+         return false;
+      }
+      for(int i = 0; i < lowerMatch.length; i++) {
+         int c = b[start + i];
+         if(c >= 'A' && c <= 'Z') {
+            c += 'a' - 'A';
+         }
+         if(c != lowerMatch[i]) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Finds the first occurrence of bytes in a range.
+    * @param b The bytes.
+    * @param start The start.
+    * @param end The end (exclusive).
+    * @param match The bytes to find.
+    * @return The index or {@code -1} if not found.
+    */
+   private static int indexOf(final byte[] b, final int start, final int end, final byte[] match) {
+      for(int i = start; i <= end - match.length; i++) {
+         if(matches(b, i, end, 0, match)) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Determines the type of an ISO base media file from its major brand.
+    * @param b The bytes.
+    * @param offset The start of content.
+    * @param end The end of available bytes.
+    * @return The type.
+    */
+   private static String isoType(final byte[] b, final int offset, final int end) {
+      if(matches(b, offset, end, 8, ascii("heic")) || matches(b, offset, end, 8, ascii("heix")) ||
+              matches(b, offset, end, 8, ascii("mif1"))) {
+         return "image/heic";
+      } else if(matches(b, offset, end, 8, ascii("avif"))) {
+         return "image/avif";
+      } else if(matches(b, offset, end, 8, ascii("M4A "))) {
+         return "audio/mp4";
+      } else if(matches(b, offset, end, 8, ascii("qt  "))) {
+         return "video/quicktime";
+      } else {
+         return "video/mp4";
+      }
+   }
+
+   private static final byte[] FTYP = ascii("ftyp");
+   private static final byte[] USTAR = ascii("ustar");
+   private static final byte[] BMP_RESERVED = new byte[4];
+   private static final byte[] XML_DECL = ascii("<?xml");
+   private static final byte[] SVG_TAG = ascii("<svg");
+
+   /**
+    * Refines a zip archive by its first entry.
+    * <p>
+    * OpenDocument and EPUB archives store an uncompressed entry named {@code mimetype}
+    * first. Office Open XML archives are identified by part names in the leading bytes.
+    * </p>
+    */
+   private static final Refiner ZIP_REFINER = (b, offset, end) -> {
+      final int nameLength = offset + 30 <= end ? (b[offset + 26] & 0xFF) | (b[offset + 27] & 0xFF) << 8 : -1;
+      if(nameLength == 8 && matches(b, offset, end, 30, ascii("mimetype")) && b[offset + 8] == 0) {
+         final int typeLength = (b[offset + 18] & 0xFF) | (b[offset + 19] & 0xFF) << 8;
+         final int start = offset + 38;
+         if(typeLength > 0 && typeLength < 128 && start + typeLength <= end) {
+            boolean valid = false;
+            for(int i = start; i < start + typeLength; i++) {
+               final int c = b[i];
+               if(c <= ' ' || c > '~') {
+                  return null;
+               } else if(c == '/') {
+                  valid = true;
+               }
+            }
+            return valid ? new String(b, start, typeLength, StandardCharsets.US_ASCII) : null;
+         }
+      } else if(indexOf(b, offset + 30, end, ascii("word/")) >= 0) {
+         return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+      } else if(indexOf(b, offset + 30, end, ascii("xl/")) >= 0) {
+         return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+      } else if(indexOf(b, offset + 30, end, ascii("ppt/")) >= 0) {
+         return "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+      } else if(nameLength == 20 && matches(b, offset, end, 30, ascii("META-INF/MANIFEST.MF")) ||
+              nameLength == 9 && matches(b, offset, end, 30, ascii("META-INF/"))) {
+         return "application/java-archive";
+      }
+      return null;
+   };
+
+   /**
+    * Refines a RIFF container by its form type.
+    */
+   private static final Refiner RIFF_REFINER = (b, offset, end) -> {
+      if(matches(b, offset, end, 8, ascii("WEBP"))) {
+         return "image/webp";
+      } else if(matches(b, offset, end, 8, ascii("WAVE"))) {
+         return "audio/wav";
+      } else if(matches(b, offset, end, 8, ascii("AVI "))) {
+         return "video/avi";
+      } else {
+         return null;
+      }
+   };
+
+   /**
+    * Requires the reserved bytes of a bitmap header to be zero, so text starting with "BM" is not detected.
+    */
+   private static final Refiner BMP_REFINER = (b, offset, end) ->
+           matches(b, offset, end, 6, BMP_RESERVED) ? "image/bmp" : null;
+
+   /**
+    * Sniffs UTF-8 text after a byte-order mark.
+    */
+   private static final Refiner UTF8_BOM_REFINER = (b, offset, end) -> sniffText(b, offset + 3, end);
+
+   /**
+    * Detects markup, JSON and plain text.
+    * @param b The bytes.
+    * @param offset The start of content.
+    * @param end The end of available bytes.
+    * @return The type or {@code null} if the bytes are not text.
+    */
+   private static String sniffText(final byte[] b, final int offset, final int end) {
+      if(!isText(b, offset, end)) {
+         return null;
+      }
+
+      int start = offset;
+      while(start < end && isWhitespace(b[start])) {
+         start++;
+      }
+
+      if(start == end) {
+         return offset == end ? null : TYPE_TEXT;
+      }
+
+      switch(b[start]) {
+         case '<':
+            if(matchesIgnoreCase(b, start, end, XML_DECL)) {
+               return indexOf(b, start, end, SVG_TAG) > 0 ? TYPE_SVG : TYPE_XML;
+            } else if(matchesIgnoreCase(b, start, end, SVG_TAG)) {
+               return TYPE_SVG;
+            }
+            for(byte[] tag : HTML_TAGS) {
+               if(matchesIgnoreCase(b, start, end, tag)) {
+                  final int after = start + tag.length;
+                  if(after == end || b[after] == '>' || isWhitespace(b[after])) {
+                     return TYPE_HTML;
+                  }
+               }
+            }
+            return TYPE_TEXT;
+         case '{':
+            int next = start + 1;
+            while(next < end && isWhitespace(b[next])) {
+               next++;
+            }
+            return next < end && (b[next] == '"' || b[next] == '}') ? TYPE_JSON : TYPE_TEXT;
+         default:
+            return TYPE_TEXT;
+      }
+   }
+
+   /**
+    * Determine if bytes are (possibly truncated) UTF-8 text without control characters.
+    * @param b The bytes.
+    * @param offset The start.
+    * @param end The end (exclusive).
+    * @return Are the bytes text?
+    */
+   private static boolean isText(final byte[] b, final int offset, final int end) {
+      int i = offset;
+      while(i < end) {
+         final int c = b[i] & 0xFF;
+         if(c < 0x80) {
+            if(c < 0x20 && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != 0x1B) {
+               return false;
+            } else if(c == 0x7F) {
+               return false;
+            }
+            i++;
+         } else {
+            final int continuation;
+            if(c >= 0xC2 && c <= 0xDF) {
+               continuation = 1;
+            } else if(c >= 0xE0 && c <= 0xEF) {
+               continuation = 2;
+            } else if(c >= 0xF0 && c <= 0xF4) {
+               continuation = 3;
+            } else {
+               return false;
+            }
+            for(int k = 1; k <= continuation; k++) {
+               if(i + k == end) {
+                  return true; //Truncated at the sniff limit.
+               } else if((b[i + k] & 0xC0) != 0x80) {
+                  return false;
+               }
+            }
+            i += continuation + 1;
+         }
+      }
+      return true;
+   }
+
+   private static boolean isWhitespace(final byte b) {
+      return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+   }
+
+   /**
+    * Reads as many bytes as are available, up to the length of the buffer.
+    * @param is The input stream.
+    * @param b The buffer.
+    * @return The number of bytes read.
+    * @throws IOException on read error.
+    */
+   private static int readFully(final InputStream is, final byte[] b) throws IOException {
+      int total = 0;
+      while(total < b.length) {
+         final int count = is.read(b, total, b.length - total);
+         if(count < 0) {
+            break;
+         }
+         total += count;
+      }
+      return total;
+   }
+
+   /**
+    * Reads the leading bytes of a file.
+    * @param path The path.
+    * @param b The buffer.
+    * @return The number of bytes read.
+    * @throws IOException on read error.
+    */
+   private static int read(final Path path, final byte[] b) throws IOException {
+      try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         final ByteBuffer buf = ByteBuffer.wrap(b);
+         while(buf.hasRemaining()) {
+            if(channel.read(buf, buf.position()) < 0) {
+               break;
+            }
+         }
+         return buf.position();
+      }
+   }
+
+   private static byte[] ascii(final String str) {
+      return str.getBytes(StandardCharsets.US_ASCII);
+   }
+
+   private static final String TYPE_TEXT = "text/plain";
+   private static final String TYPE_HTML = "text/html";
+   private static final String TYPE_XML = "text/xml";
+   private static final String TYPE_SVG = "image/svg+xml";
+   private static final String TYPE_JSON = "application/json";
+   private static final String TYPE_ZIP = "application/zip";
+   private static final String TYPE_OLE = "application/x-ole-storage";
+
+
+   /**
+    * Lower-case HTML tags that identify a document.
+    */
+   private static final byte[][] HTML_TAGS = {
+           ascii("<!doctype html"), ascii("<html"), ascii("<head"), ascii("<body"),
+           ascii("<script"), ascii("<title"), ascii("<iframe"), ascii("<table"),
+           ascii("<div"), ascii("<p"), ascii("<h1"), ascii("<br"), ascii("<!--")
+   };
+
+   /**
+    * The root of the signature tree.
+    */
+   private static final Node ROOT = new Node();
+
+   static {
+      //Images
+      add(new int[]{0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}, "image/png");
+      add(new int[]{0xFF, 0xD8, 0xFF}, "image/jpeg");
+      add("GIF87a", "image/gif");
+      add("GIF89a", "image/gif");
+      add(ascii("BM"), null, BMP_REFINER);
+      add(new int[]{'I', 'I', 0x2A, 0x00}, "image/tiff");
+      add(new int[]{'M', 'M', 0x00, 0x2A}, "image/tiff");
+      add(new int[]{0x00, 0x00, 0x01, 0x00}, "image/x-icon");
+      add("8BPS", "image/vnd.adobe.photoshop");
+      add(ascii("RIFF"), null, RIFF_REFINER);
+
+      //Archives
+      add(bytes('P', 'K', 0x03, 0x04), TYPE_ZIP, ZIP_REFINER);
+      add(new int[]{'P', 'K', 0x05, 0x06}, TYPE_ZIP);
+      add(new int[]{0x1F, 0x8B}, "application/x-gzip");
+      add("BZh", "application/x-bzip2");
+      add(new int[]{'7', 'z', 0xBC, 0xAF, 0x27, 0x1C}, "application/x-7z-compressed");
+      add(new int[]{'R', 'a', 'r', '!', 0x1A, 0x07}, "application/x-rar-compressed");
+      add(new int[]{0xFD, '7', 'z', 'X', 'Z', 0x00}, "application/x-xz");
+      add(new int[]{0x28, 0xB5, 0x2F, 0xFD}, "application/zstd");
+
+      //Documents
+      add("%PDF-", "application/pdf");
+      add("%!PS", "application/postscript");
+      add("{\\rtf", "application/rtf");
+      add(new int[]{0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1}, TYPE_OLE);
+      add("SQLite format 3\u0000", "application/x-sqlite3");
+
+      //Audio, video
+      add("ID3", "audio/mpeg3");
+      add(new int[]{0xFF, 0xFB}, "audio/mpeg3");
+      add(new int[]{0xFF, 0xF3}, "audio/mpeg3");
+      add(new int[]{0xFF, 0xF2}, "audio/mpeg3");
+      add("OggS", "application/ogg");
+      add("fLaC", "audio/flac");
+      add("MThd", "audio/midi");
+      add(new int[]{0x1A, 0x45, 0xDF, 0xA3}, "video/webm");
+
+      //Fonts, binaries
+      add("wOFF", "font/woff");
+      add("wOF2", "font/woff2");
+      add(new int[]{0x00, 'a', 's', 'm'}, "application/wasm");
+      add(new int[]{0xCA, 0xFE, 0xBA, 0xBE}, "application/java");
+      add(new int[]{0x7F, 'E', 'L', 'F'}, "application/x-executable");
+
+      //Text with byte-order marks
+      add(bytes(0xEF, 0xBB, 0xBF), TYPE_TEXT, UTF8_BOM_REFINER);
+      add(new int[]{0xFE, 0xFF}, TYPE_TEXT);
+      add(new int[]{0xFF, 0xFE}, TYPE_TEXT);
+   }
+}
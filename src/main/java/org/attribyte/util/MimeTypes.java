@@ -15,13 +15,31 @@
 
 package org.attribyte.util;
 
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.TreeMultimap;
 
 import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
 
 
 /**
  * Default MIME types.
+ * <p>
+ * Extensions are matched ignoring case with a precomputed hash table, without allocation
+ * for character and byte sequences. To detect types from content, use {@link MimeSniffer}.
+ * </p>
+ * <p>
+ * A reverse index maps each type to its extensions, and to precomputed metadata:
+ * whether content is text, whether it is compressible and its default charset.
+ * </p>
  * @author Matt Hamer - Attribyte, LLC
  */
 public class MimeTypes {
@@ -42,14 +60,404 @@ public class MimeTypes {
     * @return The detected or default type.
     */
    public static final String getType(final File file, final String defaultType) {
-      String name = file.getName();
-      int index = name.lastIndexOf('.');
-      if(index > 0) {
-         String type = extensionMap.get(name.substring(index).trim());
-         return type != null ? type : defaultType;
-      } else {
-         return defaultType;
+      return getType(file.getPath(), defaultType);
+   }
+
+   /**
+    * Gets the type for a path based on the extension.
+    * @param path The path.
+    * @param defaultType The default type if undetected.
+    * @return The detected or default type.
+    */
+   public static final String getType(final Path path, final String defaultType) {
+      Path fileName = path.getFileName();
+      return fileName != null ? getType(fileName.toString(), defaultType) : defaultType;
+   }
+
+   /**
+    * Gets the type for a file name or path based on the extension, ignoring case.
+    * @param name The name or path.
+    * @param defaultType The default type if undetected.
+    * @return The detected or default type.
+    */
+   public static final String getType(final CharSequence name, final String defaultType) {
+      return getType(name, 0, name.length(), defaultType);
+   }
+
+   /**
+    * Gets the type for a file name or path in a range of characters based on the extension, ignoring case.
+    * <p>
+    * The extension follows the last '.' in the final path segment. Names that begin with '.'
+    * and have no other '.' have no extension. Trailing whitespace is ignored. No objects are allocated.
+    * </p>
+    * @param name The characters.
+    * @param start The start of the name (inclusive).
+    * @param end The end of the name (exclusive).
+    * @param defaultType The default type if undetected.
+    * @return The detected or default type.
+    */
+   public static final String getType(final CharSequence name, final int start, int end, final String defaultType) {
+      while(end > start && Character.isWhitespace(name.charAt(end - 1))) {
+         end--;
+      }
+      for(int i = end - 1; i > start; i--) {
+         char ch = name.charAt(i);
+         if(ch == '.') {
+            char prev = name.charAt(i - 1);
+            if(prev == '/' || prev == '\\') {
+               return defaultType;
+            }
+            String type = lookup(name, i + 1, end);
+            return type != null ? type : defaultType;
+         } else if(ch == '/' || ch == '\\') {
+            return defaultType;
+         }
+      }
+      return defaultType;
+   }
+
+   /**
+    * Gets the type for a file name or path in a range of (ASCII-compatible) bytes based on the extension, ignoring case.
+    * No objects are allocated.
+    * @param name The bytes.
+    * @param offset The start of the name.
+    * @param length The length of the name.
+    * @param defaultType The default type if undetected.
+    * @return The detected or default type.
+    */
+   public static final String getType(final byte[] name, final int offset, final int length, final String defaultType) {
+      int end = offset + length;
+      while(end > offset && (name[end - 1] & 0xFF) <= ' ') {
+         end--;
+      }
+      for(int i = end - 1; i > offset; i--) {
+         byte b = name[i];
+         if(b == '.') {
+            byte prev = name[i - 1];
+            if(prev == '/' || prev == '\\') {
+               return defaultType;
+            }
+            String type = lookup(name, i + 1, end);
+            return type != null ? type : defaultType;
+         } else if(b == '/' || b == '\\') {
+            return defaultType;
+         }
+      }
+      return defaultType;
+   }
+
+   /**
+    * Gets the type for an extension, ignoring case.
+    * @param extension The extension, with or without the leading '.'.
+    * @return The type or {@code null} if unknown.
+    */
+   public static final String getTypeForExtension(final CharSequence extension) {
+      int start = extension.length() > 0 && extension.charAt(0) == '.' ? 1 : 0;
+      return lookup(extension, start, extension.length());
+   }
+
+   /**
+    * Metadata for a type.
+    */
+   public static final class TypeInfo {
+
+      private TypeInfo(final String type, final ImmutableList<String> extensions,
+                       final boolean text, final boolean compressible) {
+         this.type = type;
+         this.extensions = extensions;
+         this.text = text;
+         this.compressible = compressible;
+         this.charset = text ? StandardCharsets.UTF_8 : null;
+      }
+
+      @Override
+      public String toString() {
+         return MoreObjects.toStringHelper(this)
+                 .add("type", type)
+                 .add("extensions", extensions)
+                 .add("text", text)
+                 .add("compressible", compressible)
+                 .add("charset", charset)
+                 .toString();
+      }
+
+      /**
+       * The lower-case type.
+       */
+      public final String type;
+
+      /**
+       * The extensions (with leading '.') that map to this type, in order. May be empty.
+       */
+      public final ImmutableList<String> extensions;
+
+      /**
+       * Is the content text?
+       */
+      public final boolean text;
+
+      /**
+       * Does the content benefit from compression (for example, with {@code EncodingUtil.deflate})?
+       */
+      public final boolean compressible;
+
+      /**
+       * The default charset for text content, or {@code null} for binary content.
+       */
+      public final Charset charset;
+   }
+
+   /**
+    * Gets metadata for a type, ignoring case and any parameters (for example, {@code text/html; charset=UTF-8}).
+    * No objects are allocated.
+    * @param type The type.
+    * @return The metadata or {@code null} if the type is unknown.
+    */
+   public static final TypeInfo getTypeInfo(final CharSequence type) {
+      final int end = typeEnd(type);
+      final int start = typeStart(type, end);
+      final int slot = end > start ? find(typeTableKeys, typeTableMask, type, start, end) : -1;
+      return slot >= 0 ? typeTableValues[slot] : null;
+   }
+
+   /**
+    * Gets the extensions that map to a type.
+    * @param type The type.
+    * @return The extensions (with leading '.') or an empty list if none.
+    */
+   public static final ImmutableList<String> getExtensions(final CharSequence type) {
+      final TypeInfo info = getTypeInfo(type);
+      return info != null ? info.extensions : ImmutableList.of();
+   }
+
+   /**
+    * Determine if content of a type benefits from compression.
+    * <p>
+    * Unknown types are classified by name: text types, and types with {@code +xml} or {@code +json} suffixes, are compressible.
+    * </p>
+    * @param type The type.
+    * @return Is the content compressible?
+    */
+   public static final boolean isCompressible(final CharSequence type) {
+      final TypeInfo info = getTypeInfo(type);
+      if(info != null) {
+         return info.compressible;
+      }
+      final int end = typeEnd(type);
+      return isTextName(type, typeStart(type, end), end);
+   }
+
+   /**
+    * Determine if content of a type is text.
+    * @param type The type.
+    * @return Is the content text?
+    */
+   public static final boolean isText(final CharSequence type) {
+      final TypeInfo info = getTypeInfo(type);
+      if(info != null) {
+         return info.text;
+      }
+      final int end = typeEnd(type);
+      return isTextName(type, typeStart(type, end), end);
+   }
+
+   /**
+    * Gets the default charset for a type.
+    * @param type The type.
+    * @return The charset or {@code null} if content of the type is binary.
+    */
+   public static final Charset getCharset(final CharSequence type) {
+      return isText(type) ? StandardCharsets.UTF_8 : null;
+   }
+
+   /**
+    * Gets the end of the type in a string that may contain parameters, excluding trailing whitespace.
+    * @param type The type.
+    * @return The end (exclusive).
+    */
+   private static int typeEnd(final CharSequence type) {
+      int end = 0;
+      while(end < type.length() && type.charAt(end) != ';') {
+         end++;
+      }
+      while(end > 0 && Character.isWhitespace(type.charAt(end - 1))) {
+         end--;
+      }
+      return end;
+   }
+
+   /**
+    * Gets the start of a type, excluding leading whitespace.
+    * @param type The type.
+    * @param end The end of the type.
+    * @return The start.
+    */
+   private static int typeStart(final CharSequence type, final int end) {
+      int start = 0;
+      while(start < end && Character.isWhitespace(type.charAt(start))) {
+         start++;
       }
+      return start;
+   }
+
+   /**
+    * Classifies a type as text by name, ignoring case.
+    * @param type The type.
+    * @param start The start of the type.
+    * @param end The end of the type.
+    * @return Is the type text?
+    */
+   private static boolean isTextName(final CharSequence type, final int start, final int end) {
+      return regionMatches(type, start, end, start, "text/") ||
+              regionMatches(type, start, end, end - 4, "+xml") ||
+              regionMatches(type, start, end, end - 4, "/xml") ||
+              regionMatches(type, start, end, end - 5, "+json") ||
+              regionMatches(type, start, end, end - 5, "/json") ||
+              regionMatches(type, start, end, end - 10, "javascript");
+   }
+
+   /**
+    * Determine if a lower-case string matches a range of characters at an index, ignoring case.
+    * @param chars The characters.
+    * @param start The start of the range.
+    * @param end The end of the range.
+    * @param at The index of the match.
+    * @param match The lower-case string.
+    * @return Does the string match?
+    */
+   private static boolean regionMatches(final CharSequence chars, final int start, final int end,
+                                        final int at, final String match) {
+      if(at < start || at + match.length() > end) {
+         return false;
+      }
+      for(int i = 0; i < match.length(); i++) {
+         if(toLower(chars.charAt(at + i)) != match.charAt(i)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Looks up the type for an extension (without '.') in a range of characters.
+    * @param chars The characters.
+    * @param start The start (inclusive).
+    * @param end The end (exclusive).
+    * @return The type or {@code null} if unknown.
+    */
+   private static String lookup(final CharSequence chars, final int start, final int end) {
+      final int len = end - start;
+      if(len < 1 || len > maxExtensionLength) {
+         return null;
+      }
+      final int slot = find(tableKeys, tableMask, chars, start, end);
+      return slot >= 0 ? tableValues[slot] : null;
+   }
+
+   /**
+    * Looks up the type for an extension (without '.') in a range of bytes.
+    * @param bytes The bytes.
+    * @param start The start (inclusive).
+    * @param end The end (exclusive).
+    * @return The type or {@code null} if unknown.
+    */
+   private static String lookup(final byte[] bytes, final int start, final int end) {
+      final int len = end - start;
+      if(len < 1 || len > maxExtensionLength) {
+         return null;
+      }
+      int hash = HASH_SEED;
+      for(int i = start; i < end; i++) {
+         hash = (hash ^ toLower((char)(bytes[i] & 0xFF))) * HASH_PRIME;
+      }
+      for(int slot = hash & tableMask; ; slot = (slot + 1) & tableMask) {
+         char[] key = tableKeys[slot];
+         if(key == null) {
+            return null;
+         }
+         if(key.length == len) {
+            int i = 0;
+            while(i < len && key[i] == toLower((char)(bytes[start + i] & 0xFF))) {
+               i++;
+            }
+            if(i == len) {
+               return tableValues[slot];
+            }
+         }
+      }
+   }
+
+   /**
+    * Finds the slot for a range of characters in an open-addressed table of lower-case keys, ignoring case.
+    * @param keys The keys.
+    * @param mask The table size - 1.
+    * @param chars The characters.
+    * @param start The start (inclusive).
+    * @param end The end (exclusive).
+    * @return The slot or {@code -1} if not found.
+    */
+   private static int find(final char[][] keys, final int mask,
+                           final CharSequence chars, final int start, final int end) {
+      final int len = end - start;
+      int hash = HASH_SEED;
+      for(int i = start; i < end; i++) {
+         hash = (hash ^ toLower(chars.charAt(i))) * HASH_PRIME;
+      }
+      for(int slot = hash & mask; ; slot = (slot + 1) & mask) {
+         char[] key = keys[slot];
+         if(key == null) {
+            return -1;
+         }
+         if(key.length == len) {
+            int i = 0;
+            while(i < len && key[i] == toLower(chars.charAt(start + i))) {
+               i++;
+            }
+            if(i == len) {
+               return slot;
+            }
+         }
+      }
+   }
+
+   /**
+    * Inserts a lower-case key into an open-addressed table.
+    * @param keys The keys.
+    * @param key The key.
+    * @return The slot for the key.
+    */
+   private static int insert(final char[][] keys, final String key) {
+      final int mask = keys.length - 1;
+      int hash = HASH_SEED;
+      for(int i = 0; i < key.length(); i++) {
+         hash = (hash ^ key.charAt(i)) * HASH_PRIME;
+      }
+      int slot = hash & mask;
+      while(keys[slot] != null && !key.equals(new String(keys[slot]))) {
+         slot = (slot + 1) & mask;
+      }
+      if(keys[slot] == null) {
+         keys[slot] = key.toCharArray();
+      }
+      return slot;
+   }
+
+   /**
+    * Gets the size of an open-addressed table for a number of keys.
+    * @param count The number of keys.
+    * @return The size, a power of two at least twice the count.
+    */
+   private static int tableSize(final int count) {
+      return Integer.highestOneBit(Math.max(count, 1) * 4 - 1) << 1;
+   }
+
+   /**
+    * Lower-cases an ASCII character.
+    * @param ch The character.
+    * @return The lower-case character.
+    */
+   private static char toLower(final char ch) {
+      return ch >= 'A' && ch <= 'Z' ? (char)(ch + ('a' - 'A')) : ch;
    }
 
    /**
@@ -505,4 +913,123 @@ public class MimeTypes {
                    .put(".zip", "application/zip")
                    .put(".zoo", "application/octet-stream")
                    .put(".zsh", "text/x-script.zsh").build();
-}
\ No newline at end of file
+
+   private static final int HASH_SEED = 0x811C9DC5;
+   private static final int HASH_PRIME = 0x01000193;
+
+   /**
+    * Lower-case extensions (without '.') in an open-addressed hash table.
+    */
+   private static final char[][] tableKeys;
+
+   /**
+    * Types for the extensions in {@code tableKeys}.
+    */
+   private static final String[] tableValues;
+
+   /**
+    * The table size - 1.
+    */
+   private static final int tableMask;
+
+   /**
+    * The length of the longest extension.
+    */
+   private static final int maxExtensionLength;
+
+   /**
+    * Types, not otherwise classified by name, that are text.
+    */
+   private static final ImmutableSet<String> TEXT_TYPES = ImmutableSet.of(
+           "application/plain", "application/rtf", "application/postscript", "application/base64",
+           "application/x-sh", "application/x-bsh", "application/x-csh", "application/x-ksh", "application/x-tcl",
+           "application/x-lisp", "application/x-tex", "application/x-latex", "application/x-texinfo",
+           "application/x-troff", "application/x-troff-man", "application/x-troff-me", "application/x-troff-ms",
+           "application/x-wais-source", "application/smil", "application/sdp", "message/rfc822",
+           "model/vrml", "x-world/x-vrml", "chemical/x-pdb"
+   );
+
+   /**
+    * Binary types that benefit from compression.
+    */
+   private static final ImmutableSet<String> COMPRESSIBLE_BINARY_TYPES = ImmutableSet.of(
+           "image/bmp", "image/x-windows-bmp", "image/x-icon", "image/tiff", "image/x-tiff", "image/vnd.adobe.photoshop",
+           "audio/wav", "audio/x-wav", "audio/aiff", "audio/x-aiff",
+           "application/x-tar", "application/x-ustar", "application/x-gtar", "application/gnutar",
+           "application/msword", "application/excel", "application/mspowerpoint", "application/vnd.ms-powerpoint",
+           "application/x-ole-storage", "application/java", "application/wasm", "application/x-sqlite3",
+           "application/x-executable", "application/x-dvi", "font/ttf", "font/otf"
+   );
+
+   /**
+    * Types, without an extension, that have metadata.
+    */
+   private static final ImmutableSet<String> OTHER_TYPES = ImmutableSet.of(
+           "application/json", "application/xml", "application/javascript", "text/javascript",
+           "image/svg+xml", "image/webp", "image/heic", "image/avif", "video/mp4", "video/webm", "audio/mp4", "audio/flac",
+           "application/ogg", "application/x-7z-compressed", "application/x-rar-compressed", "application/x-xz",
+           "application/zstd", "application/java-archive", "application/epub+zip", "font/woff", "font/woff2",
+           "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+           "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+           "application/vnd.openxmlformats-officedocument.presentationml.presentation"
+   );
+
+   /**
+    * Lower-case types in an open-addressed hash table.
+    */
+   private static final char[][] typeTableKeys;
+
+   /**
+    * Metadata for the types in {@code typeTableKeys}.
+    */
+   private static final TypeInfo[] typeTableValues;
+
+   /**
+    * The type table size - 1.
+    */
+   private static final int typeTableMask;
+
+   static {
+      int size = tableSize(extensionMap.size());
+      char[][] keys = new char[size][];
+      String[] values = new String[size];
+      int maxLength = 0;
+      for(Map.Entry<String, String> kv : extensionMap.entrySet()) {
+         String ext = kv.getKey().substring(1).toLowerCase(Locale.ROOT);
+         int slot = insert(keys, ext);
+         if(values[slot] == null) {
+            values[slot] = kv.getValue();
+         }
+         maxLength = Math.max(maxLength, ext.length());
+      }
+      tableKeys = keys;
+      tableValues = values;
+      tableMask = size - 1;
+      maxExtensionLength = maxLength;
+   }
+
+   static {
+      TreeMultimap<String, String> extensions = TreeMultimap.create();
+      for(Map.Entry<String, String> kv : extensionMap.entrySet()) {
+         extensions.put(kv.getValue().toLowerCase(Locale.ROOT), kv.getKey().toLowerCase(Locale.ROOT));
+      }
+      for(String type : Iterables.concat(TEXT_TYPES, COMPRESSIBLE_BINARY_TYPES, OTHER_TYPES)) {
+         if(!extensions.containsKey(type)) {
+            extensions.put(type, "");
+         }
+      }
+      int size = tableSize(extensions.keySet().size());
+      char[][] keys = new char[size][];
+      TypeInfo[] values = new TypeInfo[size];
+      for(String type : extensions.keySet()) {
+         ImmutableList<String> typeExtensions = ImmutableList.copyOf(
+                 Iterables.filter(extensions.get(type), ext -> !ext.isEmpty()));
+         boolean text = TEXT_TYPES.contains(type) || isTextName(type, 0, type.length());
+         boolean compressible = text || COMPRESSIBLE_BINARY_TYPES.contains(type);
+         values[insert(keys, type)] = new TypeInfo(type, typeExtensions, text, compressible);
+      }
+      typeTableKeys = keys;
+      typeTableValues = values;
+      typeTableMask = size - 1;
+   }
+}
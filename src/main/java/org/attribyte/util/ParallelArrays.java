@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+/**
+ * Sorting for values stored at the same index in several arrays.
+ */
+final class ParallelArrays {
+
+   /**
+    * Compares the values at two indexes.
+    */
+   interface IndexComparator {
+
+      /**
+       * Compares the values at two indexes.
+       * @param i The first index.
+       * @param j The second index.
+       * @return A negative, zero or positive value, as for {@code Comparator}.
+       */
+      int compare(int i, int j);
+   }
+
+   /**
+    * Swaps the values at two indexes in every array.
+    */
+   interface IndexSwapper {
+
+      /**
+       * Swaps the values at two indexes.
+       * @param i The first index.
+       * @param j The second index.
+       */
+      void swap(int i, int j);
+   }
+
+   private ParallelArrays() {
+   }
+
+   /**
+    * Sorts a range of indexes in place (not stable).
+    * @param from The first index (inclusive).
+    * @param to The last index (exclusive).
+    * @param comparator The comparator.
+    * @param swapper The swapper.
+    */
+   static void sort(final int from, final int to, final IndexComparator comparator, final IndexSwapper swapper) {
+
+      int lo = from;
+      int hi = to - 1;
+
+      while(hi - lo >= INSERTION_SORT_THRESHOLD) {
+
+         //Median-of-three pivot, moved to 'lo'.
+         int mid = (lo + hi) >>> 1;
+         if(comparator.compare(mid, lo) < 0) swapper.swap(mid, lo);
+         if(comparator.compare(hi, lo) < 0) swapper.swap(hi, lo);
+         if(comparator.compare(hi, mid) < 0) swapper.swap(hi, mid);
+         swapper.swap(lo, mid);
+
+         //Three-way partition: [lo, lt) < pivot, [lt, i) == pivot, (gt, hi] > pivot.
+         int lt = lo;
+         int gt = hi;
+         int i = lo + 1;
+         while(i <= gt) {
+            int cmp = comparator.compare(i, lt);
+            if(cmp < 0) {
+               swapper.swap(lt++, i++);
+            } else if(cmp > 0) {
+               swapper.swap(i, gt--);
+            } else {
+               i++;
+            }
+         }
+
+         //Recurse on the smaller partition to bound stack depth.
+         if(lt - lo < hi - gt) {
+            sort(lo, lt, comparator, swapper);
+            lo = gt + 1;
+         } else {
+            sort(gt + 1, hi + 1, comparator, swapper);
+            hi = lt - 1;
+         }
+      }
+
+      for(int i = lo + 1; i <= hi; i++) {
+         for(int j = i; j > lo && comparator.compare(j, j - 1) < 0; j--) {
+            swapper.swap(j, j - 1);
+         }
+      }
+   }
+
+   private static final int INSERTION_SORT_THRESHOLD = 16;
+}
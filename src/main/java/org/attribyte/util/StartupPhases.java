@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records nested, timed startup phases with the number of classes loaded and heap used by each.
+ * <p>
+ * Phases are started with {@link #begin(String)} and ended by closing the returned phase,
+ * usually with try-with-resources. A phase started while another is open is nested within it.
+ * Phases must be closed in reverse order of their start.
+ * </p>
+ */
+public class StartupPhases {
+
+   /**
+    * Receives notification of phase start and end.
+    */
+   public interface Listener {
+
+      /**
+       * Called when a phase starts.
+       * @param phase The phase.
+       */
+      public default void started(Phase phase) {
+      }
+
+      /**
+       * Called when a phase ends.
+       * @param phase The phase.
+       */
+      public void ended(Phase phase);
+   }
+
+   /**
+    * A timed phase.
+    */
+   public final class Phase implements AutoCloseable {
+
+      private Phase(final String name, final int depth) {
+         this.name = name;
+         this.depth = depth;
+         this.startNanos = System.nanoTime();
+         this.startClassCount = classLoading.getTotalLoadedClassCount();
+         this.startHeapUsed = memory.getHeapMemoryUsage().getUsed();
+      }
+
+      /**
+       * Ends the phase.
+       * @throws IllegalStateException if a nested phase is still open.
+       */
+      @Override
+      public void close() {
+         end(this);
+      }
+
+      /**
+       * Is the phase complete?
+       * @return Is the phase complete?
+       */
+      public boolean isComplete() {
+         return complete;
+      }
+
+      /**
+       * Gets the phase duration.
+       * @param units The units.
+       * @return The duration, or the time since start if the phase is not complete.
+       */
+      public long duration(final TimeUnit units) {
+         return units.convert((isComplete() ? endNanos : System.nanoTime()) - startNanos, TimeUnit.NANOSECONDS);
+      }
+
+      /**
+       * Gets the number of classes loaded during the phase, including those loaded by other threads.
+       * @return The number of classes.
+       */
+      public long classesLoaded() {
+         return (isComplete() ? endClassCount : classLoading.getTotalLoadedClassCount()) - startClassCount;
+      }
+
+      /**
+       * Gets the heap used at the start of the phase.
+       * @return The heap used in bytes.
+       */
+      public long heapUsedAtStart() {
+         return startHeapUsed;
+      }
+
+      /**
+       * Gets the heap used at the end of the phase.
+       * @return The heap used in bytes, or {@code 0} if the phase is not complete.
+       */
+      public long heapUsedAtEnd() {
+         return endHeapUsed;
+      }
+
+      @Override
+      public String toString() {
+         return String.format("%s%-" + Math.max(1, 32 - depth * 2) + "s %8.1f ms %6d classes %8.1f MB heap",
+                 Strings.repeat("  ", depth), name,
+                 duration(TimeUnit.MICROSECONDS) / 1000.0, classesLoaded(),
+                 (isComplete() ? endHeapUsed : startHeapUsed) / (1024.0 * 1024.0));
+      }
+
+      /**
+       * The name.
+       */
+      public final String name;
+
+      /**
+       * The nesting depth. Top-level phases have depth 0.
+       */
+      public final int depth;
+
+      private final long startNanos;
+      private final long startClassCount;
+      private final long startHeapUsed;
+      private long endNanos;
+      private long endClassCount;
+      private long endHeapUsed;
+      private boolean complete;
+   }
+
+   /**
+    * Creates an empty tracker.
+    */
+   public StartupPhases() {
+      this.jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+   }
+
+   /**
+    * Begins a phase, nested within any open phase.
+    * @param name The phase name.
+    * @return The phase, to be closed when the phase ends.
+    */
+   public synchronized Phase begin(final String name) {
+      Phase phase = new Phase(name, open.size());
+      open.push(phase);
+      phases.add(phase);
+      for(Listener listener : listeners) {
+         listener.started(phase);
+      }
+      return phase;
+   }
+
+   /**
+    * Ends a phase.
+    * @param phase The phase.
+    * @throws IllegalStateException if the phase is not the most recently started open phase.
+    */
+   private synchronized void end(final Phase phase) {
+      if(phase.isComplete()) {
+         return;
+      }
+      if(open.peek() != phase) {
+         throw new IllegalStateException(String.format("The phase, '%s' has open nested phases", phase.name));
+      }
+      open.pop();
+      phase.endNanos = System.nanoTime();
+      phase.complete = true;
+      phase.endClassCount = classLoading.getTotalLoadedClassCount();
+      phase.endHeapUsed = memory.getHeapMemoryUsage().getUsed();
+      for(Listener listener : listeners) {
+         listener.ended(phase);
+      }
+   }
+
+   /**
+    * Adds a listener.
+    * @param listener The listener.
+    */
+   public void addListener(final Listener listener) {
+      listeners.add(listener);
+   }
+
+   /**
+    * Gets all phases in start order.
+    * @return The phases.
+    */
+   public synchronized List<Phase> phases() {
+      return ImmutableList.copyOf(phases);
+   }
+
+   /**
+    * Gets the time from JVM start until this tracker was created.
+    * @param units The units.
+    * @return The time.
+    */
+   public long jvmStartupTime(final TimeUnit units) {
+      return units.convert(jvmUptimeMillis, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Creates a report with one line per phase, nested phases indented.
+    * @return The report.
+    */
+   public synchronized String report() {
+      List<String> lines = Lists.newArrayListWithExpectedSize(phases.size() + 2);
+      lines.add(String.format("Startup phases (JVM start to first phase: %d ms)", jvmUptimeMillis));
+      long totalNanos = 0L;
+      for(Phase phase : phases) {
+         lines.add(phase.toString());
+         if(phase.depth == 0) {
+            totalNanos += phase.duration(TimeUnit.NANOSECONDS);
+         }
+      }
+      lines.add(String.format("Total: %.1f ms, %d classes loaded",
+              totalNanos / 1000000.0, classLoading.getTotalLoadedClassCount()));
+      return String.join(System.lineSeparator(), lines);
+   }
+
+   /**
+    * The JVM uptime when created.
+    */
+   private final long jvmUptimeMillis;
+
+   /**
+    * All phases in start order.
+    */
+   private final List<Phase> phases = Lists.newArrayListWithExpectedSize(16);
+
+   /**
+    * Open phases, most recent first.
+    */
+   private final Deque<Phase> open = new ArrayDeque<>();
+
+   /**
+    * The listeners.
+    */
+   private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+   private final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+   private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A growable list of string key, value pairs stored in parallel arrays.
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+public class StringPairList {
+
+   /**
+    * Creates an empty list with default capacity.
+    */
+   public StringPairList() {
+      this(DEFAULT_CAPACITY);
+   }
+
+   /**
+    * Creates an empty list.
+    * @param initialCapacity The initial capacity.
+    */
+   public StringPairList(final int initialCapacity) {
+      this.keys = new String[Math.max(initialCapacity, 1)];
+      this.values = new String[Math.max(initialCapacity, 1)];
+   }
+
+   /**
+    * Creates a list of properties, sorted by name.
+    * @param props The properties. May be {@code null}.
+    * @return The list.
+    */
+   public static StringPairList fromProperties(final Properties props) {
+      if(props == null) {
+         return new StringPairList(1);
+      }
+      StringPairList list = new StringPairList(props.size());
+      for(String name : props.stringPropertyNames()) {
+         list.add(name, props.getProperty(name));
+      }
+      return list.sortByKey();
+   }
+
+   /**
+    * Adds a pair.
+    * @param key The key.
+    * @param value The value.
+    * @return A self-reference.
+    */
+   public StringPairList add(final String key, final String value) {
+      if(size == keys.length) {
+         int newCapacity = keys.length + (keys.length >> 1) + 1;
+         keys = Arrays.copyOf(keys, newCapacity);
+         values = Arrays.copyOf(values, newCapacity);
+      }
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+   }
+
+   /**
+    * Gets the number of pairs.
+    * @return The size.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Is the list empty?
+    * @return Is the list empty?
+    */
+   public boolean isEmpty() {
+      return size == 0;
+   }
+
+   /**
+    * Gets the key at an index.
+    * @param index The index.
+    * @return The key.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public String key(final int index) {
+      checkIndex(index);
+      return keys[index];
+   }
+
+   /**
+    * Gets the value at an index.
+    * @param index The index.
+    * @return The value.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public String value(final int index) {
+      checkIndex(index);
+      return values[index];
+   }
+
+   /**
+    * Gets the pair at an index as an immutable entry.
+    * @param index The index.
+    * @return The entry.
+    * @throws IndexOutOfBoundsException if the index is out of range.
+    */
+   public Map.Entry<String, String> get(final int index) {
+      checkIndex(index);
+      return new AbstractMap.SimpleImmutableEntry<>(keys[index], values[index]);
+   }
+
+   /**
+    * Gets the value for a key in a list sorted by key.
+    * @param key The key.
+    * @return The value or {@code null} if the key is not in the list.
+    */
+   public String getValue(final String key) {
+      int index = binarySearch(key);
+      return index >= 0 ? values[index] : null;
+   }
+
+   /**
+    * Removes all pairs.
+    */
+   public void clear() {
+      Arrays.fill(keys, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+   }
+
+   /**
+    * Sorts by key ascending. Keys must not be {@code null}.
+    * @return A self-reference.
+    */
+   public StringPairList sortByKey() {
+      ParallelArrays.sort(0, size, (i, j) -> keys[i].compareTo(keys[j]), this::swap);
+      return this;
+   }
+
+   /**
+    * Searches for a key in a list sorted by key.
+    * @param key The key.
+    * @return The index of a pair with the key, or {@code (-(insertion point) - 1)}, as for {@code Arrays.binarySearch}.
+    */
+   public int binarySearch(final String key) {
+      return Arrays.binarySearch(keys, 0, size, key);
+   }
+
+   /**
+    * Gets a copy of the keys.
+    * @return The keys.
+    */
+   public String[] keys() {
+      return Arrays.copyOf(keys, size);
+   }
+
+   /**
+    * Gets a copy of the values.
+    * @return The values.
+    */
+   public String[] values() {
+      return Arrays.copyOf(values, size);
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder buf = new StringBuilder(size * 16 + 2).append('[');
+      for(int i = 0; i < size; i++) {
+         if(i > 0) buf.append(", ");
+         buf.append(keys[i]).append('=').append(values[i]);
+      }
+      return buf.append(']').toString();
+   }
+
+   private void swap(final int i, final int j) {
+      String tmp = keys[i];
+      keys[i] = keys[j];
+      keys[j] = tmp;
+      tmp = values[i];
+      values[i] = values[j];
+      values[j] = tmp;
+   }
+
+   private void checkIndex(final int index) {
+      if(index < 0 || index >= size) {
+         throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size));
+      }
+   }
+
+   private static final int DEFAULT_CAPACITY = 16;
+
+   /**
+    * The keys.
+    */
+   private String[] keys;
+
+   /**
+    * The values.
+    */
+   private String[] values;
+
+   /**
+    * The number of pairs.
+    */
+   private int size;
+}
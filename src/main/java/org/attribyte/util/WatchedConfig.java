@@ -0,0 +1,354 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.attribyte.api.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A configuration source that reloads property files when they change.
+ * <p>
+ * Files are loaded as by {@link CLI}: those with names that start with 'log.' are logger properties,
+ * relative '.file' values are resolved against the install directory, and overrides are applied last.
+ * Files are checked for a changed modification time or length on a background thread.
+ * When any file changes, all files are reloaded and the configuration is replaced atomically.
+ * If a reload fails, the previous configuration is retained.
+ * </p>
+ * <p>
+ * Listeners are registered for a property name prefix and are notified, on the polling thread,
+ * only when a property with that prefix was added, removed or changed.
+ * </p>
+ */
+public class WatchedConfig implements Closeable {
+
+   /**
+    * Receives notification of configuration changes.
+    */
+   public interface Listener {
+
+      /**
+       * Called when properties with the registered prefix have changed.
+       * @param previous The previous snapshot.
+       * @param current The current snapshot.
+       */
+      public void changed(ConfigSnapshot previous, ConfigSnapshot current);
+   }
+
+   /**
+    * A loaded configuration.
+    */
+   private static final class State {
+
+      State(final long generation, final Properties props, final Properties logProps, final long[] versions) {
+         this.generation = generation;
+         this.props = props;
+         this.logProps = logProps;
+         this.versions = versions;
+      }
+
+      /**
+       * Gets a snapshot for a prefix, creating it on first use.
+       * @param prefix The prefix.
+       * @return The snapshot.
+       */
+      ConfigSnapshot snapshot(final String prefix) {
+         return snapshots.computeIfAbsent(prefix, p -> ConfigSnapshot.create(p, props));
+      }
+
+      /**
+       * The generation.
+       */
+      final long generation;
+
+      /**
+       * The properties. Never modified after load.
+       */
+      final Properties props;
+
+      /**
+       * The logger properties. Never modified after load.
+       */
+      final Properties logProps;
+
+      /**
+       * The modification time and length of each file when loaded.
+       */
+      final long[] versions;
+
+      /**
+       * Snapshots vs prefix.
+       */
+      final ConcurrentMap<String, ConfigSnapshot> snapshots = new ConcurrentHashMap<>();
+   }
+
+   /**
+    * A registered listener.
+    */
+   private static final class Registration {
+
+      Registration(final String prefix, final Listener listener) {
+         this.prefix = prefix;
+         this.listener = listener;
+      }
+
+      /**
+       * The prefix.
+       */
+      final String prefix;
+
+      /**
+       * The listener.
+       */
+      final Listener listener;
+   }
+
+   /**
+    * Creates a configuration source and loads the files.
+    * @param files The property files, in load order. Later files override earlier ones.
+    * @param installDirSystemProperty The system property that indicates the install directory. May be {@code null}.
+    * @param overrides Properties applied after all files are loaded.
+    * @param logger A logger for reload errors. May be {@code null}.
+    * @throws IOException on load error.
+    */
+   public WatchedConfig(final Collection<File> files,
+                        final String installDirSystemProperty,
+                        final Properties overrides,
+                        final Logger logger) throws IOException {
+      this.files = ImmutableList.copyOf(files);
+      this.installDirSystemProperty = installDirSystemProperty;
+      this.overrides = new Properties();
+      if(overrides != null) {
+         this.overrides.putAll(overrides);
+      }
+      this.logger = logger;
+      this.state = load(0L);
+   }
+
+   /**
+    * Starts checking files for changes.
+    * @param pollInterval The interval between checks.
+    * @param pollIntervalUnits The interval units.
+    * @throws IllegalStateException if already started.
+    */
+   public synchronized void start(final long pollInterval, final TimeUnit pollIntervalUnits) {
+      if(scheduler != null) {
+         throw new IllegalStateException("The configuration source is already started");
+      }
+      scheduler = Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder().setNameFormat("watched-config-%d").setDaemon(true).build()
+      );
+      scheduler.scheduleWithFixedDelay(this::check, pollInterval, pollInterval, pollIntervalUnits);
+   }
+
+   /**
+    * Stops checking files for changes.
+    */
+   @Override
+   public synchronized void close() {
+      if(scheduler != null) {
+         scheduler.shutdownNow();
+         scheduler = null;
+      }
+   }
+
+   /**
+    * Gets a copy of the current properties.
+    * @return The properties.
+    */
+   public Properties properties() {
+      Properties props = new Properties();
+      props.putAll(state.props);
+      return props;
+   }
+
+   /**
+    * Gets a copy of the current logger properties.
+    * @return The logger properties.
+    */
+   public Properties logProperties() {
+      Properties props = new Properties();
+      props.putAll(state.logProps);
+      return props;
+   }
+
+   /**
+    * Gets the current snapshot of properties that begin with a prefix.
+    * <p>
+    * Snapshots are created once per prefix for each loaded configuration.
+    * </p>
+    * @param prefix The prefix.
+    * @return The snapshot.
+    */
+   public ConfigSnapshot snapshot(final String prefix) {
+      return state.snapshot(prefix);
+   }
+
+   /**
+    * Gets the configuration generation, incremented on every reload that changes properties.
+    * @return The generation.
+    */
+   public long generation() {
+      return state.generation;
+   }
+
+   /**
+    * Adds a listener for changes to properties that begin with a prefix.
+    * @param prefix The prefix. Use the empty string for all properties.
+    * @param listener The listener.
+    */
+   public void addListener(final String prefix, final Listener listener) {
+      registrations.add(new Registration(prefix, listener));
+   }
+
+   /**
+    * Removes a listener from all prefixes.
+    * @param listener The listener.
+    */
+   public void removeListener(final Listener listener) {
+      registrations.removeIf(registration -> registration.listener == listener);
+   }
+
+   /**
+    * Checks files for changes and reloads if any have changed.
+    * @return Was the configuration replaced?
+    * @throws IOException on load error. The current configuration is unchanged.
+    */
+   public synchronized boolean reload() throws IOException {
+      final State previous = state;
+      if(Arrays.equals(previous.versions, versions())) {
+         return false;
+      }
+
+      final State current = load(previous.generation + 1);
+      if(current.props.equals(previous.props) && current.logProps.equals(previous.logProps)) {
+         state = new State(previous.generation, previous.props, previous.logProps, current.versions);
+         return false;
+      }
+
+      state = current;
+      for(Registration registration : registrations) {
+         ConfigSnapshot previousSnapshot = previous.snapshot(registration.prefix);
+         ConfigSnapshot currentSnapshot = current.snapshot(registration.prefix);
+         if(!previousSnapshot.toProperties().equals(currentSnapshot.toProperties())) {
+            try {
+               registration.listener.changed(previousSnapshot, currentSnapshot);
+            } catch(RuntimeException re) {
+               if(logger != null) {
+                  logger.error(String.format("Configuration listener for '%s' failed", registration.prefix), re);
+               }
+            }
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Reloads, logging any error.
+    */
+   private void check() {
+      try {
+         if(reload() && logger != null) {
+            logger.info(String.format("Configuration reloaded (generation %d)", state.generation));
+         }
+      } catch(IOException | RuntimeException e) {
+         if(logger != null) {
+            logger.error("Configuration reload failed. Retaining previous configuration", e);
+         }
+      }
+   }
+
+   /**
+    * Loads all files.
+    * @param generation The generation of the loaded state.
+    * @return The state.
+    * @throws IOException on load error.
+    */
+   private State load(final long generation) throws IOException {
+      final long[] versions = versions();
+      Properties props = new Properties();
+      Properties logProps = new Properties();
+      for(File f : files) {
+         CLI.loadFile(f, props, logProps, installDirSystemProperty);
+      }
+      props.putAll(overrides);
+      logProps.putAll(overrides);
+      return new State(generation, props, logProps, versions);
+   }
+
+   /**
+    * Gets the modification time and length of each file.
+    * @return The versions.
+    */
+   private long[] versions() {
+      long[] versions = new long[files.size() * 2];
+      for(int i = 0; i < files.size(); i++) {
+         File f = files.get(i);
+         versions[i * 2] = f.lastModified();
+         versions[i * 2 + 1] = f.length();
+      }
+      return versions;
+   }
+
+   /**
+    * The files.
+    */
+   private final List<File> files;
+
+   /**
+    * The system property that indicates the install directory.
+    */
+   private final String installDirSystemProperty;
+
+   /**
+    * Properties applied after all files are loaded.
+    */
+   private final Properties overrides;
+
+   /**
+    * The logger. May be {@code null}.
+    */
+   private final Logger logger;
+
+   /**
+    * The registered listeners.
+    */
+   private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+   /**
+    * The current state.
+    */
+   private volatile State state;
+
+   /**
+    * The scheduler, if started.
+    */
+   private ScheduledExecutorService scheduler;
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2018 Attribyte, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ *
+ */
+
+package org.attribyte.util;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming XML utilities based on {@link XMLStreamReader}.
+ * <p>
+ * Unlike {@link DOMUtil}, no document is built. Elements at a path like {@code feed/entry}
+ * are read one at a time into a small {@link XMLElement} tree, so memory is bounded
+ * by the largest matched element rather than by the document. Paths are element
+ * local names, separated by '/', starting with the root element. A segment of {@code *} matches any element.
+ * </p>
+ * <p>
+ * Readers are created with DTD processing and external entities disabled.
+ * </p>
+ */
+public class XMLStreamUtil {
+
+   /**
+    * An unchecked exception raised when reading a stream fails during iteration.
+    */
+   @SuppressWarnings("serial")
+   public static class UncheckedXMLStreamException extends RuntimeException {
+
+      public UncheckedXMLStreamException(final XMLStreamException cause) {
+         super(cause);
+      }
+
+      @Override
+      public synchronized XMLStreamException getCause() {
+         return (XMLStreamException)super.getCause();
+      }
+   }
+
+   /**
+    * An element read from a stream, with its attributes, text and child elements.
+    */
+   public static final class XMLElement {
+
+      XMLElement(final String name, final String namespaceURI, final ImmutableMap<String, String> attributes,
+                 final String text, final ImmutableList<XMLElement> children) {
+         this.name = name;
+         this.namespaceURI = namespaceURI;
+         this.attributes = attributes;
+         this.text = text;
+         this.children = children;
+      }
+
+      /**
+       * Gets the local name.
+       * @return The name.
+       */
+      public String getName() {
+         return name;
+      }
+
+      /**
+       * Gets the namespace URI.
+       * @return The namespace URI or {@code null} if none.
+       */
+      public String getNamespaceURI() {
+         return namespaceURI;
+      }
+
+      /**
+       * Gets the value of an attribute.
+       * @param name The attribute local name.
+       * @return The value or {@code null} if none.
+       */
+      public String getAttribute(final String name) {
+         return attributes.get(name);
+      }
+
+      /**
+       * Gets all attributes.
+       * @return The attributes, by local name.
+       */
+      public ImmutableMap<String, String> getAttributes() {
+         return attributes;
+      }
+
+      /**
+       * Gets the text content, including the text of all descendants.
+       * @return The text. May be empty.
+       */
+      public String getText() {
+         return text;
+      }
+
+      /**
+       * Gets all child elements.
+       * @return The children.
+       */
+      public ImmutableList<XMLElement> getChildren() {
+         return children;
+      }
+
+      /**
+       * Gets the first child element with the specified name.
+       * @param childName The child name.
+       * @return The first element or <tt>null</tt> if none found.
+       */
+      public XMLElement getFirstChild(final String childName) {
+         for(XMLElement child : children) {
+            if(child.name.equals(childName)) {
+               return child;
+            }
+         }
+         return null;
+      }
+
+      /**
+       * Gets all child elements with the specified name.
+       * @param childName The child name.
+       * @return The elements.
+       */
+      public List<XMLElement> getChildren(final String childName) {
+         List<XMLElement> matched = Lists.newArrayListWithExpectedSize(children.size());
+         for(XMLElement child : children) {
+            if(child.name.equals(childName)) {
+               matched.add(child);
+            }
+         }
+         return matched;
+      }
+
+      /**
+       * Gets the text content of a child element.
+       * @param childName The child element name.
+       * @return The text content or <tt>null</tt> if none.
+       */
+      public String getChildText(final String childName) {
+         XMLElement child = getFirstChild(childName);
+         return child != null ? child.text : null;
+      }
+
+      @Override
+      public String toString() {
+         return "<" + name + (attributes.isEmpty() ? "" : " " + attributes) + ">";
+      }
+
+      private final String name;
+      private final String namespaceURI;
+      private final ImmutableMap<String, String> attributes;
+      private final String text;
+      private final ImmutableList<XMLElement> children;
+   }
+
+   /**
+    * Iterates over elements at a path, reading the stream as elements are requested.
+    * <p>
+    * Closing the iterator closes the reader, but not the underlying input stream.
+    * Read errors are thrown as {@link UncheckedXMLStreamException}.
+    * </p>
+    */
+   public static final class ElementIterator implements Iterator<XMLElement>, AutoCloseable {
+
+      ElementIterator(final XMLStreamReader reader, final String[] path) {
+         this.reader = reader;
+         this.path = path;
+      }
+
+      @Override
+      public boolean hasNext() {
+         if(next == null && !closed) {
+            try {
+               next = advance();
+            } catch(XMLStreamException xse) {
+               close();
+               throw new UncheckedXMLStreamException(xse);
+            }
+            if(next == null) {
+               close();
+            }
+         }
+         return next != null;
+      }
+
+      @Override
+      public XMLElement next() {
+         if(!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         XMLElement curr = next;
+         next = null;
+         return curr;
+      }
+
+      @Override
+      public void close() {
+         if(closed) {
+            return;
+         }
+         closed = true;
+         try {
+            reader.close();
+         } catch(XMLStreamException xse) {
+            //Ignore
+         }
+      }
+
+      /**
+       * Reads to the next element at the path.
+       * @return The element or {@code null} if the end of the document is reached.
+       * @throws XMLStreamException on read error.
+       */
+      private XMLElement advance() throws XMLStreamException {
+         while(reader.hasNext()) {
+            switch(reader.next()) {
+               case XMLStreamConstants.START_ELEMENT:
+                  if(matched == depth && depth < path.length && matches(path[depth], reader.getLocalName())) {
+                     matched++;
+                  }
+                  depth++;
+                  if(matched == path.length) {
+                     XMLElement element = readElement(reader);
+                     depth--;
+                     matched--;
+                     return element;
+                  }
+                  break;
+               case XMLStreamConstants.END_ELEMENT:
+                  depth--;
+                  matched = Math.min(matched, depth);
+                  break;
+            }
+         }
+         return null;
+      }
+
+      private final XMLStreamReader reader;
+      private final String[] path;
+      private int depth;
+      private int matched;
+      private XMLElement next;
+      private boolean closed;
+   }
+
+   /**
+    * Creates a reader with DTD processing and external entities disabled.
+    * @param is The input stream.
+    * @return The reader.
+    * @throws XMLStreamException on create error.
+    */
+   public static final XMLStreamReader createReader(final InputStream is) throws XMLStreamException {
+      return inputFactory.createXMLStreamReader(is);
+   }
+
+   /**
+    * Iterates over the elements at a path.
+    * @param is The input stream. Not closed by the iterator.
+    * @param path The path, starting with the root element, e.g. {@code feed/entry}.
+    * @return The iterator.
+    * @throws XMLStreamException on create error.
+    */
+   public static final ElementIterator iterate(final InputStream is, final String path) throws XMLStreamException {
+      return iterate(createReader(is), path);
+   }
+
+   /**
+    * Iterates over the elements at a path.
+    * @param reader A reader positioned at the start of the document.
+    * @param path The path, starting with the root element, e.g. {@code feed/entry}.
+    * @return The iterator.
+    */
+   public static final ElementIterator iterate(final XMLStreamReader reader, final String path) {
+      return new ElementIterator(reader, parsePath(path));
+   }
+
+   /**
+    * Gets the first element at a path, reading no further than its end.
+    * @param is The input stream.
+    * @param path The path.
+    * @return The element or <tt>null</tt> if none found.
+    * @throws XMLStreamException on read error.
+    */
+   public static final XMLElement getFirstElement(final InputStream is, final String path) throws XMLStreamException {
+      try(ElementIterator iter = iterate(is, path)) {
+         return iter.hasNext() ? iter.next() : null;
+      } catch(UncheckedXMLStreamException uxe) {
+         throw uxe.getCause();
+      }
+   }
+
+   /**
+    * Gets the text content of the first element at a path, reading no further than its end.
+    * @param is The input stream.
+    * @param path The path.
+    * @return The text content or <tt>null</tt> if none.
+    * @throws XMLStreamException on read error.
+    */
+   public static final String getText(final InputStream is, final String path) throws XMLStreamException {
+      XMLElement element = getFirstElement(is, path);
+      return element != null ? element.getText() : null;
+   }
+
+   /**
+    * Gets the text content of all elements at a path.
+    * @param is The input stream.
+    * @param path The path.
+    * @return The text content of each element, in document order.
+    * @throws XMLStreamException on read error.
+    */
+   public static final List<String> getTextList(final InputStream is, final String path) throws XMLStreamException {
+      List<String> text = Lists.newArrayList();
+      try(ElementIterator iter = iterate(is, path)) {
+         while(iter.hasNext()) {
+            text.add(iter.next().getText());
+         }
+      } catch(UncheckedXMLStreamException uxe) {
+         throw uxe.getCause();
+      }
+      return text;
+   }
+
+   /**
+    * Reads the element at the reader's current start tag, leaving the reader at its end tag.
+    * @param reader The reader.
+    * @return The element.
+    * @throws XMLStreamException on read error.
+    */
+   static XMLElement readElement(final XMLStreamReader reader) throws XMLStreamException {
+      final String name = reader.getLocalName();
+      final String namespaceURI = reader.getNamespaceURI();
+      final ImmutableMap<String, String> attributes;
+      final int attributeCount = reader.getAttributeCount();
+      if(attributeCount == 0) {
+         attributes = ImmutableMap.of();
+      } else {
+         Map<String, String> attributeMap = Maps.newLinkedHashMapWithExpectedSize(attributeCount);
+         for(int i = 0; i < attributeCount; i++) {
+            attributeMap.putIfAbsent(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+         }
+         attributes = ImmutableMap.copyOf(attributeMap);
+      }
+
+      StringBuilder text = null;
+      ImmutableList.Builder<XMLElement> children = null;
+      while(true) {
+         switch(reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+               XMLElement child = readElement(reader);
+               if(children == null) {
+                  children = ImmutableList.builder();
+               }
+               children.add(child);
+               if(!child.text.isEmpty()) {
+                  if(text == null) {
+                     text = new StringBuilder();
+                  }
+                  text.append(child.text);
+               }
+               break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+               if(text == null) {
+                  text = new StringBuilder(reader.getTextLength());
+               }
+               text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+               break;
+            case XMLStreamConstants.END_ELEMENT:
+               return new XMLElement(name, namespaceURI, attributes,
+                       text != null ? text.toString() : "",
+                       children != null ? children.build() : ImmutableList.of());
+         }
+      }
+   }
+
+   /**
+    * Parses a path into element names.
+    * @param path The path.
+    * @return The names.
+    */
+   private static String[] parsePath(final String path) {
+      List<String> names = pathSplitter.splitToList(path);
+      if(names.isEmpty()) {
+         throw new IllegalArgumentException("The path must not be empty");
+      }
+      return names.toArray(new String[0]);
+   }
+
+   /**
+    * Determine if a path segment matches a name.
+    * @param segment The segment.
+    * @param name The element local name.
+    * @return Does the segment match?
+    */
+   private static boolean matches(final String segment, final String name) {
+      return segment.equals(name) || segment.equals("*");
+   }
+
+   /**
+    * Splits paths.
+    */
+   private static final Splitter pathSplitter = Splitter.on('/').omitEmptyStrings().trimResults();
+
+   /**
+    * The input factory.
+    */
+   private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+   static {
+      inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+      inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+   }
+}